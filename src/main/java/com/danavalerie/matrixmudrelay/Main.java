@@ -23,28 +23,68 @@ import com.danavalerie.matrixmudrelay.config.ConfigBundle;
 import com.danavalerie.matrixmudrelay.config.ConfigLoader;
 import com.danavalerie.matrixmudrelay.config.DeliveryRouteMappings;
 import com.danavalerie.matrixmudrelay.config.UiConfig;
+import com.danavalerie.matrixmudrelay.core.MapDataService;
+import com.danavalerie.matrixmudrelay.core.RoomMapService;
+import com.danavalerie.matrixmudrelay.core.RoomNoteService;
+import com.danavalerie.matrixmudrelay.core.UULibraryService;
 import com.danavalerie.matrixmudrelay.ui.DesktopClientFrame;
 import com.danavalerie.matrixmudrelay.util.BackgroundSaver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.SwingUtilities;
 import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public final class Main {
+    private static final Logger logger = LoggerFactory.getLogger(Main.class);
+
+    private interface Loader<T> {
+        T load() throws Exception;
+    }
+
     public static void main(String[] args) throws Exception {
+        long start = System.nanoTime();
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             System.out.println("Shutting down, waiting for background saves...");
             BackgroundSaver.shutdown();
         }, "Shutdown-Saver-Hook"));
 
         Path configPath = Path.of("config.json");
-        ConfigBundle bundle = ConfigLoader.load(configPath);
-        ClientConfig cfg = bundle.clientConfig();
-        UiConfig uiCfg = bundle.uiConfig();
         Path routesPath = configPath.resolveSibling("delivery-routes.json");
-        DeliveryRouteMappings routes = ConfigLoader.loadRoutes(routesPath);
 
-        com.danavalerie.matrixmudrelay.core.MapDataService dataService =
-                new com.danavalerie.matrixmudrelay.core.MapDataService();
-        com.danavalerie.matrixmudrelay.core.RoomMapService mapService =
-                new com.danavalerie.matrixmudrelay.core.RoomMapService(dataService);
+        // The data files do not depend on each other, so they are read side by side while
+        // this thread sets up Swing.
+        ExecutorService loaders = Executors.newFixedThreadPool(5, r -> {
+            Thread t = new Thread(r, "Startup-Loader");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<ConfigBundle> bundleLoad = load(loaders, "config", () -> ConfigLoader.load(configPath));
+        CompletableFuture<DeliveryRouteMappings> routesLoad = load(loaders, "delivery routes", () -> ConfigLoader.loadRoutes(routesPath));
+        CompletableFuture<RoomMapService> mapLoad = load(loaders, "map data", () -> {
+            MapDataService mapData = new MapDataService();
+            mapData.saveDatabaseIfStale();
+            return new RoomMapService(mapData);
+        });
+        CompletableFuture<RoomNoteService> notesLoad = load(loaders, "room notes",
+                () -> new RoomNoteService(configPath.resolveSibling("room-notes.json")));
+        CompletableFuture<UULibraryService> libraryLoad = load(loaders, "UU library", UULibraryService::getInstance);
+        loaders.shutdown();
+
+        DesktopClientFrame.installLookAndFeel();
+
+        ConfigBundle bundle = await(bundleLoad);
+        ClientConfig cfg = bundle.clientConfig();
+        UiConfig uiCfg = bundle.uiConfig();
+        DeliveryRouteMappings routes = await(routesLoad);
+        RoomMapService mapService = await(mapLoad);
+        RoomNoteService roomNotes = await(notesLoad);
+        await(libraryLoad);
+        logger.info("Startup data ready after {} ms", millisSince(start));
 
         boolean cfgChanged = ConfigLoader.convertCoordinatesToRoomIds(cfg, mapService);
         if (cfgChanged) {
@@ -57,7 +97,36 @@ public final class Main {
             routes = convertedRoutes;
         }
 
-        DesktopClientFrame.launch(cfg, uiCfg, configPath, routes, mapService);
+        DesktopClientFrame.launch(cfg, uiCfg, configPath, routes, mapService, roomNotes);
+        // Queued behind the frame, so this runs once it is on screen.
+        SwingUtilities.invokeLater(() -> logger.info("Client window shown after {} ms", millisSince(start)));
     }
-}
 
+    private static <T> CompletableFuture<T> load(ExecutorService executor, String what, Loader<T> loader) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                T result = loader.load();
+                logger.info("Loaded {} in {} ms", what, millisSince(start));
+                return result;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -30,6 +30,7 @@ public final class ClientConfig {
     public Ui ui = new Ui();
     public List<Bookmark> bookmarks = new ArrayList<>();
     public List<Trigger> triggers = new ArrayList<>();
+    public List<Gag> gags = new ArrayList<>();
 
     public Map<String, CharacterConfig> characters = new CaseInsensitiveLinkedHashMap<>();
 
@@ -42,6 +43,16 @@ public final class ClientConfig {
         public int port;
         public String charset = "ISO-8859-1";
         public int connectTimeoutMs = 10000;
+        /** Negotiate MCCP2/MCCP3 stream compression when the server offers it. */
+        public boolean compression = true;
+        /**
+         * Hold outbound commands back so that at most {@link #maxCommandsInFlight} are sent
+         * ahead of the server's prompts (GA/EOR). Commands are released anyway after
+         * {@link #pacingTimeoutMs} without a prompt.
+         */
+        public boolean commandPacing = false;
+        public int maxCommandsInFlight = 4;
+        public int pacingTimeoutMs = 2000;
     }
 
 
@@ -50,6 +61,14 @@ public final class ClientConfig {
         public Integer fontSize;
         public Integer mapZoomPercent;
         public Boolean invertMap;
+        /** Most lines kept in the output and chitchat panes before the oldest are dropped. */
+        public Integer scrollbackLines;
+        /** Most characters kept in the output and chitchat panes before the oldest are dropped. */
+        public Integer scrollbackChars;
+        /** Directory that dropped scrollback is appended to; unset to discard it. */
+        public String scrollbackArchiveDir;
+        /** Directory for the searchable session log; "session-logs" if unset, blank to disable. */
+        public String sessionLogDir;
     }
 
     public static final class Bookmark {
@@ -122,4 +141,16 @@ public final class ClientConfig {
         public boolean useSoundFile;
         public boolean sendToChitchat;
     }
+
+    /**
+     * Output line filter, checked before a line is shown. A matching line is not shown, or
+     * with {@link #collapseRepeats}, only its identical consecutive repeats are not shown and
+     * the first copy shows a repeat count instead. Gags affect the display only: triggers,
+     * which restyle shown lines, skip gagged lines, but the trackers, command processor and
+     * session log still see every line.
+     */
+    public static final class Gag {
+        public String pattern;
+        public boolean collapseRepeats;
+    }
 }
@@ -87,6 +87,9 @@ public final class ConfigLoader {
             cfg.triggers = createDefaultTriggers();
             migrated = true;
         }
+        if (cfg.gags == null) {
+            cfg.gags = new ArrayList<>();
+        }
 
         validate(cfg);
 
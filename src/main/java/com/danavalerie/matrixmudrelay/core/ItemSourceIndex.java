@@ -0,0 +1,90 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import com.danavalerie.matrixmudrelay.core.data.ShopItem;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where each item can be had: the shops that stock it and the NPCs that carry it, keyed
+ * by lower-cased item name. Sources keep the order they were added in. Built once from
+ * the map data: shop lists are not edited while the client runs. Thread-safe.
+ */
+final class ItemSourceIndex {
+    record ShopSource(RoomData room, ShopItem item) {
+    }
+
+    record NpcSource(NpcData npc, NpcData.NpcItemData item) {
+    }
+
+    private final Map<String, List<ShopSource>> shops = new HashMap<>();
+    private final Map<String, List<NpcSource>> npcs = new HashMap<>();
+
+    ItemSourceIndex() {
+    }
+
+    ItemSourceIndex(Collection<RoomData> rooms, Collection<NpcData> npcs) {
+        rooms.forEach(this::addRoom);
+        if (npcs != null) {
+            npcs.forEach(this::addNpc);
+        }
+    }
+
+    static String key(String itemName) {
+        return itemName.trim().toLowerCase();
+    }
+
+    synchronized void addRoom(RoomData room) {
+        if (room.getShopItems() == null) {
+            return;
+        }
+        for (ShopItem item : room.getShopItems()) {
+            if (item.getName() == null) {
+                continue;
+            }
+            shops.computeIfAbsent(key(item.getName()), k -> new ArrayList<>()).add(new ShopSource(room, item));
+        }
+    }
+
+    synchronized void addNpc(NpcData npc) {
+        if (npc.getItems() == null) {
+            return;
+        }
+        npc.getItems().forEach((name, item) -> {
+            if (name != null) {
+                npcs.computeIfAbsent(key(name), k -> new ArrayList<>()).add(new NpcSource(npc, item));
+            }
+        });
+    }
+
+    synchronized List<ShopSource> shops(String itemName) {
+        return List.copyOf(shops.getOrDefault(key(itemName), List.of()));
+    }
+
+    synchronized List<NpcSource> npcs(String itemName) {
+        return List.copyOf(npcs.getOrDefault(key(itemName), List.of()));
+    }
+}
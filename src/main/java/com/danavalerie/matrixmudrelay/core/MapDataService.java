@@ -12,6 +12,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -22,21 +23,81 @@ public class MapDataService {
     private static final Logger logger = LoggerFactory.getLogger(MapDataService.class);
     private static final Gson GSON = GsonUtils.getGson();
 
+    private final Path roomsJson;
+    private final Path npcsJson;
+    private final Path database;
     private Map<String, RoomData> rooms = new TreeMap<>();
     private Map<String, ItemData> items = new TreeMap<>();
     private Map<String, NpcData> npcs = new TreeMap<>();
+    private boolean databaseCurrent;
 
     public MapDataService() {
+        this(Path.of(""));
+    }
+
+    /**
+     * Loads {@code rooms.json} and {@code npcs.json} from {@code directory}, or the
+     * {@code maps.db} built from them there. Nothing is written.
+     */
+    public MapDataService(Path directory) {
+        roomsJson = directory.resolve("rooms.json");
+        npcsJson = directory.resolve("npcs.json");
+        database = directory.resolve("maps.db");
         loadAll();
     }
 
     private void loadAll() {
-        rooms = loadJson("rooms.json", new TypeToken<TreeMap<String, RoomData>>() {}.getType());
-        npcs = loadJson("npcs.json", new TypeToken<TreeMap<String, NpcData>>() {}.getType());
+        databaseCurrent = loadDatabase();
+        if (!databaseCurrent) {
+            rooms = loadJson(roomsJson, new TypeToken<TreeMap<String, RoomData>>() {}.getType());
+            npcs = loadJson(npcsJson, new TypeToken<TreeMap<String, NpcData>>() {}.getType());
+        }
 
         deriveItems();
     }
 
+    /**
+     * Loads rooms and NPCs from {@code maps.db} if it was built from the current JSON.
+     */
+    private boolean loadDatabase() {
+        try {
+            MapDatabase.Contents contents = MapDatabase.read(database,
+                    MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson));
+            if (contents == null) {
+                return false;
+            }
+            rooms = contents.rooms();
+            npcs = contents.npcs();
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to read {}, loading JSON instead", database, e);
+            return false;
+        }
+    }
+
+    /**
+     * Rebuilds {@code maps.db} from the loaded data, stamped with the JSON files as they
+     * are on disk now. Call it only once those files hold the same data.
+     */
+    public synchronized void saveDatabase() {
+        try {
+            MapDatabase.write(database, rooms, npcs, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson));
+            databaseCurrent = true;
+        } catch (IOException e) {
+            logger.warn("Failed to write {}", database, e);
+        }
+    }
+
+    /**
+     * Builds {@code maps.db} for the next start if the data was loaded from JSON, so that
+     * the JSON is only parsed again once it changes.
+     */
+    public synchronized void saveDatabaseIfStale() {
+        if (!databaseCurrent && (Files.exists(roomsJson) || Files.exists(npcsJson))) {
+            saveDatabase();
+        }
+    }
+
     private void deriveItems() {
         items = new TreeMap<>();
         if (rooms != null) {
@@ -63,15 +124,13 @@ public class MapDataService {
         });
     }
 
-    private <T> T loadJson(String filename, Type type) {
-        Path path = Path.of(filename);
+    private <T> T loadJson(Path path, Type type) {
         if (Files.exists(path)) {
-            try {
-                String json = Files.readString(path);
-                T data = GSON.fromJson(json, type);
+            try (Reader reader = Files.newBufferedReader(path)) {
+                T data = GSON.fromJson(reader, type);
                 if (data != null) return data;
             } catch (IOException e) {
-                logger.error("Failed to load {}", filename, e);
+                logger.error("Failed to load {}", path, e);
             }
         }
         try {
@@ -82,13 +141,13 @@ public class MapDataService {
     }
 
     public synchronized void saveAll() {
-        saveJson("rooms.json", rooms);
-        saveJson("npcs.json", npcs);
+        saveJson(roomsJson, rooms);
+        saveJson(npcsJson, npcs);
     }
 
-    private void saveJson(String filename, Object data) {
+    private void saveJson(Path path, Object data) {
         String json = GSON.toJson(data);
-        BackgroundSaver.save(Path.of(filename), json);
+        BackgroundSaver.save(path, json);
     }
 
     public Map<String, RoomData> getRooms() { return rooms; }
@@ -0,0 +1,385 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import com.danavalerie.matrixmudrelay.core.data.ShopItem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * A compact binary copy of {@code rooms.json} and {@code npcs.json} that loads without
+ * Gson. The JSON files stay the source of truth: the header records the length and
+ * CRC32C of each one, and {@link #read} refuses a file whose stamps no longer match.
+ * <p>
+ * Layout (big-endian ints throughout):
+ * <pre>
+ * header   magic, version, rooms.json length (long) and crc, npcs.json length (long) and crc
+ * strings  count, offsets[count + 1], UTF-8 bytes
+ * rooms    count, records of {id, map, x, y, short, type, nulls}, then CSR tables for
+ *          exits {direction, target}, shop items {name, shopName} and flags
+ * npcs     count, records of {id, name, room, nulls}, then a CSR table of items
+ *          {name, salePrice, specialNote}
+ * </pre>
+ * Strings are stored once and referred to by index, -1 standing for null; each CSR table
+ * is an offsets array of {@code count + 1} entries followed by the flattened rows. The
+ * {@code nulls} bits mark collections that are null rather than empty, and a null item
+ * is stored with {@link #NULL_ITEM} as its salePrice. Flags are not marked: an empty
+ * list of flags is null in {@link RoomData} already.
+ */
+final class MapDatabase {
+    private static final int MAGIC = 0x4D444231; // "MDB1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + (8 + 4) * 2;
+    private static final int STAMP_BUFFER_BYTES = 64 * 1024;
+    private static final int ROOM_FIELDS = 7;
+    private static final int NPC_FIELDS = 4;
+    private static final int NULL_EXITS = 1;
+    private static final int NULL_SHOP_ITEMS = 2;
+    private static final int NULL_ITEMS = 1;
+    private static final int NULL_ITEM = -2;
+
+    record Stamp(long length, int crc) {
+        static final Stamp MISSING = new Stamp(-1, 0);
+
+        static Stamp of(Path path) throws IOException {
+            if (!Files.exists(path)) {
+                return MISSING;
+            }
+            // Streamed rather than mapped: a mapping outlives the channel until it is
+            // collected, and on Windows it would stop the JSON from being saved over.
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                CRC32C crc = new CRC32C();
+                ByteBuffer buf = ByteBuffer.allocate(STAMP_BUFFER_BYTES);
+                long length = 0;
+                int read;
+                while ((read = channel.read(buf)) >= 0) {
+                    buf.flip();
+                    crc.update(buf);
+                    buf.clear();
+                    length += read;
+                }
+                return new Stamp(length, (int) crc.getValue());
+            }
+        }
+    }
+
+    record Contents(Map<String, RoomData> rooms, Map<String, NpcData> npcs) {
+    }
+
+    private MapDatabase() {
+    }
+
+    /**
+     * Returns the rooms and NPCs in {@code path}, or null if it is missing, damaged, of
+     * another version, or was built from JSON other than {@code roomsStamp} and
+     * {@code npcsStamp}.
+     */
+    static Contents read(Path path, Stamp roomsStamp, Stamp npcsStamp) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        // Everything is decoded into objects, so the file is read onto the heap rather than
+        // mapped; a mapping would stay open after this returns and, on Windows, stop the
+        // file from being replaced. The header is checked before the body is read.
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (!readFully(channel, header)) {
+                return null;
+            }
+            if (header.getInt() != MAGIC || header.getInt() != VERSION
+                    || !new Stamp(header.getLong(), header.getInt()).equals(roomsStamp)
+                    || !new Stamp(header.getLong(), header.getInt()).equals(npcsStamp)) {
+                return null;
+            }
+            ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(channel.size() - HEADER_BYTES));
+            if (!readFully(channel, buf)) {
+                return null;
+            }
+            String[] strings = readStrings(buf);
+            return new Contents(readRooms(buf, strings), readNpcs(buf, strings));
+        } catch (RuntimeException e) {
+            // Truncated or corrupt; the caller falls back to the JSON.
+            return null;
+        }
+    }
+
+    /**
+     * Fills {@code buf} from the channel and flips it for reading.
+     *
+     * @return false if the file ended first
+     */
+    private static boolean readFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) {
+            if (channel.read(buf) < 0) {
+                return false;
+            }
+        }
+        buf.flip();
+        return true;
+    }
+
+    private static String[] readStrings(ByteBuffer buf) {
+        String[] strings = new String[buf.getInt()];
+        int[] offsets = readInts(buf, strings.length + 1);
+        int base = buf.position();
+        byte[] bytes = new byte[offsets[strings.length]];
+        buf.get(bytes);
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        buf.position(base + bytes.length);
+        return strings;
+    }
+
+    private static Map<String, RoomData> readRooms(ByteBuffer buf, String[] strings) {
+        int count = buf.getInt();
+        int[] records = readInts(buf, count * ROOM_FIELDS);
+        int[] exitOffsets = readInts(buf, count + 1);
+        int[] exits = readInts(buf, exitOffsets[count] * 2);
+        int[] shopOffsets = readInts(buf, count + 1);
+        int[] shops = readInts(buf, shopOffsets[count] * 2);
+        int[] flagOffsets = readInts(buf, count + 1);
+        int[] flags = readInts(buf, flagOffsets[count]);
+
+        Map<String, RoomData> rooms = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            int r = i * ROOM_FIELDS;
+            RoomData room = new RoomData(str(strings, records[r]), records[r + 1], records[r + 2], records[r + 3],
+                    str(strings, records[r + 4]), str(strings, records[r + 5]));
+            int nulls = records[r + 6];
+            if ((nulls & NULL_EXITS) != 0) {
+                room.setExits(null);
+            }
+            if ((nulls & NULL_SHOP_ITEMS) != 0) {
+                room.setShopItems(null);
+            }
+            for (int e = exitOffsets[i]; e < exitOffsets[i + 1]; e++) {
+                room.getExits().put(str(strings, exits[e * 2]), str(strings, exits[e * 2 + 1]));
+            }
+            for (int s = shopOffsets[i]; s < shopOffsets[i + 1]; s++) {
+                room.getShopItems().add(new ShopItem(str(strings, shops[s * 2]), str(strings, shops[s * 2 + 1])));
+            }
+            if (flagOffsets[i + 1] > flagOffsets[i]) {
+                List<String> roomFlags = new ArrayList<>();
+                for (int f = flagOffsets[i]; f < flagOffsets[i + 1]; f++) {
+                    roomFlags.add(str(strings, flags[f]));
+                }
+                room.setFlags(roomFlags);
+            }
+            rooms.put(room.getRoomId(), room);
+        }
+        return rooms;
+    }
+
+    private static Map<String, NpcData> readNpcs(ByteBuffer buf, String[] strings) {
+        int count = buf.getInt();
+        int[] records = readInts(buf, count * NPC_FIELDS);
+        int[] itemOffsets = readInts(buf, count + 1);
+        int[] items = readInts(buf, itemOffsets[count] * 3);
+
+        Map<String, NpcData> npcs = new TreeMap<>();
+        for (int i = 0; i < count; i++) {
+            int r = i * NPC_FIELDS;
+            NpcData npc = new NpcData();
+            npc.setNpcId(str(strings, records[r]));
+            npc.setNpcName(str(strings, records[r + 1]));
+            npc.setRoomId(str(strings, records[r + 2]));
+            if ((records[r + 3] & NULL_ITEMS) != 0) {
+                npc.setItems(null);
+            }
+            for (int t = itemOffsets[i]; t < itemOffsets[i + 1]; t++) {
+                int salePrice = items[t * 3 + 1];
+                npc.getItems().put(str(strings, items[t * 3]), salePrice == NULL_ITEM ? null
+                        : new NpcData.NpcItemData(str(strings, salePrice), str(strings, items[t * 3 + 2])));
+            }
+            npcs.put(npc.getNpcId(), npc);
+        }
+        return npcs;
+    }
+
+    private static int[] readInts(ByteBuffer buf, int count) {
+        int[] values = new int[count];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + count * Integer.BYTES);
+        return values;
+    }
+
+    private static String str(String[] strings, int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    /**
+     * Writes {@code rooms} and {@code npcs} to {@code path}, stamped as built from JSON
+     * matching {@code roomsStamp} and {@code npcsStamp}. The file is replaced atomically.
+     */
+    static void write(Path path, Map<String, RoomData> rooms, Map<String, NpcData> npcs,
+                      Stamp roomsStamp, Stamp npcsStamp) throws IOException {
+        StringTable strings = new StringTable();
+        IntList roomRecords = new IntList();
+        IntList exitOffsets = new IntList();
+        IntList exits = new IntList();
+        IntList shopOffsets = new IntList();
+        IntList shops = new IntList();
+        IntList flagOffsets = new IntList();
+        IntList flags = new IntList();
+        for (RoomData room : rooms.values()) {
+            roomRecords.add(strings.index(room.getRoomId()));
+            roomRecords.add(room.getMapId());
+            roomRecords.add(room.getXpos());
+            roomRecords.add(room.getYpos());
+            roomRecords.add(strings.index(room.getRoomShort()));
+            roomRecords.add(strings.index(room.getRoomType()));
+            roomRecords.add((room.getExits() == null ? NULL_EXITS : 0)
+                    | (room.getShopItems() == null ? NULL_SHOP_ITEMS : 0));
+            exitOffsets.add(exits.size() / 2);
+            if (room.getExits() != null) {
+                room.getExits().forEach((direction, target) -> {
+                    exits.add(strings.index(direction));
+                    exits.add(strings.index(target));
+                });
+            }
+            shopOffsets.add(shops.size() / 2);
+            if (room.getShopItems() != null) {
+                for (ShopItem item : room.getShopItems()) {
+                    shops.add(strings.index(item.getName()));
+                    // Only a distinct shop name is kept, as in rooms.json.
+                    String shopName = item.getShopName();
+                    shops.add(shopName == null || shopName.equals(item.getName()) ? -1 : strings.index(shopName));
+                }
+            }
+            flagOffsets.add(flags.size());
+            if (room.getFlags() != null) {
+                room.getFlags().forEach(flag -> flags.add(strings.index(flag)));
+            }
+        }
+        exitOffsets.add(exits.size() / 2);
+        shopOffsets.add(shops.size() / 2);
+        flagOffsets.add(flags.size());
+
+        IntList npcRecords = new IntList();
+        IntList itemOffsets = new IntList();
+        IntList items = new IntList();
+        for (NpcData npc : npcs.values()) {
+            npcRecords.add(strings.index(npc.getNpcId()));
+            npcRecords.add(strings.index(npc.getNpcName()));
+            npcRecords.add(strings.index(npc.getRoomId()));
+            npcRecords.add(npc.getItems() == null ? NULL_ITEMS : 0);
+            itemOffsets.add(items.size() / 3);
+            if (npc.getItems() != null) {
+                npc.getItems().forEach((name, item) -> {
+                    items.add(strings.index(name));
+                    items.add(item == null ? NULL_ITEM : strings.index(item.getSalePrice()));
+                    items.add(item == null ? -1 : strings.index(item.getSpecialNote()));
+                });
+            }
+        }
+        itemOffsets.add(items.size() / 3);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(roomsStamp.length());
+        out.writeInt(roomsStamp.crc());
+        out.writeLong(npcsStamp.length());
+        out.writeInt(npcsStamp.crc());
+        strings.writeTo(out);
+        out.writeInt(rooms.size());
+        for (IntList list : List.of(roomRecords, exitOffsets, exits, shopOffsets, shops, flagOffsets, flags)) {
+            list.writeTo(out);
+        }
+        out.writeInt(npcs.size());
+        for (IntList list : List.of(npcRecords, itemOffsets, items)) {
+            list.writeTo(out);
+        }
+        out.flush();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(tmp, bytes.toByteArray());
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+
+        int index(String value) {
+            if (value == null) {
+                return -1;
+            }
+            return indexes.computeIfAbsent(value, v -> {
+                encoded.add(v.getBytes(StandardCharsets.UTF_8));
+                return encoded.size() - 1;
+            });
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeInt(encoded.size());
+            int offset = 0;
+            out.writeInt(offset);
+            for (byte[] value : encoded) {
+                offset += value.length;
+                out.writeInt(offset);
+            }
+            for (byte[] value : encoded) {
+                out.write(value);
+            }
+        }
+    }
+
+    private static final class IntList {
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            for (int i = 0; i < size; i++) {
+                out.writeInt(values[i]);
+            }
+        }
+    }
+}
@@ -25,8 +25,11 @@ import com.danavalerie.matrixmudrelay.config.UiConfig;
 import com.danavalerie.matrixmudrelay.core.data.RoomData;
 import com.danavalerie.matrixmudrelay.core.data.ShopItem;
 import com.danavalerie.matrixmudrelay.mud.CurrentRoomInfo;
+import com.danavalerie.matrixmudrelay.mud.Gmcp;
 import com.danavalerie.matrixmudrelay.mud.MudClient;
+import com.danavalerie.matrixmudrelay.mud.RttHistogram;
 import com.danavalerie.matrixmudrelay.mud.TelnetDecoder;
+import com.danavalerie.matrixmudrelay.util.AsyncLineWriter;
 import com.danavalerie.matrixmudrelay.util.DiscworldTimeUtils;
 import com.danavalerie.matrixmudrelay.util.GrammarUtils;
 import com.danavalerie.matrixmudrelay.util.PasswordPreferences;
@@ -35,12 +38,10 @@ import com.danavalerie.matrixmudrelay.util.TeleportBannerUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.swing.SwingUtilities;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -117,12 +118,14 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
     private List<RoomMapService.ItemSearchResult> lastItemSearchResults = List.of();
     private volatile String lastRoomId = null;
     private volatile String lastRoomName = null;
+    private CurrentRoomInfo.RoomEnvironment lastRoomEnvironment = null;
     private String currentCharacterName = null;
     private boolean isRestoring = false;
     private String lastSpeedwalkTargetRoomId = null;
     private List<String> lastSpeedwalkPostCommands = null;
     private String uuLibraryRestoredForChar = null;
     private final Runnable uuLibraryListener = this::saveUULibraryState;
+    private AsyncLineWriter sunLog;
 
     private record SpeedwalkPlan(List<String> exits, int totalSteps, String lastRoomId, boolean truncated) {
     }
@@ -178,6 +181,11 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
 
     public void shutdown() {
         UULibraryService.getInstance().removeListener(uuLibraryListener);
+        synchronized (this) {
+            if (sunLog != null) {
+                sunLog.close();
+            }
+        }
     }
 
     public void handleInput(String input) {
@@ -280,17 +288,30 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
             return;
         }
         if (SUN_MESSAGES.contains(line)) {
-            try {
-                ZonedDateTime now = ZonedDateTime.now(ZoneId.of("GMT"));
-                String timestamp = now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")) + " GMT";
-                String dwTime = DiscworldTimeUtils.getCurrentDiscworldTime();
-                String logEntry = timestamp + " | " + dwTime + " | " + line + System.lineSeparator();
-                String pathStr = System.getProperty("SUNLOG_PATH", "sun.log");
-                Files.write(Paths.get(pathStr), logEntry.getBytes(StandardCharsets.UTF_8),
-                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                log.error("Failed to write to " + System.getProperty("SUNLOG_PATH", "sun.log"), e);
+            ZonedDateTime now = ZonedDateTime.now(ZoneId.of("GMT"));
+            String timestamp = now.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS")) + " GMT";
+            String dwTime = DiscworldTimeUtils.getCurrentDiscworldTime();
+            sunLogWriter().append(timestamp + " | " + dwTime + " | " + line);
+        }
+    }
+
+    private synchronized AsyncLineWriter sunLogWriter() {
+        Path path = Paths.get(System.getProperty("SUNLOG_PATH", "sun.log"));
+        if (sunLog == null || !sunLog.path().equals(path)) {
+            if (sunLog != null) {
+                sunLog.close();
             }
+            sunLog = new AsyncLineWriter(path);
+        }
+        return sunLog;
+    }
+
+    /**
+     * Blocks until queued sun log lines are written. For tests.
+     */
+    synchronized void awaitSunLog() {
+        if (sunLog != null) {
+            sunLog.awaitIdle();
         }
     }
 
@@ -381,16 +402,17 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
                 }
             }
         }
-        output.updateRoomEnvironment(snapshot.roomEnvironment());
-        if (message == null) {
-            return;
+        CurrentRoomInfo.RoomEnvironment environment = snapshot.roomEnvironment();
+        if (environment != lastRoomEnvironment) {
+            lastRoomEnvironment = environment;
+            output.updateRoomEnvironment(environment);
         }
-        String command = message.command();
-        if (command == null) {
+        if (message == null || message.command() == null) {
             return;
         }
-        if ("char.vitals".equalsIgnoreCase(command.trim()) || "char.info".equalsIgnoreCase(command.trim())) {
-            StatsHudRenderer.StatsHudData data = StatsHudRenderer.extract(mud.getCurrentRoomSnapshot());
+        String module = message.module();
+        if (Gmcp.CHAR_VITALS.equals(module) || Gmcp.CHAR_INFO.equals(module)) {
+            StatsHudRenderer.StatsHudData data = StatsHudRenderer.extract(snapshot);
             output.updateStats(data);
         }
     }
@@ -427,6 +449,16 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
 
     private void handleStatus() {
         output.appendSystem("Status: " + (mud.isConnected() ? "CONNECTED" : "DISCONNECTED"));
+        MudClient.OutboundStats stats = mud.getOutboundStats();
+        output.appendSystem("Outbound: " + stats.queued() + " queued, " + stats.inFlight() + " awaiting prompt"
+                + ", echo " + formatLatency(stats.lastEchoMs()) + " (avg " + formatLatency(stats.smoothedEchoMs()) + ")");
+        RttHistogram.Summary rtt = mud.getRttSummary();
+        output.appendSystem("Round trip: " + formatLatency(rtt.lastMs()) + " last, p50 " + formatLatency(rtt.p50Ms())
+                + ", p99 " + formatLatency(rtt.p99Ms()) + " over " + rtt.samples() + " commands");
+    }
+
+    private static String formatLatency(long ms) {
+        return ms < 0 ? "n/a" : ms + "ms";
     }
 
     private void handleInfo() {
@@ -580,9 +612,74 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
             handleReset();
             return;
         }
+        if ("record".equals(subcommand)) {
+            handleRecord(query);
+            return;
+        }
+        if ("replay".equals(subcommand)) {
+            handleReplay(query);
+            return;
+        }
         output.appendSystem("Unknown command. Type /help for help.");
     }
 
+    private void handleRecord(String query) {
+        if ("stop".equalsIgnoreCase(query)) {
+            Path stopped = mud.stopRecording();
+            output.appendSystem(stopped == null ? "Not recording." : "Recording saved to " + stopped + ".");
+            return;
+        }
+        Path file = query.isEmpty()
+                ? Paths.get("recordings", "session-"
+                        + ZonedDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".dwrec")
+                : Paths.get(query);
+        try {
+            mud.startRecording(file);
+            output.appendSystem("Recording inbound MUD data to " + file + ". Use /record stop to finish.");
+        } catch (IOException e) {
+            log.warn("Failed to start recording {}", file, e);
+            output.appendSystem("Error: Could not start recording: " + e.getMessage());
+        }
+    }
+
+    private void handleReplay(String query) {
+        if ("stop".equalsIgnoreCase(query)) {
+            if (!mud.isReplaying()) {
+                output.appendSystem("No replay is running.");
+                return;
+            }
+            mud.stopReplay();
+            return;
+        }
+        if (query.isEmpty()) {
+            output.appendSystem("Usage: /replay <file> [fast] or /replay stop");
+            return;
+        }
+        boolean fast = false;
+        String fileName = query;
+        String lowerQuery = query.toLowerCase(Locale.ROOT);
+        if (lowerQuery.endsWith(" fast")) {
+            fast = true;
+            fileName = query.substring(0, query.length() - 5).trim();
+        }
+        try {
+            mud.replay(Paths.get(fileName), !fast).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    output.appendSystem("Replay failed: " + error.getMessage());
+                    return;
+                }
+                long elapsedMs = Math.max(1, result.elapsedMs());
+                output.appendSystem(String.format(Locale.ROOT,
+                        "Replay %s: %d blocks, %d bytes in %d ms (%.1f KiB/s).",
+                        result.stopped() ? "stopped" : "finished", result.blocks(), result.bytes(),
+                        result.elapsedMs(), result.bytes() / 1024.0 * 1000.0 / elapsedMs));
+            }));
+            output.appendSystem("Replaying " + fileName + (fast ? " as fast as possible." : " in real time."));
+        } catch (IOException | IllegalStateException e) {
+            output.appendSystem("Error: Could not start replay: " + e.getMessage());
+        }
+    }
+
     private void handleRestart() {
         if (lastSpeedwalkTargetRoomId == null) {
             output.appendSystem("Error: No previous speedwalk available to restart.");
@@ -627,7 +724,7 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
         sb.append("  /restart        - Repeat last speedwalk\n");
         sb.append("  /connect        - Connect to the MUD\n");
         sb.append("  /disconnect     - Disconnect from the MUD\n");
-        sb.append("  /status         - Show connection status\n");
+        sb.append("  /status         - Show connection status, outbound queue and latency metrics\n");
         sb.append("  /info           - Show detailed room and character info (GMCP)\n");
         sb.append("  /room <query>   - Search for rooms by name\n");
         sb.append("  /npc <query>    - Search for NPCs by name\n");
@@ -641,6 +738,8 @@ public final class MudCommandProcessor implements MudClient.MudGmcpListener, Mud
         sb.append("  /tp             - Enable/disable teleport-assisted routing\n");
         sb.append("  /notp           - Disable teleport-assisted routing\n");
         sb.append("  /reset          - Reset MUD terminal options\n");
+        sb.append("  /record [file|stop] - Record raw MUD output for later replay\n");
+        sb.append("  /replay <file> [fast] - Replay a recording while disconnected (/replay stop to end)\n");
         sb.append("\nStarting a line with // will send a single / to the MUD.");
         output.appendSystem(sb.toString());
     }
@@ -0,0 +1,310 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import com.danavalerie.matrixmudrelay.util.AnsiColorParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * The one place MUD output is parsed. Raw chunks go through the ANSI/MXP parser, which
+ * also decodes entities, once; listeners get the styled text as it arrives, each completed
+ * line, and a call at the end of every chunk, in registration order. Not thread-safe:
+ * feed it from one thread (the EDT in the client).
+ * <p>
+ * Gags apply to display listeners only. While gags are set, each line's text is held back
+ * from them until its newline and checked first, so a gagged line never reaches the
+ * display; every other listener still gets every line as it arrives. Text still waiting
+ * for its newline is released by {@link #flushHeldText()}, which the owner calls once
+ * the output pauses, so that prompts show; a line released that way is no longer gagged.
+ */
+public final class MudLineAssembler {
+    private static final Logger log = LoggerFactory.getLogger(MudLineAssembler.class);
+
+    /**
+     * A completed line without its newline. Runs are given as parallel arrays of end
+     * offsets into {@link #text()} and parser styles (see {@link #color(int)}).
+     */
+    public record MudLine(String text, String trimmed, int[] runEnds, int[] runStyles) {
+        public int runCount() {
+            return runEnds.length;
+        }
+
+        public int runStart(int run) {
+            return run == 0 ? 0 : runEnds[run - 1];
+        }
+    }
+
+    public interface Listener {
+        /**
+         * Styled, entity-decoded text as it arrives, newlines included. Called before
+         * {@link #onLine} for the line that the text completes.
+         */
+        default void onText(char[] chars, int start, int end, int style) {
+        }
+
+        void onLine(MudLine line);
+
+        /**
+         * Called once after each fed chunk, so that listeners can batch expensive work.
+         */
+        default void onChunkEnd() {
+        }
+
+        /**
+         * Display listeners only: the line last passed to {@link #onLine} has arrived again
+         * under a collapse-repeats gag and was not shown; {@code count} copies have now been
+         * seen in a row.
+         */
+        default void onRepeat(MudLine line, int count) {
+        }
+    }
+
+    private enum Gag { DROP, COLLAPSE }
+
+    private static final char[] NEWLINE = {'\n'};
+
+    private final AnsiColorParser parser = new AnsiColorParser();
+    private final AnsiColorParser.Sink parsedText = this::emit;
+    private final List<Listener> listeners = new ArrayList<>();
+    private Listener[] dispatch = new Listener[0];
+    private final List<Listener> displayListeners = new ArrayList<>();
+    private Listener[] display = new Listener[0];
+    private final StringBuilder line = new StringBuilder();
+    private int[] runEnds = new int[16];
+    private int[] runStyles = new int[16];
+    private int runCount;
+    private TriggerEngine<Gag> gags = new TriggerEngine<>(List.of());
+    // Characters of the current line already passed to the display; a line is held while this is 0.
+    private int emitted;
+    // The text of the last line emitted under a collapse-repeats gag, while nothing else has
+    // been emitted since, and how many copies of it have been seen.
+    private String collapseText;
+    private int collapseCount;
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        dispatch = listeners.toArray(new Listener[0]);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+        dispatch = listeners.toArray(new Listener[0]);
+        displayListeners.remove(listener);
+        display = displayListeners.toArray(new Listener[0]);
+    }
+
+    /**
+     * Adds a listener that shows the output, and so sees only what the gags let through.
+     * Display listeners are called before the others, so that anything the others print
+     * in response to a line shows after it.
+     */
+    public void addDisplayListener(Listener listener) {
+        displayListeners.add(listener);
+        display = displayListeners.toArray(new Listener[0]);
+    }
+
+    public void feed(CharSequence text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        parser.feed(text, parsedText);
+        dispatchChunkEnd(display);
+        dispatchChunkEnd(dispatch);
+    }
+
+    /**
+     * Replaces the gags. Text held for the old ones is released first.
+     *
+     * @param disabledListener told when a gag is disabled for being too slow
+     */
+    public void setGags(List<ClientConfig.Gag> gags, Consumer<Pattern> disabledListener) {
+        flushHeldText();
+        List<TriggerEngine.Rule<Gag>> rules = new ArrayList<>();
+        for (ClientConfig.Gag gag : gags) {
+            try {
+                rules.add(new TriggerEngine.Rule<>(Pattern.compile(gag.pattern),
+                        gag.collapseRepeats ? Gag.COLLAPSE : Gag.DROP));
+            } catch (Exception e) {
+                log.warn("Error parsing gag: {} - {}", gag.pattern, e.getMessage());
+            }
+        }
+        this.gags = new TriggerEngine<>(rules, this.gags, disabledListener);
+    }
+
+    /**
+     * @return whether part of a line is being held back from the display for the gags
+     */
+    public boolean hasHeldText() {
+        return emitted == 0 && line.length() > 0;
+    }
+
+    /**
+     * Releases the held part of the current line to the display listeners, followed by a
+     * chunk end. The rest of that line is then shown as it arrives, without gags.
+     */
+    public void flushHeldText() {
+        if (!hasHeldText()) {
+            return;
+        }
+        emitHeld();
+        collapseText = null;
+        dispatchChunkEnd(display);
+    }
+
+    public Color color(int style) {
+        return parser.color(style);
+    }
+
+    public static boolean isBold(int style) {
+        return AnsiColorParser.isBold(style);
+    }
+
+    private void emit(char[] chars, int start, int end, int style) {
+        int index = start;
+        while (index < end) {
+            int newline = index;
+            while (newline < end && chars[newline] != '\n') {
+                newline++;
+            }
+            boolean complete = newline < end;
+            boolean hold = emitted == 0 && !gags.isEmpty();
+            addRun(chars, index, newline, style);
+            int textEnd = complete ? newline + 1 : end;
+            if (!hold) {
+                dispatchText(display, chars, index, textEnd, style);
+                emitted = line.length();
+            }
+            dispatchText(dispatch, chars, index, textEnd, style);
+            if (!complete) {
+                break;
+            }
+            completeLine(hold, style);
+            index = textEnd;
+        }
+    }
+
+    private static void dispatchText(Listener[] targets, char[] chars, int start, int end, int style) {
+        for (Listener listener : targets) {
+            try {
+                listener.onText(chars, start, end, style);
+            } catch (RuntimeException e) {
+                log.warn("Line listener failed on text", e);
+            }
+        }
+    }
+
+    private void emitHeld() {
+        char[] chars = new char[line.length()];
+        line.getChars(0, chars.length, chars, 0);
+        for (int run = 0; run < runCount; run++) {
+            dispatchText(display, chars, run == 0 ? 0 : runEnds[run - 1], runEnds[run], runStyles[run]);
+        }
+        emitted = chars.length;
+    }
+
+    private void addRun(char[] chars, int start, int end, int style) {
+        if (start == end) {
+            return;
+        }
+        line.append(chars, start, end - start);
+        if (runCount > 0 && runStyles[runCount - 1] == style) {
+            runEnds[runCount - 1] = line.length();
+            return;
+        }
+        if (runCount == runEnds.length) {
+            runEnds = Arrays.copyOf(runEnds, runCount * 2);
+            runStyles = Arrays.copyOf(runStyles, runCount * 2);
+        }
+        runEnds[runCount] = line.length();
+        runStyles[runCount] = style;
+        runCount++;
+    }
+
+    private void completeLine(boolean held, int newlineStyle) {
+        String text = line.toString();
+        MudLine completed = new MudLine(text, text.strip(),
+                Arrays.copyOf(runEnds, runCount), Arrays.copyOf(runStyles, runCount));
+        Gag gag = held ? gag(completed) : null;
+        boolean repeat = gag == Gag.COLLAPSE && text.equals(collapseText);
+        if (held && gag != Gag.DROP && !repeat) {
+            emitHeld();
+            dispatchText(display, NEWLINE, 0, 1, newlineStyle);
+        }
+        resetLine();
+        if (repeat) {
+            collapseCount++;
+            for (Listener listener : display) {
+                try {
+                    listener.onRepeat(completed, collapseCount);
+                } catch (RuntimeException e) {
+                    log.warn("Line listener failed on repeat of: {}", completed.trimmed(), e);
+                }
+            }
+        } else if (gag != Gag.DROP) {
+            collapseText = gag == Gag.COLLAPSE ? text : null;
+            collapseCount = 1;
+            dispatchLine(display, completed);
+        }
+        dispatchLine(dispatch, completed);
+    }
+
+    private static void dispatchLine(Listener[] targets, MudLine completed) {
+        for (Listener listener : targets) {
+            try {
+                listener.onLine(completed);
+            } catch (RuntimeException e) {
+                log.warn("Line listener failed on: {}", completed.trimmed(), e);
+            }
+        }
+    }
+
+    private static void dispatchChunkEnd(Listener[] targets) {
+        for (Listener listener : targets) {
+            try {
+                listener.onChunkEnd();
+            } catch (RuntimeException e) {
+                log.warn("Line listener failed at end of chunk", e);
+            }
+        }
+    }
+
+    private Gag gag(MudLine completed) {
+        try {
+            return gags.match(completed.trimmed());
+        } catch (RuntimeException | StackOverflowError e) {
+            log.warn("Gag matching failed on: {}", completed.trimmed(), e);
+            return null;
+        }
+    }
+
+    private void resetLine() {
+        line.setLength(0);
+        runCount = 0;
+        emitted = 0;
+    }
+}
@@ -18,8 +18,10 @@
 
 package com.danavalerie.matrixmudrelay.core;
 
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
 import com.danavalerie.matrixmudrelay.core.data.RoomData;
 import com.danavalerie.matrixmudrelay.core.data.ShopItem;
+import com.danavalerie.matrixmudrelay.util.TrigramIndex;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
@@ -34,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -57,10 +60,21 @@ public class RoomMapService {
     private final MapDataService dataService;
     private final Map<String, Optional<BufferedImage>> backgroundCache = new HashMap<>();
     private final Map<String, MapImage> mapByIdCache = new HashMap<>();
+    private final RoomSpatialIndex spatialIndex;
+    private final ItemSourceIndex itemSources;
+    // Name search indexes, built on first use; the room and NPC ones are dropped when a
+    // room's name or map changes, since both are part of their result order.
+    private TrigramIndex<RoomData> roomNameIndex;
+    private TrigramIndex<NpcData> npcNameIndex;
+    private TrigramIndex<String> itemNameIndex;
     private BaseImageCache baseImageCache;
 
     public RoomMapService(MapDataService dataService) {
         this.dataService = dataService;
+        this.spatialIndex = new RoomSpatialIndex(dataService != null ? dataService.getRooms().values() : List.of());
+        this.itemSources = dataService != null
+                ? new ItemSourceIndex(dataService.getRooms().values(), dataService.getNpcs() != null ? dataService.getNpcs().values() : null)
+                : new ItemSourceIndex();
     }
 
     private RoomRecord toRecord(RoomData data) {
@@ -69,8 +83,7 @@ public class RoomMapService {
     }
 
     private Map<String, RoomRecord> loadRoomsInArea(int mapId, int minX, int maxX, int minY, int maxY) {
-        return dataService.getRooms().values().stream()
-                .filter(r -> r.getMapId() == mapId && r.getXpos() >= minX && r.getXpos() <= maxX && r.getYpos() >= minY && r.getYpos() <= maxY)
+        return spatialIndex.inArea(mapId, minX, maxX, minY, maxY).stream()
                 .collect(Collectors.toMap(RoomData::getRoomId, this::toRecord));
     }
 
@@ -327,11 +340,8 @@ public class RoomMapService {
         if (normalized.isBlank()) {
             throw new MapLookupException("Search term cannot be blank.");
         }
-        return dataService.getRooms().values().stream()
-                .filter(r -> r.getRoomShort().toLowerCase().contains(normalized))
+        return roomNameIndex().search(normalized, limit).stream()
                 .map(r -> new RoomSearchResult(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort(), r.getRoomType(), null, r.hasFlag("restricted")))
-                .sorted(Comparator.comparing(RoomSearchResult::roomShort).thenComparing(RoomSearchResult::mapId).thenComparing(RoomSearchResult::roomId))
-                .limit(limit)
                 .collect(Collectors.toList());
     }
 
@@ -350,16 +360,11 @@ public class RoomMapService {
             throw new MapLookupException("Search term cannot be blank.");
         }
         String trimmed = term.trim().toLowerCase();
-        return dataService.getNpcs().values().stream()
-                .filter(n -> n.getNpcName().toLowerCase().contains(trimmed))
+        return npcNameIndex().search(trimmed, limit).stream()
                 .map(n -> {
                     RoomData r = dataService.getRoom(n.getRoomId());
-                    if (r == null) return null;
                     return new NpcSearchResult(n.getNpcId(), n.getNpcName(), r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort(), r.getRoomType());
                 })
-                .filter(java.util.Objects::nonNull)
-                .sorted(Comparator.comparing(NpcSearchResult::npcName).thenComparing(NpcSearchResult::mapId).thenComparing(NpcSearchResult::roomId))
-                .limit(limit)
                 .collect(Collectors.toList());
     }
 
@@ -368,9 +373,9 @@ public class RoomMapService {
             throw new MapLookupException("Search term cannot be blank.");
         }
         String trimmed = term.trim().toLowerCase();
-        return collectItemSearchResults(dataService.getItems().values().stream()
-                .map(i -> i.getItemName())
-                .filter(name -> name != null && name.toLowerCase().contains(trimmed)), limit);
+        return itemNameIndex().search(trimmed, limit).stream()
+                .map(ItemSearchResult::new)
+                .collect(Collectors.toList());
     }
 
     public List<ItemSearchResult> searchItemsByExactName(String term, int limit) throws MapLookupException {
@@ -383,6 +388,39 @@ public class RoomMapService {
                 .filter(name -> name != null && name.equalsIgnoreCase(trimmed)), limit);
     }
 
+    private synchronized TrigramIndex<RoomData> roomNameIndex() {
+        if (roomNameIndex == null) {
+            roomNameIndex = TrigramIndex.sorted(new ArrayList<>(dataService.getRooms().values()), RoomData::getRoomShort,
+                    Comparator.comparing(RoomData::getRoomShort, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                            .thenComparing(RoomData::getMapId).thenComparing(RoomData::getRoomId));
+        }
+        return roomNameIndex;
+    }
+
+    private synchronized TrigramIndex<NpcData> npcNameIndex() {
+        if (npcNameIndex == null) {
+            List<NpcData> placed = dataService.getNpcs().values().stream()
+                    .filter(n -> n.getNpcName() != null && dataService.getRoom(n.getRoomId()) != null)
+                    .collect(Collectors.toList());
+            npcNameIndex = TrigramIndex.sorted(placed, NpcData::getNpcName,
+                    Comparator.comparing(NpcData::getNpcName)
+                            .thenComparing(n -> dataService.getRoom(n.getRoomId()).getMapId())
+                            .thenComparing(NpcData::getRoomId));
+        }
+        return npcNameIndex;
+    }
+
+    private synchronized TrigramIndex<String> itemNameIndex() {
+        if (itemNameIndex == null) {
+            List<String> names = collectItemSearchResults(dataService.getItems().values().stream()
+                    .map(i -> i.getItemName()), Integer.MAX_VALUE).stream()
+                    .map(ItemSearchResult::itemName)
+                    .collect(Collectors.toList());
+            itemNameIndex = new TrigramIndex<>(names, name -> name);
+        }
+        return itemNameIndex;
+    }
+
     private static List<ItemSearchResult> collectItemSearchResults(Stream<String> itemNames, int limit) {
         if (limit <= 0) {
             return List.of();
@@ -401,23 +439,26 @@ public class RoomMapService {
         if (itemName == null || itemName.isBlank()) {
             throw new MapLookupException("Item name cannot be blank.");
         }
-        String trimmed = itemName.trim().toLowerCase();
         List<RoomSearchResult> results = new ArrayList<>();
 
         // Search in shops
-        dataService.getRooms().values().stream()
-                .filter(r -> r.getShopItems().stream().anyMatch(si -> si.getName().equalsIgnoreCase(trimmed)))
-                .forEach(r -> results.add(new RoomSearchResult(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort(), r.getRoomType(), "Shop", r.hasFlag("restricted"))));
+        Set<String> shopRooms = new HashSet<>();
+        for (ItemSourceIndex.ShopSource source : itemSources.shops(itemName)) {
+            RoomData r = source.room();
+            if (shopRooms.add(r.getRoomId())) {
+                results.add(new RoomSearchResult(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort(), r.getRoomType(), "Shop", r.hasFlag("restricted")));
+            }
+        }
 
         // Search in NPCs
-        dataService.getNpcs().values().stream()
-                .filter(n -> n.getItems().keySet().stream().anyMatch(i -> i.equalsIgnoreCase(trimmed)))
-                .forEach(n -> {
-                    RoomData r = dataService.getRoom(n.getRoomId());
-                    if (r != null) {
-                        results.add(new RoomSearchResult(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort(), r.getRoomType(), "NPC: " + n.getNpcName(), r.hasFlag("restricted")));
-                    }
-                });
+        Set<NpcData> npcs = new HashSet<>();
+        for (ItemSourceIndex.NpcSource source : itemSources.npcs(itemName)) {
+            NpcData n = source.npc();
+            RoomData r = dataService.getRoom(n.getRoomId());
+            if (r != null && npcs.add(n)) {
+                results.add(new RoomSearchResult(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort(), r.getRoomType(), "NPC: " + n.getNpcName(), r.hasFlag("restricted")));
+            }
+        }
 
         return results.stream()
                 .sorted((a, b) -> {
@@ -450,11 +491,8 @@ public class RoomMapService {
 
     public List<ShopItem> findShopItemsGlobally(String itemName) {
         if (itemName == null) return List.of();
-        String trimmed = itemName.trim().toLowerCase();
-        return dataService.getRooms().values().stream()
-                .filter(r -> r.getShopItems() != null)
-                .flatMap(r -> r.getShopItems().stream())
-                .filter(si -> si.getName().equalsIgnoreCase(trimmed))
+        return itemSources.shops(itemName).stream()
+                .map(ItemSourceIndex.ShopSource::item)
                 .collect(Collectors.toList());
     }
 
@@ -477,9 +515,13 @@ public class RoomMapService {
             String trimmed = roomShort.trim();
             room.setRoomShort(trimmed.isEmpty() ? null : trimmed);
         }
+        int oldMapId = room.getMapId();
+        int oldX = room.getXpos();
+        int oldY = room.getYpos();
         room.setMapId(mapId);
         room.setXpos(xpos);
         room.setYpos(ypos);
+        spatialIndex.move(room, oldMapId, oldX, oldY);
         if (exits != null) {
             Map<String, String> normalizedExits = new TreeMap<>();
             for (Map.Entry<String, String> entry : exits.entrySet()) {
@@ -507,6 +549,10 @@ public class RoomMapService {
             updatedFlags.add(RoomData.FLAG_NO_TELEPORT);
         }
         room.setFlags(updatedFlags.isEmpty() ? null : updatedFlags);
+        synchronized (this) {
+            roomNameIndex = null;
+            npcNameIndex = null;
+        }
         dataService.saveAll();
         return true;
     }
@@ -668,19 +714,13 @@ public class RoomMapService {
     }
 
     public String findRoomIdByCoordinates(int mapId, int x, int y) {
-        return dataService.getRooms().values().stream()
-                .filter(r -> r.getMapId() == mapId && r.getXpos() == x && r.getYpos() == y)
-                .map(RoomData::getRoomId)
-                .findFirst()
-                .orElse(null);
+        RoomData room = spatialIndex.at(mapId, x, y);
+        return room == null ? null : room.getRoomId();
     }
 
     public RoomLocation findNearestRoom(int mapId, int x, int y) {
-        return dataService.getRooms().values().stream()
-                .filter(r -> r.getMapId() == mapId)
-                .min(Comparator.comparingDouble(r -> Math.hypot(r.getXpos() - x, r.getYpos() - y)))
-                .map(r -> new RoomLocation(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort()))
-                .orElse(null);
+        RoomData r = spatialIndex.nearest(mapId, x, y);
+        return r == null ? null : new RoomLocation(r.getRoomId(), r.getMapId(), r.getXpos(), r.getYpos(), r.getRoomShort());
     }
 
     private RoomRecord loadRoom(String roomId) {
@@ -13,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -37,9 +38,8 @@ public class RoomNoteService {
         if (!Files.exists(storagePath)) {
             return;
         }
-        try {
-            String json = Files.readString(storagePath);
-            JsonElement element = JsonParser.parseString(json);
+        try (Reader reader = Files.newBufferedReader(storagePath)) {
+            JsonElement element = JsonParser.parseReader(reader);
             if (element.isJsonObject()) {
                 JsonObject obj = element.getAsJsonObject();
                 for (Map.Entry<String, JsonElement> entry : obj.entrySet()) {
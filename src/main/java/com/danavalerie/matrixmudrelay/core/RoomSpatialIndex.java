@@ -0,0 +1,176 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over room coordinates, one per map. Exact lookups read a single cell;
+ * nearest-room lookups search rings of cells outward from the point and stop as soon as
+ * no unvisited cell can hold a closer room. Ties go to the lowest room id, as in a scan
+ * of the sorted room map. Rooms that move must be re-filed with {@link #move}.
+ */
+final class RoomSpatialIndex {
+    static final int CELL_SIZE = 16;
+
+    private static final class Grid {
+        final Map<Long, List<RoomData>> cells = new HashMap<>();
+        int minCx = Integer.MAX_VALUE;
+        int maxCx = Integer.MIN_VALUE;
+        int minCy = Integer.MAX_VALUE;
+        int maxCy = Integer.MIN_VALUE;
+    }
+
+    private final Map<Integer, Grid> grids = new HashMap<>();
+
+    RoomSpatialIndex(Collection<RoomData> rooms) {
+        for (RoomData room : rooms) {
+            add(room);
+        }
+    }
+
+    synchronized void add(RoomData room) {
+        Grid grid = grids.computeIfAbsent(room.getMapId(), id -> new Grid());
+        int cx = cell(room.getXpos());
+        int cy = cell(room.getYpos());
+        grid.cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>(4)).add(room);
+        grid.minCx = Math.min(grid.minCx, cx);
+        grid.maxCx = Math.max(grid.maxCx, cx);
+        grid.minCy = Math.min(grid.minCy, cy);
+        grid.maxCy = Math.max(grid.maxCy, cy);
+    }
+
+    /**
+     * Re-files {@code room}, which was filed at the old position and now holds its new one.
+     */
+    synchronized void move(RoomData room, int oldMapId, int oldX, int oldY) {
+        Grid grid = grids.get(oldMapId);
+        if (grid != null) {
+            long key = key(cell(oldX), cell(oldY));
+            List<RoomData> cell = grid.cells.get(key);
+            if (cell != null) {
+                cell.remove(room);
+                if (cell.isEmpty()) {
+                    grid.cells.remove(key);
+                }
+            }
+        }
+        add(room);
+    }
+
+    synchronized RoomData at(int mapId, int x, int y) {
+        Grid grid = grids.get(mapId);
+        if (grid == null) {
+            return null;
+        }
+        RoomData best = null;
+        for (RoomData room : grid.cells.getOrDefault(key(cell(x), cell(y)), List.of())) {
+            if (room.getXpos() == x && room.getYpos() == y && (best == null || isLowerId(room, best))) {
+                best = room;
+            }
+        }
+        return best;
+    }
+
+    synchronized RoomData nearest(int mapId, int x, int y) {
+        Grid grid = grids.get(mapId);
+        if (grid == null || grid.cells.isEmpty()) {
+            return null;
+        }
+        int cx = cell(x);
+        int cy = cell(y);
+        int firstRing = Math.max(Math.max(grid.minCx - cx, cx - grid.maxCx), Math.max(grid.minCy - cy, cy - grid.maxCy));
+        int lastRing = Math.max(Math.max(cx - grid.minCx, grid.maxCx - cx), Math.max(cy - grid.minCy, grid.maxCy - cy));
+        RoomData best = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (int ring = Math.max(0, firstRing); ring <= lastRing; ring++) {
+            // Every room in this ring is at least (ring - 1) cells away.
+            long reach = (long) (ring - 1) * CELL_SIZE;
+            if (best != null && ring > 0 && bestDistance < reach * reach) {
+                break;
+            }
+            for (int dx = -ring; dx <= ring; dx++) {
+                int step = Math.abs(dx) == ring ? 1 : 2 * ring;
+                for (int dy = -ring; dy <= ring; dy += Math.max(1, step)) {
+                    List<RoomData> cell = grid.cells.get(key(cx + dx, cy + dy));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (RoomData room : cell) {
+                        long ddx = room.getXpos() - x;
+                        long ddy = room.getYpos() - y;
+                        long distance = ddx * ddx + ddy * ddy;
+                        if (distance < bestDistance || (distance == bestDistance && isLowerId(room, best))) {
+                            best = room;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the rooms with {@code minX <= x <= maxX} and {@code minY <= y <= maxY}
+     */
+    synchronized List<RoomData> inArea(int mapId, int minX, int maxX, int minY, int maxY) {
+        Grid grid = grids.get(mapId);
+        List<RoomData> result = new ArrayList<>();
+        if (grid == null) {
+            return result;
+        }
+        int fromCx = Math.max(cell(minX), grid.minCx);
+        int toCx = Math.min(cell(maxX), grid.maxCx);
+        int fromCy = Math.max(cell(minY), grid.minCy);
+        int toCy = Math.min(cell(maxY), grid.maxCy);
+        for (int cx = fromCx; cx <= toCx; cx++) {
+            for (int cy = fromCy; cy <= toCy; cy++) {
+                List<RoomData> cell = grid.cells.get(key(cx, cy));
+                if (cell == null) {
+                    continue;
+                }
+                for (RoomData room : cell) {
+                    if (room.getXpos() >= minX && room.getXpos() <= maxX && room.getYpos() >= minY && room.getYpos() <= maxY) {
+                        result.add(room);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isLowerId(RoomData room, RoomData than) {
+        return than == null || room.getRoomId().compareTo(than.getRoomId()) < 0;
+    }
+
+    private static int cell(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
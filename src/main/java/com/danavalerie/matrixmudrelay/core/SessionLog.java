@@ -0,0 +1,582 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Searchable on-disk record of every MUD line. Lines are queued from the EDT and written
+ * in batches by a background thread to segment files of {@value #SEGMENT_LINES} lines,
+ * one {@code <epoch ms>\t<text>} per line. A full segment is gzipped and its distinct
+ * words are added to an inverted index (word to segments, plus each segment's time
+ * range), persisted as {@value #INDEX_FILE}. A search only decompresses the segments
+ * that contain every query word and overlap the time range.
+ */
+public final class SessionLog implements MudLineAssembler.Listener, AutoCloseable {
+    static final int SEGMENT_LINES = 20_000;
+    static final String INDEX_FILE = "index.tsv";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int BATCH_LIMIT = 4096;
+    private static final Object CLOSE = new Object();
+
+    private static final Logger log = LoggerFactory.getLogger(SessionLog.class);
+
+    public record Hit(long timeMillis, String line) {
+    }
+
+    private record Entry(long timeMillis, String line) {
+    }
+
+    private record Segment(Path path, long firstMillis, long lastMillis) {
+        boolean overlaps(long fromMillis, long toMillis) {
+            return lastMillis >= fromMillis && firstMillis <= toMillis;
+        }
+    }
+
+    private final Path directory;
+    private final int segmentLines;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Thread writerThread;
+    private final CountDownLatch loaded = new CountDownLatch(1);
+    private volatile boolean closed;
+
+    // Guarded by this: closed segments and the word index over them.
+    private final List<Segment> segments = new ArrayList<>();
+    private final Map<String, int[]> postings = new HashMap<>();
+    // Guarded by this: the segment being written.
+    private Path activePath;
+    private long activeFirstMillis;
+    private long activeLastMillis;
+    private long activeFlushedBytes;
+    private final Set<String> activeWords = new HashSet<>();
+
+    // Writer thread only.
+    private BufferedWriter activeWriter;
+    private long activeBytes;
+    private int activeLines;
+
+    public SessionLog(Path directory) {
+        this(directory, SEGMENT_LINES);
+    }
+
+    SessionLog(Path directory, int segmentLines) {
+        this.directory = directory;
+        this.segmentLines = segmentLines;
+        writerThread = new Thread(this::run, "session-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void onLine(MudLineAssembler.MudLine line) {
+        if (!line.trimmed().isEmpty()) {
+            append(System.currentTimeMillis(), line.text());
+        }
+    }
+
+    void append(long timeMillis, String line) {
+        if (!closed) {
+            queue.add(new Entry(timeMillis, line));
+        }
+    }
+
+    /**
+     * Blocks until every line queued so far has been written.
+     */
+    public void awaitIdle() {
+        if (closed) {
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        queue.add(done);
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes what is queued, compresses and indexes the current segment, and stops.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(CLOSE);
+        try {
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} lines within the time range that contain every word of
+     * {@code query} (case-insensitive), the most recent ones, oldest first.
+     */
+    public List<Hit> search(String query, long fromMillis, long toMillis, int limit) throws IOException {
+        try {
+            loaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        }
+        Set<String> words = words(query);
+        List<Segment> candidates = new ArrayList<>();
+        Path active = null;
+        long activeLimit = 0;
+        synchronized (this) {
+            int[] ids = null;
+            for (String word : words) {
+                int[] found = postings.getOrDefault(word, new int[0]);
+                ids = ids == null ? found : intersect(ids, found);
+            }
+            if (ids == null) {
+                ids = new int[segments.size()];
+                Arrays.setAll(ids, i -> i);
+            }
+            for (int id : ids) {
+                Segment segment = segments.get(id);
+                if (segment.overlaps(fromMillis, toMillis)) {
+                    candidates.add(segment);
+                }
+            }
+            if (activePath != null && activeWords.containsAll(words)
+                    && new Segment(activePath, activeFirstMillis, activeLastMillis).overlaps(fromMillis, toMillis)) {
+                active = activePath;
+                activeLimit = activeFlushedBytes;
+            }
+        }
+
+        // Newest first, so that the limit keeps the most recent hits. Segments recovered
+        // after a crash are indexed late, so index order is not always time order.
+        candidates.sort(Comparator.comparingLong(Segment::firstMillis));
+        List<Hit> hits = new ArrayList<>();
+        if (active != null) {
+            addNewestFirst(hits, scan(active, activeLimit, words, fromMillis, toMillis), limit);
+        }
+        for (int i = candidates.size() - 1; i >= 0 && hits.size() < limit; i--) {
+            addNewestFirst(hits, scan(candidates.get(i).path(), -1, words, fromMillis, toMillis), limit);
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    private static void addNewestFirst(List<Hit> hits, List<Hit> segmentHits, int limit) {
+        for (int i = segmentHits.size() - 1; i >= 0 && hits.size() < limit; i--) {
+            hits.add(segmentHits.get(i));
+        }
+    }
+
+    private static List<Hit> scan(Path path, long byteLimit, Set<String> words, long fromMillis, long toMillis)
+            throws IOException {
+        List<Hit> hits = new ArrayList<>();
+        try (BufferedReader reader = open(path, byteLimit)) {
+            String row;
+            while ((row = reader.readLine()) != null) {
+                int tab = row.indexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                long millis;
+                try {
+                    millis = Long.parseLong(row, 0, tab, 10);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (millis < fromMillis || millis > toMillis) {
+                    continue;
+                }
+                String line = row.substring(tab + 1);
+                if (words.isEmpty() || words(line).containsAll(words)) {
+                    hits.add(new Hit(millis, line));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Opens a segment: the first {@code byteLimit} bytes of a plain one, or all of a
+     * compressed one if {@code byteLimit} is negative.
+     */
+    private static BufferedReader open(Path path, long byteLimit) throws IOException {
+        InputStream in;
+        if (byteLimit >= 0) {
+            try (InputStream raw = Files.newInputStream(path)) {
+                in = new ByteArrayInputStream(raw.readNBytes((int) byteLimit));
+            } catch (NoSuchFileException e) {
+                // Compressed since the search started.
+                in = new GZIPInputStream(Files.newInputStream(compressedPath(path)));
+            }
+        } else {
+            in = new GZIPInputStream(Files.newInputStream(path));
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lower-cased runs of letters and digits, the unit of indexing and matching.
+     */
+    static Set<String> words(CharSequence text) {
+        Set<String> words = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.subSequence(start, i).toString().toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void run() {
+        try {
+            loadIndex();
+            recoverSegments();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to load session log index in {}", directory, e);
+        } finally {
+            loaded.countDown();
+        }
+        List<Object> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_LIMIT);
+            boolean closing = batch.contains(CLOSE);
+            // Whatever goes wrong with one batch, the thread carries on and its waiters
+            // are released; otherwise the queue would grow and awaitIdle never return.
+            try {
+                for (Object item : batch) {
+                    if (item instanceof Entry entry) {
+                        write(entry);
+                    }
+                }
+                flush();
+                if (closing) {
+                    rollSegment();
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to write session log batch in {}", directory, e);
+            } finally {
+                for (Object item : batch) {
+                    if (item instanceof CountDownLatch waiter) {
+                        waiter.countDown();
+                    }
+                }
+                batch.clear();
+            }
+            if (closing) {
+                return;
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        try {
+            if (activeWriter == null) {
+                openSegment(entry.timeMillis());
+            }
+            String row = entry.timeMillis() + "\t" + entry.line().replace('\n', ' ') + "\n";
+            activeWriter.write(row);
+            activeBytes += row.getBytes(StandardCharsets.UTF_8).length;
+            activeLines++;
+            Set<String> words = words(entry.line());
+            synchronized (this) {
+                activeWords.addAll(words);
+                activeLastMillis = entry.timeMillis();
+            }
+            if (activeLines >= segmentLines) {
+                flush();
+                rollSegment();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write session log segment {}", activePath, e);
+        }
+    }
+
+    private void openSegment(long timeMillis) throws IOException {
+        Files.createDirectories(directory);
+        Path path = directory.resolve(timeMillis + SEGMENT_SUFFIX);
+        activeWriter = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        activeBytes = Files.size(path);
+        activeLines = 0;
+        synchronized (this) {
+            activePath = path;
+            activeFirstMillis = timeMillis;
+            activeLastMillis = timeMillis;
+            activeFlushedBytes = activeBytes;
+            activeWords.clear();
+        }
+    }
+
+    private void flush() {
+        if (activeWriter == null) {
+            return;
+        }
+        try {
+            activeWriter.flush();
+            synchronized (this) {
+                activeFlushedBytes = activeBytes;
+            }
+        } catch (IOException e) {
+            log.error("Failed to flush session log segment {}", activePath, e);
+        }
+    }
+
+    /**
+     * Closes the active segment, compresses it and adds it to the index.
+     */
+    private void rollSegment() {
+        if (activeWriter == null) {
+            return;
+        }
+        Path path;
+        Segment segment;
+        Set<String> words;
+        synchronized (this) {
+            path = activePath;
+            segment = new Segment(compressedPath(path), activeFirstMillis, activeLastMillis);
+            words = new HashSet<>(activeWords);
+        }
+        try {
+            activeWriter.close();
+            compress(path);
+            appendIndex(segment, words);
+            synchronized (this) {
+                addSegment(segment, words);
+                activePath = null;
+                activeWords.clear();
+            }
+        } catch (IOException e) {
+            log.error("Failed to roll session log segment {}", path, e);
+        } finally {
+            activeWriter = null;
+        }
+    }
+
+    private static Path compressedPath(Path plain) {
+        return plain.resolveSibling(plain.getFileName() + ".gz");
+    }
+
+    private static void compress(Path plain) throws IOException {
+        Path compressed = compressedPath(plain);
+        try (InputStream in = Files.newInputStream(plain);
+             OutputStream out = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            in.transferTo(out);
+        }
+        Files.delete(plain);
+    }
+
+    private void appendIndex(Segment segment, Set<String> words) throws IOException {
+        String row = segment.path().getFileName() + "\t" + segment.firstMillis() + "\t" + segment.lastMillis()
+                + "\t" + String.join(" ", words) + "\n";
+        Files.writeString(directory.resolve(INDEX_FILE), row, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void addSegment(Segment segment, Set<String> words) {
+        int id = segments.size();
+        segments.add(segment);
+        for (String word : words) {
+            int[] ids = postings.get(word);
+            if (ids == null) {
+                postings.put(word, new int[]{id});
+            } else {
+                int[] grown = Arrays.copyOf(ids, ids.length + 1);
+                grown[ids.length] = id;
+                postings.put(word, grown);
+            }
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        if (!Files.exists(index)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+            String row;
+            while ((row = reader.readLine()) != null) {
+                String[] fields = row.split("\t", 4);
+                if (fields.length < 3) {
+                    continue;
+                }
+                Path path = directory.resolve(fields[0]);
+                if (!Files.exists(path)) {
+                    continue;
+                }
+                long first;
+                long last;
+                try {
+                    first = Long.parseLong(fields[1]);
+                    last = Long.parseLong(fields[2]);
+                } catch (NumberFormatException e) {
+                    log.warn("Skipping damaged session log index row for {}", fields[0]);
+                    continue;
+                }
+                Set<String> words = fields.length == 4 && !fields[3].isEmpty()
+                        ? new HashSet<>(Arrays.asList(fields[3].split(" ")))
+                        : Set.of();
+                synchronized (this) {
+                    addSegment(new Segment(path, first, last), words);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes segments left behind by a session that did not close: plain ones, which are
+     * compressed first, and compressed ones that never made it into the index.
+     */
+    private void recoverSegments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> leftovers;
+        try (Stream<Path> files = Files.list(directory)) {
+            leftovers = files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (Path plain : leftovers) {
+            recoverSegment(plain, Files.size(plain));
+        }
+
+        Set<Path> indexed = new HashSet<>();
+        synchronized (this) {
+            segments.forEach(segment -> indexed.add(segment.path()));
+        }
+        List<Path> unindexed;
+        try (Stream<Path> files = Files.list(directory)) {
+            unindexed = files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX + ".gz"))
+                    .filter(p -> !indexed.contains(p))
+                    .sorted()
+                    .toList();
+        }
+        for (Path compressed : unindexed) {
+            try {
+                recoverSegment(compressed, -1);
+            } catch (IOException e) {
+                log.warn("Skipping unreadable session log segment {}", compressed, e);
+            }
+        }
+    }
+
+    /**
+     * Reads a leftover segment, as {@link #open} does, and adds it to the index; a plain
+     * one is compressed first, and one without any lines is deleted.
+     */
+    private void recoverSegment(Path path, long byteLimit) throws IOException {
+        long first = Long.MAX_VALUE;
+        long last = Long.MIN_VALUE;
+        Set<String> words = new HashSet<>();
+        try (BufferedReader reader = open(path, byteLimit)) {
+            String row;
+            while ((row = reader.readLine()) != null) {
+                int tab = row.indexOf('\t');
+                if (tab <= 0) {
+                    continue;
+                }
+                try {
+                    long millis = Long.parseLong(row, 0, tab, 10);
+                    first = Math.min(first, millis);
+                    last = Math.max(last, millis);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                words.addAll(words(row.substring(tab + 1)));
+            }
+        }
+        if (first > last) {
+            Files.delete(path);
+            return;
+        }
+        Segment segment;
+        if (byteLimit >= 0) {
+            segment = new Segment(compressedPath(path), first, last);
+            compress(path);
+        } else {
+            segment = new Segment(path, first, last);
+        }
+        appendIndex(segment, words);
+        synchronized (this) {
+            addSegment(segment, words);
+        }
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+}
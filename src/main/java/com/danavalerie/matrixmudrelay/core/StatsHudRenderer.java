@@ -19,8 +19,7 @@
 package com.danavalerie.matrixmudrelay.core;
 
 import com.danavalerie.matrixmudrelay.mud.CurrentRoomInfo;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
+import com.danavalerie.matrixmudrelay.mud.Gmcp;
 
 import java.awt.Color;
 import java.awt.Font;
@@ -32,7 +31,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Locale;
-import java.util.Map;
 
 import javax.imageio.ImageIO;
 
@@ -62,26 +60,15 @@ public final class StatsHudRenderer {
         if (snapshot == null) {
             return null;
         }
-        Map<String, JsonElement> data = snapshot.data();
-        JsonElement vitalsElement = data.get("char.vitals");
-        if (vitalsElement == null || !vitalsElement.isJsonObject()) {
+        Gmcp.Vitals vitals = snapshot.vitals();
+        if (vitals == null) {
             return null;
         }
-        JsonObject vitals = vitalsElement.getAsJsonObject();
-        Integer hp = intValue(vitals, "hp");
-        Integer maxHp = intValue(vitals, "maxhp");
-        Integer gp = intValue(vitals, "gp");
-        Integer maxGp = intValue(vitals, "maxgp");
-        Integer burden = intValue(vitals, "burden");
-        Long xp = longValue(vitals, "xp");
-        if (hp == null || maxHp == null || gp == null || maxGp == null || burden == null || xp == null) {
-            return null;
-        }
-        String name = extractCapname(data.get("char.info"));
+        String name = snapshot.characterName();
         if (name == null || name.isBlank()) {
             name = "Unknown";
         }
-        return new StatsHudData(name, hp, maxHp, gp, maxGp, burden, xp);
+        return new StatsHudData(name, vitals.hp(), vitals.maxHp(), vitals.gp(), vitals.maxGp(), vitals.burden(), vitals.xp());
     }
 
     public static StatsHudImage render(StatsHudData data) throws IOException {
@@ -182,41 +169,6 @@ public final class StatsHudRenderer {
         return NUMBER_FORMAT.format(value);
     }
 
-    private static Integer intValue(JsonObject obj, String key) {
-        JsonElement val = obj.get(key);
-        if (val == null || val.isJsonNull()) {
-            return null;
-        }
-        try {
-            return val.getAsInt();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private static Long longValue(JsonObject obj, String key) {
-        JsonElement val = obj.get(key);
-        if (val == null || val.isJsonNull()) {
-            return null;
-        }
-        try {
-            return val.getAsLong();
-        } catch (Exception e) {
-            return null;
-        }
-    }
-
-    private static String extractCapname(JsonElement element) {
-        if (element == null || !element.isJsonObject()) {
-            return null;
-        }
-        JsonElement capname = element.getAsJsonObject().get("capname");
-        if (capname == null || capname.isJsonNull() || !capname.isJsonPrimitive()) {
-            return null;
-        }
-        return capname.getAsString();
-    }
-
     public record StatsHudData(String name, int hp, int maxHp, int gp, int maxGp, int burden, long xp) {
     }
 
@@ -87,7 +87,7 @@ public final class StoreInventoryTracker {
         listingMode = ListingMode.NONE;
     }
 
-    private boolean ingestLine(String line) {
+    public synchronized boolean ingestLine(String line) {
         if (line == null) {
             return false;
         }
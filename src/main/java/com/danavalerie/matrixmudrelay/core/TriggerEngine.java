@@ -0,0 +1,367 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.util.AhoCorasick;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled, ordered set of whole-line regex rules. Each pattern contributes the
+ * longest literal that any match must contain; one Aho-Corasick pass over the line picks
+ * the candidate rules, and only those run their full regex. Rules without a usable
+ * literal are always candidates. Immutable, so a worker thread can match while the EDT
+ * swaps in a new engine.
+ * <p>
+ * Every rule keeps {@link Stats}: how often its regex ran and matched, and how long it
+ * took. A rule whose regex blows the time budget repeatedly is switched off.
+ *
+ * @param <T> what a rule does when it matches
+ */
+public final class TriggerEngine<T> {
+    /** A single evaluation slower than this flags the rule as an outlier. */
+    public static final long SLOW_EVALUATION_NANOS = 1_000_000L;
+    /** A rule that takes longer than this on {@link #DISABLE_STRIKES} lines is disabled. */
+    public static final long DISABLE_EVALUATION_NANOS = 50_000_000L;
+    public static final int DISABLE_STRIKES = 3;
+
+    private static final Logger log = LoggerFactory.getLogger(TriggerEngine.class);
+
+    public record Rule<T>(Pattern pattern, T action) {
+    }
+
+    /**
+     * Per-rule cost counters. They are written only by the thread that calls
+     * {@link #match} and may be read from any thread.
+     */
+    public static final class Stats {
+        private volatile long evaluations;
+        private volatile long matches;
+        private volatile long totalNanos;
+        private volatile long maxNanos;
+        private volatile boolean disabled;
+        private int strikes;
+
+        public long evaluations() {
+            return evaluations;
+        }
+
+        public long matches() {
+            return matches;
+        }
+
+        public long totalNanos() {
+            return totalNanos;
+        }
+
+        public long maxNanos() {
+            return maxNanos;
+        }
+
+        public boolean isSlow() {
+            return maxNanos > SLOW_EVALUATION_NANOS;
+        }
+
+        public boolean isDisabled() {
+            return disabled;
+        }
+
+        /**
+         * @return true if this evaluation disabled the rule
+         */
+        private boolean record(long nanos, boolean matched) {
+            evaluations++;
+            if (matched) {
+                matches++;
+            }
+            totalNanos += nanos;
+            if (nanos > maxNanos) {
+                maxNanos = nanos;
+            }
+            if (nanos > DISABLE_EVALUATION_NANOS && ++strikes >= DISABLE_STRIKES) {
+                disabled = true;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final List<Rule<T>> rules;
+    private final Stats[] stats;
+    private final AhoCorasick prefilter;
+    private final BitSet alwaysCandidates = new BitSet();
+    private final Consumer<Pattern> disabledListener;
+
+    public TriggerEngine(List<Rule<T>> rules) {
+        this(rules, null, pattern -> {
+        });
+    }
+
+    /**
+     * @param previous         the engine being replaced; rules with an unchanged pattern
+     *                         keep its stats, including a disabled state. May be null.
+     * @param disabledListener told, on the matching thread, when a rule is disabled
+     */
+    public TriggerEngine(List<Rule<T>> rules, TriggerEngine<T> previous, Consumer<Pattern> disabledListener) {
+        this.rules = List.copyOf(rules);
+        this.disabledListener = disabledListener;
+        stats = new Stats[this.rules.size()];
+        List<String> literals = new ArrayList<>(this.rules.size());
+        for (int i = 0; i < this.rules.size(); i++) {
+            Pattern pattern = this.rules.get(i).pattern();
+            Stats carried = previous == null ? null : previous.stats(pattern.pattern());
+            stats[i] = carried != null ? carried : new Stats();
+            String literal = requiredLiteral(pattern);
+            literals.add(literal);
+            if (literal == null) {
+                alwaysCandidates.set(i);
+            }
+        }
+        prefilter = new AhoCorasick(literals);
+    }
+
+    /**
+     * Returns the stats of the first rule with this pattern, or null.
+     */
+    public Stats stats(String pattern) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).pattern().pattern().equals(pattern)) {
+                return stats[i];
+            }
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    /**
+     * Returns the action of the first rule, in configuration order, whose pattern matches
+     * the whole line, or null.
+     */
+    public T match(String line) {
+        if (rules.isEmpty()) {
+            return null;
+        }
+        BitSet candidates = (BitSet) alwaysCandidates.clone();
+        prefilter.scan(line, candidates);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Stats ruleStats = stats[i];
+            if (ruleStats.disabled) {
+                continue;
+            }
+            Rule<T> rule = rules.get(i);
+            long start = System.nanoTime();
+            boolean matched = rule.pattern().matcher(line).matches();
+            if (ruleStats.record(System.nanoTime() - start, matched)) {
+                log.warn("Disabled trigger {} after {} evaluations over {} ms",
+                        rule.pattern().pattern(), DISABLE_STRIKES, DISABLE_EVALUATION_NANOS / 1_000_000);
+                disabledListener.accept(rule.pattern());
+            }
+            if (matched) {
+                return rule.action();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the longest run of literal characters that every match of {@code pattern}
+     * must contain, or null if there is none worth using. Only the top level of the
+     * pattern is examined; groups, classes and anything unusual end the current run,
+     * and a top-level alternation gives up entirely.
+     */
+    static String requiredLiteral(Pattern pattern) {
+        int unsupportedFlags = Pattern.COMMENTS | Pattern.UNICODE_CASE | Pattern.CANON_EQ | Pattern.LITERAL;
+        if ((pattern.flags() & unsupportedFlags) != 0) {
+            return null;
+        }
+        String regex = pattern.pattern();
+        String best = "";
+        StringBuilder run = new StringBuilder();
+        boolean lastWasLiteral = false;
+        int i = 0;
+        while (i < regex.length()) {
+            char ch = regex.charAt(i);
+            switch (ch) {
+                case '\\' -> {
+                    if (i + 1 >= regex.length()) {
+                        return null;
+                    }
+                    char escaped = regex.charAt(i + 1);
+                    if (escaped == 'Q') {
+                        int end = regex.indexOf("\\E", i + 2);
+                        String quoted = end < 0 ? regex.substring(i + 2) : regex.substring(i + 2, end);
+                        run.append(quoted);
+                        lastWasLiteral = !quoted.isEmpty();
+                        i = end < 0 ? regex.length() : end + 2;
+                        continue;
+                    }
+                    if (Character.isDigit(escaped) || "xucpPkN".indexOf(escaped) >= 0) {
+                        // Escapes with arguments; not worth decoding.
+                        return null;
+                    }
+                    if (Character.isLetter(escaped)) {
+                        best = longer(best, run);
+                        lastWasLiteral = false;
+                    } else {
+                        run.append(escaped);
+                        lastWasLiteral = true;
+                    }
+                    i += 2;
+                }
+                case '[' -> {
+                    best = longer(best, run);
+                    lastWasLiteral = false;
+                    i = skipClass(regex, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                }
+                case '(' -> {
+                    if (regex.startsWith("(?", i) && hasUnsupportedInlineFlag(regex, i + 2)) {
+                        return null;
+                    }
+                    best = longer(best, run);
+                    lastWasLiteral = false;
+                    i = skipGroup(regex, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                }
+                case '*', '?', '+', '{' -> {
+                    if (lastWasLiteral && ch != '+') {
+                        // The repeated character may be absent.
+                        run.setLength(run.length() - 1);
+                    }
+                    best = longer(best, run);
+                    lastWasLiteral = false;
+                    if (ch == '{') {
+                        i = regex.indexOf('}', i);
+                        if (i < 0) {
+                            return null;
+                        }
+                    }
+                    i++;
+                    if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                        i++;
+                    }
+                }
+                case '|', ')' -> {
+                    return null;
+                }
+                case '.', '^', '$' -> {
+                    best = longer(best, run);
+                    lastWasLiteral = false;
+                    i++;
+                }
+                default -> {
+                    run.append(ch);
+                    lastWasLiteral = true;
+                    i++;
+                }
+            }
+        }
+        best = longer(best, run);
+        return best.isEmpty() ? null : best;
+    }
+
+    private static String longer(String best, StringBuilder run) {
+        String result = run.length() > best.length() ? run.toString() : best;
+        run.setLength(0);
+        return result;
+    }
+
+    private static boolean hasUnsupportedInlineFlag(String regex, int from) {
+        for (int i = from; i < regex.length(); i++) {
+            char ch = regex.charAt(i);
+            if (ch == 'x' || ch == 'u') {
+                return true;
+            }
+            if (!Character.isLetter(ch) && ch != '-') {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the index just past the character class starting at {@code start}, or -1.
+     */
+    private static int skipClass(String regex, int start) {
+        int i = start + 1;
+        if (i < regex.length() && regex.charAt(i) == '^') {
+            i++;
+        }
+        if (i < regex.length() && regex.charAt(i) == ']') {
+            i++;
+        }
+        int depth = 1;
+        while (i < regex.length()) {
+            char ch = regex.charAt(i);
+            if (ch == '\\') {
+                i += 2;
+                continue;
+            }
+            if (ch == '[') {
+                depth++;
+            } else if (ch == ']' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index just past the group starting at {@code start}, or -1.
+     */
+    private static int skipGroup(String regex, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < regex.length()) {
+            char ch = regex.charAt(i);
+            if (ch == '\\') {
+                i += 2;
+                continue;
+            }
+            if (ch == '[') {
+                i = skipClass(regex, i);
+                if (i < 0) {
+                    return -1;
+                }
+                continue;
+            }
+            if (ch == '(') {
+                depth++;
+            } else if (ch == ')' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return -1;
+    }
+}
@@ -61,7 +61,7 @@ public final class WritTracker {
         }
     }
 
-    private boolean ingestLine(String line) {
+    public synchronized boolean ingestLine(String line) {
         if (line == null) {
             return false;
         }
@@ -1,5 +1,14 @@
 package com.danavalerie.matrixmudrelay.core.data;
 
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 import java.util.Map;
 import java.util.TreeMap;
 
@@ -39,4 +48,94 @@ public class NpcData {
         public String getSpecialNote() { return specialNote; }
         public void setSpecialNote(String specialNote) { this.specialNote = specialNote; }
     }
+
+    /**
+     * Reads NPCs and their items straight off the stream instead of through reflection.
+     * Writing is left to Gson's own adapter, so saved files do not change.
+     */
+    public static final class Adapter implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != NpcData.class) {
+                return null;
+            }
+            TypeAdapter<NpcData> delegate = gson.getDelegateAdapter(this, TypeToken.get(NpcData.class));
+            return (TypeAdapter<T>) new TypeAdapter<NpcData>() {
+                @Override
+                public void write(JsonWriter out, NpcData value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public NpcData read(JsonReader in) throws IOException {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+                    NpcData npc = new NpcData();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String name = in.nextName();
+                        boolean isNull = in.peek() == JsonToken.NULL;
+                        if (isNull) {
+                            in.nextNull();
+                        }
+                        switch (name) {
+                            case "npcId" -> npc.npcId = isNull ? null : in.nextString();
+                            case "npcName" -> npc.npcName = isNull ? null : in.nextString();
+                            case "roomId" -> npc.roomId = isNull ? null : in.nextString();
+                            case "items" -> {
+                                if (isNull) {
+                                    npc.items = null;
+                                } else {
+                                    readItems(in, npc.items);
+                                }
+                            }
+                            default -> {
+                                if (!isNull) {
+                                    in.skipValue();
+                                }
+                            }
+                        }
+                    }
+                    in.endObject();
+                    return npc;
+                }
+            };
+        }
+
+        private static void readItems(JsonReader in, Map<String, NpcItemData> items) throws IOException {
+            in.beginObject();
+            while (in.hasNext()) {
+                String itemName = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    items.put(itemName, null);
+                    continue;
+                }
+                NpcItemData item = new NpcItemData();
+                in.beginObject();
+                while (in.hasNext()) {
+                    String name = in.nextName();
+                    String value = null;
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                    } else if (name.equals("salePrice") || name.equals("specialNote")) {
+                        value = in.nextString();
+                    } else {
+                        in.skipValue();
+                    }
+                    if (name.equals("salePrice")) {
+                        item.salePrice = value;
+                    } else if (name.equals("specialNote")) {
+                        item.specialNote = value;
+                    }
+                }
+                in.endObject();
+                items.put(itemName, item);
+            }
+            in.endObject();
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.danavalerie.matrixmudrelay.core.data;
 
+import com.google.gson.Gson;
 import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
 import com.google.gson.annotations.JsonAdapter;
 import com.google.gson.annotations.SerializedName;
+import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 import com.google.gson.stream.JsonWriter;
@@ -92,6 +95,88 @@ public class RoomData {
         return normalized.isEmpty() ? null : normalized;
     }
 
+    /**
+     * Reads rooms field by field straight off the stream instead of through reflection.
+     * Writing is left to Gson's own adapter, so saved files do not change.
+     */
+    public static final class Adapter implements TypeAdapterFactory {
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            if (type.getRawType() != RoomData.class) {
+                return null;
+            }
+            TypeAdapter<RoomData> delegate = gson.getDelegateAdapter(this, TypeToken.get(RoomData.class));
+            TypeAdapter<ShopItem> shopItemAdapter = gson.getAdapter(ShopItem.class);
+            FlagsAdapter flagsAdapter = new FlagsAdapter();
+            return (TypeAdapter<T>) new TypeAdapter<RoomData>() {
+                @Override
+                public void write(JsonWriter out, RoomData value) throws IOException {
+                    delegate.write(out, value);
+                }
+
+                @Override
+                public RoomData read(JsonReader in) throws IOException {
+                    if (in.peek() == JsonToken.NULL) {
+                        in.nextNull();
+                        return null;
+                    }
+                    RoomData room = new RoomData();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String name = in.nextName();
+                        if (name.equals("flags") || name.equals("Flags")) {
+                            room.flags = flagsAdapter.read(in);
+                        } else if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                            switch (name) {
+                                case "roomId" -> room.roomId = null;
+                                case "roomShort" -> room.roomShort = null;
+                                case "roomType" -> room.roomType = null;
+                                case "exits" -> room.exits = null;
+                                case "shopItems" -> room.shopItems = null;
+                                default -> {
+                                }
+                            }
+                        } else {
+                            switch (name) {
+                                case "roomId" -> room.roomId = in.nextString();
+                                case "mapId" -> room.mapId = in.nextInt();
+                                case "xpos" -> room.xpos = in.nextInt();
+                                case "ypos" -> room.ypos = in.nextInt();
+                                case "roomShort" -> room.roomShort = in.nextString();
+                                case "roomType" -> room.roomType = in.nextString();
+                                case "exits" -> {
+                                    in.beginObject();
+                                    while (in.hasNext()) {
+                                        String direction = in.nextName();
+                                        if (in.peek() == JsonToken.NULL) {
+                                            in.nextNull();
+                                            room.exits.put(direction, null);
+                                        } else {
+                                            room.exits.put(direction, in.nextString());
+                                        }
+                                    }
+                                    in.endObject();
+                                }
+                                case "shopItems" -> {
+                                    in.beginArray();
+                                    while (in.hasNext()) {
+                                        room.shopItems.add(shopItemAdapter.read(in));
+                                    }
+                                    in.endArray();
+                                }
+                                default -> in.skipValue();
+                            }
+                        }
+                    }
+                    in.endObject();
+                    return room;
+                }
+            };
+        }
+    }
+
     static final class FlagsAdapter extends TypeAdapter<List<String>> {
         @Override
         public void write(JsonWriter out, List<String> value) throws IOException {
@@ -1,7 +1,12 @@
 package com.danavalerie.matrixmudrelay.core.data;
 
-import com.google.gson.*;
-import java.lang.reflect.Type;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
 
 public class ShopItem {
     private String name;
@@ -34,29 +39,55 @@ public class ShopItem {
         this.shopName = shopName;
     }
 
-    public static class Adapter implements JsonSerializer<ShopItem>, JsonDeserializer<ShopItem> {
+    /**
+     * Reads and writes a shop item as a bare name, or as an object when it is sold under
+     * a different shop name.
+     */
+    public static class Adapter extends TypeAdapter<ShopItem> {
         @Override
-        public ShopItem deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
-            if (json.isJsonPrimitive()) {
-                return new ShopItem(json.getAsString());
-            } else if (json.isJsonObject()) {
-                JsonObject obj = json.getAsJsonObject();
-                String name = obj.has("name") ? obj.get("name").getAsString() : null;
-                String shopName = obj.has("shopName") ? obj.get("shopName").getAsString() : null;
-                return new ShopItem(name, shopName);
+        public void write(JsonWriter out, ShopItem src) throws IOException {
+            if (src == null) {
+                out.nullValue();
+            } else if (src.shopName == null || src.shopName.isEmpty() || src.shopName.equals(src.name)) {
+                out.value(src.name);
+            } else {
+                out.beginObject();
+                out.name("name").value(src.name);
+                out.name("shopName").value(src.shopName);
+                out.endObject();
             }
-            throw new JsonParseException("Unexpected JSON type for ShopItem");
         }
 
         @Override
-        public JsonElement serialize(ShopItem src, Type typeOfSrc, JsonSerializationContext context) {
-            if (src.shopName == null || src.shopName.isEmpty() || src.shopName.equals(src.name)) {
-                return new JsonPrimitive(src.name);
-            } else {
-                JsonObject obj = new JsonObject();
-                obj.addProperty("name", src.name);
-                obj.addProperty("shopName", src.shopName);
-                return obj;
+        public ShopItem read(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case NULL -> {
+                    in.nextNull();
+                    return null;
+                }
+                case STRING, NUMBER, BOOLEAN -> {
+                    return new ShopItem(in.peek() == JsonToken.BOOLEAN ? String.valueOf(in.nextBoolean()) : in.nextString());
+                }
+                case BEGIN_OBJECT -> {
+                    String name = null;
+                    String shopName = null;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        String field = in.nextName();
+                        if (in.peek() == JsonToken.NULL) {
+                            in.nextNull();
+                        } else if (field.equals("name")) {
+                            name = in.nextString();
+                        } else if (field.equals("shopName")) {
+                            shopName = in.nextString();
+                        } else {
+                            in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    return new ShopItem(name, shopName);
+                }
+                default -> throw new JsonParseException("Unexpected JSON type for ShopItem");
             }
         }
     }
@@ -21,18 +21,16 @@ package com.danavalerie.matrixmudrelay.mud;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
 
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
 
 public final class CurrentRoomInfo {
     private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(
-            new Snapshot(null, Map.of(), Map.of(), Map.of()));
+    private static final Snapshot EMPTY = new Snapshot(null, null, null, null, Map.of(), Map.of(), Map.of());
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(EMPTY);
 
     public enum RoomEnvironment {
         OUTSIDE,
@@ -45,72 +43,94 @@ public final class CurrentRoomInfo {
     }
 
     public void clear() {
-        snapshot.set(new Snapshot(null, Map.of(), Map.of(), Map.of()));
+        snapshot.set(EMPTY);
     }
 
     public void update(String command, JsonElement payload) {
         if (command == null || payload == null) return;
-        String normalized = command.trim();
-        if (normalized.isEmpty()) return;
-
-        String lower = normalized.toLowerCase();
-        Snapshot current = snapshot.get();
-        String nextRoomId = current.roomId;
-
-        if ("room.info".equals(lower) && payload.isJsonObject()) {
-            String extracted = extractRoomId(payload.getAsJsonObject());
-            if (extracted != null && !extracted.isBlank()) {
-                nextRoomId = extracted;
-            }
-        }
-
-        Map<String, JsonElement> roomData = new LinkedHashMap<>(current.roomData);
-        Map<String, JsonElement> charData = new LinkedHashMap<>(current.charData);
-        Map<String, JsonElement> otherData = new LinkedHashMap<>(current.otherData);
-
-        if (lower.startsWith("room.")) {
-            roomData.put(lower, payload);
-        } else if (lower.startsWith("char.")) {
-            charData.put(lower, payload);
-        } else {
-            otherData.put(lower, payload);
-        }
-
-        snapshot.set(new Snapshot(nextRoomId, roomData, charData, otherData));
+        update(new TelnetDecoder.GmcpMessage(command, payload));
     }
 
-    private static String extractRoomId(JsonObject obj) {
-        String[] keys = {"identifier", "id", "num", "vnum", "roomid"};
-        for (String key : keys) {
-            JsonElement val = obj.get(key);
-            if (val == null || val.isJsonNull()) continue;
-            if (val.isJsonPrimitive()) {
-                return val.getAsString();
-            }
-        }
-        return null;
+    public void update(TelnetDecoder.GmcpMessage message) {
+        if (message == null || message.payload() == null) return;
+        String lower = message.module();
+        if (lower.isEmpty()) return;
+        snapshot.updateAndGet(current -> current.with(lower, message));
     }
 
+    /**
+     * An immutable view of the latest GMCP state. Successive snapshots share structure: an
+     * update copies only the namespace map (room, char or other) it touches, and the combined
+     * {@link #data()} map is built on first use.
+     */
     public static final class Snapshot {
         private final String roomId;
+        private final Gmcp.RoomInfo roomInfo;
+        private final Gmcp.Vitals vitals;
+        private final Gmcp.CharInfo charInfo;
         private final Map<String, JsonElement> roomData;
         private final Map<String, JsonElement> charData;
         private final Map<String, JsonElement> otherData;
-        private final Map<String, JsonElement> data;
+        private volatile Map<String, JsonElement> data;
 
+        /**
+         * The namespace maps must already be unmodifiable; they are shared, not copied.
+         */
         private Snapshot(String roomId,
+                         Gmcp.RoomInfo roomInfo,
+                         Gmcp.Vitals vitals,
+                         Gmcp.CharInfo charInfo,
                          Map<String, JsonElement> roomData,
                          Map<String, JsonElement> charData,
                          Map<String, JsonElement> otherData) {
             this.roomId = roomId;
-            this.roomData = Collections.unmodifiableMap(new LinkedHashMap<>(roomData));
-            this.charData = Collections.unmodifiableMap(new LinkedHashMap<>(charData));
-            this.otherData = Collections.unmodifiableMap(new LinkedHashMap<>(otherData));
-            Map<String, JsonElement> combined = new LinkedHashMap<>();
-            combined.putAll(this.roomData);
-            combined.putAll(this.charData);
-            combined.putAll(this.otherData);
-            this.data = Collections.unmodifiableMap(combined);
+            this.roomInfo = roomInfo;
+            this.vitals = vitals;
+            this.charInfo = charInfo;
+            this.roomData = roomData;
+            this.charData = charData;
+            this.otherData = otherData;
+        }
+
+        private Snapshot with(String module, TelnetDecoder.GmcpMessage message) {
+            String nextRoomId = roomId;
+            Gmcp.RoomInfo nextRoomInfo = roomInfo;
+            Gmcp.Vitals nextVitals = vitals;
+            Gmcp.CharInfo nextCharInfo = charInfo;
+
+            switch (module) {
+                case Gmcp.ROOM_INFO -> {
+                    nextRoomInfo = message.value() instanceof Gmcp.RoomInfo info ? info : null;
+                    if (nextRoomInfo != null && nextRoomInfo.roomId() != null && !nextRoomInfo.roomId().isBlank()) {
+                        nextRoomId = nextRoomInfo.roomId();
+                    }
+                }
+                case Gmcp.CHAR_VITALS -> nextVitals = message.value() instanceof Gmcp.Vitals v ? v : null;
+                case Gmcp.CHAR_INFO -> nextCharInfo = message.value() instanceof Gmcp.CharInfo info ? info : null;
+                default -> {
+                }
+            }
+
+            Map<String, JsonElement> nextRoomData = roomData;
+            Map<String, JsonElement> nextCharData = charData;
+            Map<String, JsonElement> nextOtherData = otherData;
+            if (module.startsWith("room.")) {
+                nextRoomData = copyWith(roomData, module, message.payload());
+            } else if (module.startsWith("char.")) {
+                nextCharData = copyWith(charData, module, message.payload());
+            } else {
+                nextOtherData = copyWith(otherData, module, message.payload());
+            }
+            return new Snapshot(nextRoomId, nextRoomInfo, nextVitals, nextCharInfo,
+                    nextRoomData, nextCharData, nextOtherData);
+        }
+
+        private static Map<String, JsonElement> copyWith(Map<String, JsonElement> source,
+                                                         String key,
+                                                         JsonElement value) {
+            Map<String, JsonElement> copy = new LinkedHashMap<>(source);
+            copy.put(key, value);
+            return Collections.unmodifiableMap(copy);
         }
 
         public String roomId() {
@@ -118,52 +138,50 @@ public final class CurrentRoomInfo {
         }
 
         public String roomName() {
-            JsonElement roomInfo = roomData.get("room.info");
-            if (roomInfo != null && roomInfo.isJsonObject()) {
-                JsonObject obj = roomInfo.getAsJsonObject();
-                if (obj.has("short")) {
-                    return obj.get("short").getAsString();
-                }
-            }
-            return null;
+            return roomInfo != null ? roomInfo.shortName() : null;
         }
 
         public RoomEnvironment roomEnvironment() {
-            JsonElement roomInfo = roomData.get("room.info");
-            if (roomInfo != null && roomInfo.isJsonObject()) {
-                JsonObject obj = roomInfo.getAsJsonObject();
-                JsonElement kind = obj.get("kind");
-                if (kind != null && kind.isJsonPrimitive()) {
-                    String normalized = kind.getAsString().trim().toLowerCase(Locale.ROOT);
-                    if ("outside".equals(normalized) || "outdoors".equals(normalized)) {
-                        return RoomEnvironment.OUTSIDE;
-                    }
-                    if ("inside".equals(normalized) || "indoors".equals(normalized) || "indoor".equals(normalized)) {
-                        return RoomEnvironment.INSIDE;
-                    }
-                }
-            }
-            return RoomEnvironment.UNKNOWN;
+            return roomInfo != null ? roomInfo.environment() : RoomEnvironment.UNKNOWN;
+        }
+
+        public Gmcp.RoomInfo roomInfo() {
+            return roomInfo;
+        }
+
+        public Gmcp.Vitals vitals() {
+            return vitals;
         }
 
         public Map<String, JsonElement> data() {
-            return data;
+            Map<String, JsonElement> combined = data;
+            if (combined == null) {
+                Map<String, JsonElement> built = new LinkedHashMap<>();
+                built.putAll(roomData);
+                built.putAll(charData);
+                built.putAll(otherData);
+                combined = Collections.unmodifiableMap(built);
+                data = combined;
+            }
+            return combined;
         }
 
         public String characterName() {
-            return extractCapname(data.get("char.info"));
+            return charInfo != null ? charInfo.capname() : null;
         }
 
         public boolean isEmpty() {
-            return (roomId == null || roomId.isBlank()) && data.isEmpty();
+            return (roomId == null || roomId.isBlank())
+                    && roomData.isEmpty() && charData.isEmpty() && otherData.isEmpty();
         }
 
         public String formatForDisplay() {
             if (isEmpty()) {
                 return "No room info available yet.";
             }
+            Map<String, JsonElement> data = data();
             StringBuilder sb = new StringBuilder();
-            String capname = extractCapname(data.get("char.info"));
+            String capname = characterName();
             if (capname != null && !capname.isBlank()) {
                 sb.append("Character: ").append(capname).append("\n");
             }
@@ -191,16 +209,5 @@ public final class CurrentRoomInfo {
             }
             return sb.toString();
         }
-
-        private static String extractCapname(JsonElement element) {
-            if (element == null || !element.isJsonObject()) {
-                return null;
-            }
-            JsonElement capname = element.getAsJsonObject().get("capname");
-            if (capname == null || capname.isJsonNull() || !capname.isJsonPrimitive()) {
-                return null;
-            }
-            return capname.getAsString();
-        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.util.ThreadUtils;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Hands reader-thread output to the EDT at most once per display frame.
+ * <p>
+ * Text fragments queued between two drains are joined and delivered in a single
+ * {@code textSink} call. Other events (GMCP, disconnects) keep their position in the
+ * stream: any text queued before them is delivered first. The queue is bounded by
+ * character count; a producer that gets too far ahead of the EDT is parked until a
+ * drain catches up, which in turn applies TCP back-pressure to the server.
+ */
+final class FrameCoalescingQueue {
+    static final long FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
+    static final int DEFAULT_MAX_PENDING_CHARS = 1 << 20;
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingChars = new AtomicInteger();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Consumer<String> textSink;
+    private final int maxPendingChars;
+    private final StringBuilder batch = new StringBuilder();
+    private volatile long lastDrainNanos = System.nanoTime() - FRAME_NANOS;
+
+    FrameCoalescingQueue(Consumer<String> textSink) {
+        this(textSink, DEFAULT_MAX_PENDING_CHARS);
+    }
+
+    FrameCoalescingQueue(Consumer<String> textSink, int maxPendingChars) {
+        this.textSink = textSink;
+        this.maxPendingChars = maxPendingChars;
+    }
+
+    /**
+     * Queues text for the next frame, parking the caller while the queue is over its bound
+     * and {@code keepWaiting} holds.
+     */
+    void offerText(String text, BooleanSupplier keepWaiting) {
+        if (text.isEmpty()) {
+            return;
+        }
+        pendingChars.addAndGet(text.length());
+        queue.offer(text);
+        scheduleDrain();
+        while (pendingChars.get() > maxPendingChars && keepWaiting.getAsBoolean()) {
+            LockSupport.parkNanos(FRAME_NANOS / 4);
+        }
+    }
+
+    void offerEvent(Runnable event) {
+        queue.offer(event);
+        scheduleDrain();
+    }
+
+    int pendingChars() {
+        return pendingChars.get();
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long waitNanos = lastDrainNanos + FRAME_NANOS - System.nanoTime();
+        if (waitNanos <= 0) {
+            SwingUtilities.invokeLater(this::drain);
+            return;
+        }
+        int delayMs = (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        Timer timer = new Timer(delayMs, e -> drain());
+        timer.setRepeats(false);
+        timer.start();
+    }
+
+    /**
+     * Delivers everything queued so far. Must run on the EDT.
+     */
+    void drain() {
+        ThreadUtils.checkEdt();
+        // Clear first so anything offered while draining schedules another frame.
+        drainScheduled.set(false);
+        lastDrainNanos = System.nanoTime();
+        Object item;
+        while ((item = queue.poll()) != null) {
+            if (item instanceof String text) {
+                batch.append(text);
+                pendingChars.addAndGet(-text.length());
+            } else {
+                flushBatch();
+                ((Runnable) item).run();
+            }
+        }
+        flushBatch();
+    }
+
+    private void flushBatch() {
+        if (batch.length() == 0) {
+            return;
+        }
+        String text = batch.toString();
+        batch.setLength(0);
+        if (batch.capacity() > maxPendingChars) {
+            batch.trimToSize();
+        }
+        textSink.accept(text);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Locale;
+
+/**
+ * Typed, immutable views of the GMCP modules the client relies on. Decoding happens once,
+ * on the reader thread, when the {@link TelnetDecoder.GmcpMessage} is built.
+ */
+public final class Gmcp {
+    public static final String ROOM_INFO = "room.info";
+    public static final String CHAR_VITALS = "char.vitals";
+    public static final String CHAR_INFO = "char.info";
+
+    private static final String[] ROOM_ID_KEYS = {"identifier", "id", "num", "vnum", "roomid"};
+
+    private Gmcp() {
+    }
+
+    public record RoomInfo(String roomId, String shortName, CurrentRoomInfo.RoomEnvironment environment) {
+    }
+
+    public record Vitals(int hp, int maxHp, int gp, int maxGp, int burden, long xp) {
+    }
+
+    public record CharInfo(String capname) {
+    }
+
+    public static String normalizeModule(String command) {
+        return command == null ? "" : command.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return a {@link RoomInfo}, {@link Vitals} or {@link CharInfo} for the well-known modules,
+     *         or {@code null} for anything else or a payload missing required fields
+     */
+    public static Object decode(String command, JsonElement payload) {
+        if (payload == null || !payload.isJsonObject()) {
+            return null;
+        }
+        JsonObject obj = payload.getAsJsonObject();
+        return switch (normalizeModule(command)) {
+            case ROOM_INFO -> decodeRoomInfo(obj);
+            case CHAR_VITALS -> decodeVitals(obj);
+            case CHAR_INFO -> new CharInfo(stringValue(obj, "capname"));
+            default -> null;
+        };
+    }
+
+    private static RoomInfo decodeRoomInfo(JsonObject obj) {
+        String roomId = null;
+        for (String key : ROOM_ID_KEYS) {
+            String value = stringValue(obj, key);
+            if (value != null) {
+                roomId = value;
+                break;
+            }
+        }
+        return new RoomInfo(roomId, stringValue(obj, "short"), decodeEnvironment(stringValue(obj, "kind")));
+    }
+
+    private static CurrentRoomInfo.RoomEnvironment decodeEnvironment(String kind) {
+        if (kind == null) {
+            return CurrentRoomInfo.RoomEnvironment.UNKNOWN;
+        }
+        String normalized = kind.trim().toLowerCase(Locale.ROOT);
+        if ("outside".equals(normalized) || "outdoors".equals(normalized)) {
+            return CurrentRoomInfo.RoomEnvironment.OUTSIDE;
+        }
+        if ("inside".equals(normalized) || "indoors".equals(normalized) || "indoor".equals(normalized)) {
+            return CurrentRoomInfo.RoomEnvironment.INSIDE;
+        }
+        return CurrentRoomInfo.RoomEnvironment.UNKNOWN;
+    }
+
+    private static Vitals decodeVitals(JsonObject obj) {
+        Long hp = longValue(obj, "hp");
+        Long maxHp = longValue(obj, "maxhp");
+        Long gp = longValue(obj, "gp");
+        Long maxGp = longValue(obj, "maxgp");
+        Long burden = longValue(obj, "burden");
+        Long xp = longValue(obj, "xp");
+        if (hp == null || maxHp == null || gp == null || maxGp == null || burden == null || xp == null) {
+            return null;
+        }
+        return new Vitals(hp.intValue(), maxHp.intValue(), gp.intValue(), maxGp.intValue(), burden.intValue(), xp);
+    }
+
+    private static String stringValue(JsonObject obj, String key) {
+        JsonElement val = obj.get(key);
+        if (val == null || val.isJsonNull() || !val.isJsonPrimitive()) {
+            return null;
+        }
+        return val.getAsString();
+    }
+
+    private static Long longValue(JsonObject obj, String key) {
+        JsonElement val = obj.get(key);
+        if (val == null || val.isJsonNull()) {
+            return null;
+        }
+        try {
+            return val.getAsLong();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reader-thread GMCP front end. The module name is read straight from the subnegotiation
+ * bytes; modules outside {@code subscribedModules} are dropped without touching the JSON
+ * payload. A payload equal to the previous one for its module (for example an unchanged
+ * vitals tick) is also dropped, so listeners only ever see real changes.
+ */
+final class GmcpDispatcher {
+    private final Set<String> subscribedModules;
+    private final Charset charset;
+    private final Map<String, JsonElement> lastPayloads = new HashMap<>();
+
+    GmcpDispatcher(Set<String> subscribedModules, Charset charset) {
+        this.subscribedModules = subscribedModules;
+        this.charset = charset;
+    }
+
+    /**
+     * @return the decoded message, or {@code null} if nobody subscribes to the module or the
+     *         payload did not change
+     */
+    TelnetDecoder.GmcpMessage decode(byte[] data) {
+        int start = 0;
+        int end = data.length;
+        while (start < end && isSpace(data[start])) start++;
+        while (end > start && isSpace(data[end - 1])) end--;
+        if (start == end) {
+            return null;
+        }
+        int split = start;
+        while (split < end && data[split] != ' ') split++;
+
+        String command = new String(data, start, split - start, charset);
+        String module = Gmcp.normalizeModule(command);
+        if (!subscribedModules.contains(module)) {
+            return null;
+        }
+
+        JsonElement payload = JsonNull.INSTANCE;
+        if (split < end) {
+            String payloadText = new String(data, split + 1, end - split - 1, charset).trim();
+            if (!payloadText.isEmpty()) {
+                try {
+                    payload = JsonParser.parseString(payloadText);
+                } catch (Exception e) {
+                    payload = new JsonPrimitive(payloadText);
+                }
+            }
+        }
+
+        JsonElement previous = lastPayloads.put(module, payload);
+        if (payload.equals(previous)) {
+            return null;
+        }
+        return new TelnetDecoder.GmcpMessage(command, payload);
+    }
+
+    private static boolean isSpace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
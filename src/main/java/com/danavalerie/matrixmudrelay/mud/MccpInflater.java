@@ -0,0 +1,89 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import java.io.IOException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates an MCCP2 compressed inbound stream. A single {@link Inflater} and output
+ * buffer are reused for the whole connection; the server may end and restart the
+ * compressed stream any number of times.
+ */
+final class MccpInflater {
+    private final Inflater inflater = new Inflater();
+    private final byte[] output;
+    private boolean active;
+
+    MccpInflater(int bufferSize) {
+        this.output = new byte[bufferSize];
+    }
+
+    boolean isActive() {
+        return active;
+    }
+
+    void start() {
+        inflater.reset();
+        active = true;
+    }
+
+    void setInput(byte[] buf, int off, int len) {
+        inflater.setInput(buf, off, len);
+    }
+
+    /**
+     * Inflates as much pending input as fits into {@link #buffer()}.
+     *
+     * @return the number of bytes produced; 0 once the input is exhausted or the stream ended
+     */
+    int inflate() throws IOException {
+        if (!active) {
+            return 0;
+        }
+        try {
+            int produced = inflater.inflate(output, 0, output.length);
+            if (inflater.finished()) {
+                active = false;
+            }
+            return produced;
+        } catch (DataFormatException e) {
+            active = false;
+            throw new IOException("Corrupt MCCP stream: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the number of input bytes left over after the compressed stream ended;
+     *         these are plain telnet data
+     */
+    int remaining() {
+        return inflater.getRemaining();
+    }
+
+    byte[] buffer() {
+        return output;
+    }
+
+    void end() {
+        active = false;
+        inflater.end();
+    }
+}
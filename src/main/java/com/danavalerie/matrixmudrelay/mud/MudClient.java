@@ -19,7 +19,6 @@
 package com.danavalerie.matrixmudrelay.mud;
 
 import com.danavalerie.matrixmudrelay.config.ClientConfig;
-import com.danavalerie.matrixmudrelay.util.Sanitizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -27,19 +26,25 @@ import javax.swing.SwingUtilities;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
 import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CoderResult;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.zip.DeflaterOutputStream;
 
 public class MudClient {
     private static final Logger log = LoggerFactory.getLogger(MudClient.class);
+    private static final long NO_SEND = Long.MIN_VALUE;
+    private static final int READ_BUFFER_SIZE = 8192;
 
     public interface MudLineListener {
         void onLine(String line);
@@ -58,6 +63,23 @@ public class MudClient {
         void onConnectFailed(String message);
     }
 
+    /**
+     * Outbound pipeline metrics. Latencies are the time from sending a command to the prompt
+     * that acknowledges it, or -1 before the first prompt.
+     *
+     * @param queued commands waiting to be sent
+     * @param inFlight commands sent but not yet acknowledged by a prompt
+     */
+    public record OutboundStats(int queued, int inFlight, long lastEchoMs, long smoothedEchoMs) {
+    }
+
+    /**
+     * Outcome of {@link #replay}. {@code elapsedMs} runs until the last block had been
+     * delivered on the EDT.
+     */
+    public record ReplayResult(long blocks, long bytes, long elapsedMs, boolean stopped) {
+    }
+
     private final ClientConfig.Mud cfg;
     private final MudLineListener lineListener;
     private final MudDisconnectListener disconnectListener;
@@ -70,6 +92,17 @@ public class MudClient {
     private final AtomicReference<InputStream> in = new AtomicReference<>();
     private final AtomicReference<OutputStream> out = new AtomicReference<>();
     private final CurrentRoomInfo currentRoomInfo = new CurrentRoomInfo();
+    private final Object writeLock = new Object();
+    private final FrameCoalescingQueue edtQueue;
+    private volatile OutboundQueue outbound;
+    private volatile SessionRecorder recorder;
+    private final AtomicBoolean replaying = new AtomicBoolean(false);
+    private final RttHistogram rtt = new RttHistogram();
+    /** When the oldest command not yet answered was written, or {@link #NO_SEND}. */
+    private final AtomicLong rttSentNanos = new AtomicLong(NO_SEND);
+    /** Whether this connection has seen a GA/EOR prompt; until then any inbound data answers a command. */
+    private volatile boolean promptsSeen;
+    private final Set<String> gmcpModules = ConcurrentHashMap.newKeySet();
     private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
         Thread t = new Thread(r, "mud-write");
         t.setDaemon(true);
@@ -82,6 +115,8 @@ public class MudClient {
         this.cfg = cfg;
         this.lineListener = lineListener;
         this.disconnectListener = disconnectListener;
+        this.edtQueue = new FrameCoalescingQueue(text -> this.lineListener.onLine(text));
+        gmcpModules.addAll(List.of(Gmcp.ROOM_INFO, Gmcp.CHAR_VITALS, Gmcp.CHAR_INFO));
     }
 
     public boolean isConnected() {
@@ -92,6 +127,15 @@ public class MudClient {
         this.gmcpListener = gmcpListener;
     }
 
+    /**
+     * Asks the reader to decode and forward an extra GMCP module. Only room.info, char.vitals
+     * and char.info are decoded by default; everything else is dropped unparsed. The server
+     * is told about the module at the next GMCP handshake.
+     */
+    public void subscribeGmcp(String module) {
+        gmcpModules.add(Gmcp.normalizeModule(module));
+    }
+
     public void setConnectListener(MudConnectListener connectListener) {
         this.connectListener = connectListener;
     }
@@ -100,17 +144,132 @@ public class MudClient {
         return currentRoomInfo.getSnapshot();
     }
 
+    /**
+     * Round trip from writing a command to the next prompt (IAC GA/EOR) or GMCP room.info
+     * change, measured on the reader thread so EDT rendering stalls don't count. Text that
+     * was already in flight, such as combat or channel spam, does not end a sample. A server
+     * that never marks its prompts falls back to the next block of inbound data.
+     */
+    public RttHistogram.Summary getRttSummary() {
+        return rtt.summary();
+    }
+
+    public OutboundStats getOutboundStats() {
+        OutboundQueue queue = outbound;
+        return queue == null ? new OutboundStats(0, 0, -1, -1) : queue.stats();
+    }
+
+    /**
+     * Starts capturing the raw inbound stream to {@code file}, replacing any current recording.
+     */
+    public void startRecording(Path file) throws IOException {
+        SessionRecorder previous = recorder;
+        recorder = new SessionRecorder(file);
+        closeQuietly(previous);
+        log.info("session recording started file={}", file);
+    }
+
+    /**
+     * @return the finished recording's path, or {@code null} if nothing was being recorded
+     */
+    public Path stopRecording() {
+        SessionRecorder current = recorder;
+        recorder = null;
+        if (current == null) {
+            return null;
+        }
+        closeQuietly(current);
+        log.info("session recording stopped file={} bytes={}", current.path(), current.size());
+        return current.path();
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    public boolean isReplaying() {
+        return replaying.get();
+    }
+
+    /**
+     * Feeds a {@link SessionRecording} through the same decode pipeline as a live connection,
+     * on a background thread. Text and GMCP reach the registered listeners exactly as they
+     * would from the socket. With {@code realTime} the original timing between blocks is
+     * kept; otherwise blocks are fed as fast as the EDT drains them.
+     *
+     * @throws IllegalStateException if connected or another replay is running
+     */
+    public CompletableFuture<ReplayResult> replay(Path file, boolean realTime) throws IOException {
+        if (connected.get()) {
+            throw new IllegalStateException("Disconnect before replaying a session");
+        }
+        SessionRecording recording = SessionRecording.open(file);
+        if (!replaying.compareAndSet(false, true)) {
+            closeQuietly(recording);
+            throw new IllegalStateException("A replay is already running");
+        }
+        CompletableFuture<ReplayResult> result = new CompletableFuture<>();
+        Thread replayThread = new Thread(() -> replayLoop(recording, realTime, result), "mud-replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+        log.info("session replay started file={} realTime={}", file, realTime);
+        return result;
+    }
+
+    public void stopReplay() {
+        replaying.set(false);
+    }
+
+    private void replayLoop(SessionRecording recording, boolean realTime, CompletableFuture<ReplayResult> result) {
+        InboundPipeline pipeline = new InboundPipeline(Charset.forName(cfg.charset), replaying::get, true);
+        long start = System.nanoTime();
+        long blocks = 0;
+        long bytes = 0;
+        try (recording) {
+            while (replaying.get() && recording.next()) {
+                if (realTime) {
+                    long waitNanos = start + recording.timestampNanos() - System.nanoTime();
+                    if (waitNanos > 0) {
+                        TimeUnit.NANOSECONDS.sleep(waitNanos);
+                    }
+                }
+                pipeline.accept(recording.data(), 0, recording.length());
+                blocks++;
+                bytes += recording.length();
+            }
+            boolean stopped = !replaying.get();
+            long finalBlocks = blocks;
+            long finalBytes = bytes;
+            edtQueue.offerEvent(() -> {
+                replaying.set(false);
+                ReplayResult done = new ReplayResult(finalBlocks, finalBytes,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), stopped);
+                log.info("session replay finished {}", done);
+                result.complete(done);
+            });
+        } catch (Exception e) {
+            log.warn("session replay failed", e);
+            replaying.set(false);
+            result.completeExceptionally(e);
+        } finally {
+            pipeline.close();
+        }
+    }
+
     public void connect() throws IOException {
         if (!connected.compareAndSet(false, true)) {
             return;
         }
 
+        outbound = new OutboundQueue(this::writeOutbound, Charset.forName(cfg.charset),
+                cfg.commandPacing, cfg.maxCommandsInFlight, TimeUnit.MILLISECONDS.toNanos(cfg.pacingTimeoutMs));
         try {
             Socket s = new Socket();
             s.connect(new InetSocketAddress(cfg.host, cfg.port), cfg.connectTimeoutMs);
             s.setTcpNoDelay(true);
 
             socket.set(s);
+            promptsSeen = false;
             in.set(s.getInputStream());
             out.set(s.getOutputStream());
 
@@ -152,160 +311,216 @@ public class MudClient {
 
     private void readLoop() {
         Charset cs = Charset.forName(cfg.charset);
-        DecodeState decodeState = new DecodeState(cs);
-        TelnetDecoder decoder = new TelnetDecoder(out::get, (opt, data) -> {
-            if (opt == (byte) 201) { // GMCP
-                String msg = new String(data, cs);
-                //log.debug("Received GMCP: {}", msg);
-                TelnetDecoder.GmcpMessage parsed = TelnetDecoder.parseGmcpMessage(msg);
-                if (parsed != null) {
-                    MudGmcpListener listener = gmcpListener;
-                    if (listener != null) {
-                        SwingUtilities.invokeLater(() -> {
-                            currentRoomInfo.update(parsed.command(), parsed.payload());
-                            listener.onGmcp(parsed);
-                        });
-                    }
-                }
-            }
-        });
+        InboundPipeline pipeline = new InboundPipeline(cs, connected::get, cfg.compression);
 
+        byte[] readBuffer = new byte[READ_BUFFER_SIZE];
         try {
             InputStream currentIn = in.get();
             while (connected.get() && currentIn != null) {
-                int b = currentIn.read();
+                int read = currentIn.read(readBuffer, 0, readBuffer.length);
 
-                if (b == -1) {
-                    SwingUtilities.invokeLater(() -> disconnect("eof", null));
+                if (read == -1) {
+                    edtQueue.offerEvent(() -> disconnect("eof", null));
                     return;
                 }
 
-                byte[] decoded = decoder.accept((byte) b);
-                String text = decodeState.append(decoded);
-                if (!text.isEmpty()) {
-                    SwingUtilities.invokeLater(() -> lineListener.onLine(text));
+                if (!promptsSeen) {
+                    closeRttSample();
                 }
+                record(readBuffer, read);
+                pipeline.accept(readBuffer, 0, read);
             }
         } catch (IOException e) {
             e.printStackTrace();
             if (connected.get()) {
-                SwingUtilities.invokeLater(() -> disconnect("io_error", e));
+                edtQueue.offerEvent(() -> disconnect("io_error", e));
             }
         } catch (Exception e) {
             e.printStackTrace();
             if (connected.get()) {
-                SwingUtilities.invokeLater(() -> disconnect("unexpected exception", e));
+                edtQueue.offerEvent(() -> disconnect("unexpected exception", e));
             }
+        } finally {
+            pipeline.close();
         }
     }
 
-    private static final int DECODE_BUFFER_SIZE = 8192;
-
-    private static final class DecodeState {
-        private final CharsetDecoder decoder;
-        private ByteBuffer pending;
-        private final CharBuffer chars;
-
-        private DecodeState(Charset cs) {
-            this.decoder = cs.newDecoder();
-            this.pending = ByteBuffer.allocate(DECODE_BUFFER_SIZE);
-            this.chars = CharBuffer.allocate(DECODE_BUFFER_SIZE);
+    private void closeRttSample() {
+        long sent = rttSentNanos.getAndSet(NO_SEND);
+        if (sent != NO_SEND) {
+            rtt.record(System.nanoTime() - sent);
         }
+    }
 
-        private String append(byte[] decoded) {
-            if (decoded.length == 0) {
-                return "";
+    private void record(byte[] data, int len) {
+        SessionRecorder current = recorder;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.record(data, 0, len);
+        } catch (IOException e) {
+            log.warn("session recording failed, stopping file={}", current.path(), e);
+            if (recorder == current) {
+                stopRecording();
             }
-            ensureCapacity(decoded.length);
-            pending.put(decoded);
-            pending.flip();
-
-            StringBuilder out = new StringBuilder();
-            while (true) {
-                chars.clear();
-                CoderResult result = decoder.decode(pending, chars, false);
-                chars.flip();
-                if (chars.hasRemaining()) {
-                    out.append(chars);
-                }
-                if (result.isOverflow()) {
-                    continue;
-                }
-                if (result.isUnderflow()) {
-                    break;
+        }
+    }
+
+    /**
+     * Turns raw socket bytes into text and GMCP messages: MCCP2 inflation, telnet filtering,
+     * then charset decoding. Owned by the reader thread; results reach the EDT through
+     * {@link FrameCoalescingQueue} once per frame.
+     */
+    private final class InboundPipeline {
+        private final MudTextDecoder textDecoder;
+        private final GmcpDispatcher gmcpDispatcher;
+        private final TelnetDecoder decoder;
+        private final MccpInflater inflater = new MccpInflater(READ_BUFFER_SIZE);
+        private final BooleanSupplier active;
+
+        /**
+         * @param active whether the source is still live; a producer blocked on the EDT gives
+         *               up waiting once this turns false
+         * @param compression whether MCCP may be negotiated; a replay always allows it, since
+         *                    the server only compresses if the recorded session agreed to it
+         */
+        private InboundPipeline(Charset cs, BooleanSupplier active, boolean compression) {
+            this.active = active;
+            this.textDecoder = new MudTextDecoder(cs);
+            this.gmcpDispatcher = new GmcpDispatcher(gmcpModules, cs);
+            this.decoder = new TelnetDecoder(MudClient.this::writeReply, this::onSubnegotiation,
+                    compression ? MudClient.this::startOutboundCompression : null);
+            this.decoder.setGmcpModules(gmcpModules);
+            this.decoder.setPromptListener(() -> {
+                promptsSeen = true;
+                closeRttSample();
+                OutboundQueue queue = outbound;
+                if (queue != null) {
+                    queue.onPrompt();
                 }
-                if (result.isError()) {
-                    throw new IllegalArgumentException("Failed to decode mud stream: " + result);
+            });
+        }
+
+        private void accept(byte[] buf, int off, int len) throws IOException {
+            int pos = off;
+            int end = off + len;
+            while (pos < end) {
+                if (inflater.isActive()) {
+                    inflater.setInput(buf, pos, end - pos);
+                    int produced;
+                    do {
+                        produced = inflater.inflate();
+                        if (produced > 0) {
+                            acceptPlain(inflater.buffer(), 0, produced);
+                        }
+                    } while (produced > 0 && inflater.isActive());
+                    if (inflater.isActive()) {
+                        return;
+                    }
+                    log.info("mud compression ended");
+                    pos = end - inflater.remaining();
+                } else {
+                    int dataLength = decoder.filter(buf, pos, end - pos);
+                    emitText(textDecoder.append(buf, pos, dataLength));
+                    pos += decoder.consumed();
+                    if (decoder.takeInboundCompressionStart()) {
+                        log.info("mud compression started");
+                        inflater.start();
+                    }
                 }
             }
-            pending.compact();
-            return stripCarriageReturns(out);
         }
 
-        private void ensureCapacity(int incoming) {
-            if (pending.remaining() >= incoming) {
-                return;
+        private void acceptPlain(byte[] buf, int off, int len) throws IOException {
+            int dataLength = decoder.filter(buf, off, len);
+            emitText(textDecoder.append(buf, off, dataLength));
+            if (decoder.takeInboundCompressionStart()) {
+                log.warn("ignoring nested mud compression start");
             }
-            int required = pending.position() + incoming;
-            int newSize = pending.capacity();
-            while (newSize < required) {
-                newSize *= 2;
-            }
-            ByteBuffer resized = ByteBuffer.allocate(newSize);
-            pending.flip();
-            resized.put(pending);
-            pending = resized;
         }
 
-        private static String stripCarriageReturns(CharSequence input) {
-            int length = input.length();
-            boolean hasCarriageReturn = false;
-            for (int i = 0; i < length; i++) {
-                if (input.charAt(i) == '\r') {
-                    hasCarriageReturn = true;
-                    break;
+        private void emitText(String text) {
+            edtQueue.offerText(text, active);
+        }
+
+        private void onSubnegotiation(byte opt, byte[] data) {
+            if (opt == (byte) 201) { // GMCP
+                TelnetDecoder.GmcpMessage parsed = gmcpDispatcher.decode(data);
+                if (parsed != null && Gmcp.ROOM_INFO.equals(parsed.module())) {
+                    closeRttSample();
                 }
-            }
-            if (!hasCarriageReturn) {
-                return input.toString();
-            }
-            StringBuilder filtered = new StringBuilder(length);
-            for (int i = 0; i < length; i++) {
-                char c = input.charAt(i);
-                if (c != '\r') {
-                    filtered.append(c);
+                if (parsed != null) {
+                    MudGmcpListener listener = gmcpListener;
+                    if (listener != null) {
+                        edtQueue.offerEvent(() -> {
+                            currentRoomInfo.update(parsed);
+                            listener.onGmcp(parsed);
+                        });
+                    }
                 }
             }
-            return filtered.toString();
+        }
+
+        private void close() {
+            inflater.end();
+        }
+    }
+
+    private void startOutboundCompression(byte[] startSequence) throws IOException {
+        synchronized (writeLock) {
+            OutputStream raw = out.get();
+            if (raw == null) {
+                return;
+            }
+            raw.write(startSequence);
+            raw.flush();
+            out.set(new DeflaterOutputStream(raw, true));
+            log.info("mud outbound compression started");
         }
     }
 
     public void sendLinesFromController(List<String> lines) {
         // Hard gate: never send unless connected at send time.
-        if (!connected.get()) {
+        OutboundQueue queue = outbound;
+        if (!connected.get() || queue == null) {
             throw new IllegalStateException("Not connected to MUD");
         }
-        writer.submit(() -> doWrite(lines));
+        queue.enqueue(lines);
+        writer.submit(() -> drainOutbound(queue));
     }
 
-    private void doWrite(List<String> lines) {
-        OutputStream currentOut = out.get();
-        if (!connected.get() || currentOut == null) return;
+    private void drainOutbound(OutboundQueue queue) {
         try {
-            for (String raw : lines) {
-                String line = raw == null ? "" : raw;
-                line = Sanitizer.sanitizeMudInput(line);
+            queue.drain();
+        } catch (IOException e) {
+            disconnect("write_error: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-//                log.info("Writing line: " + raw);
+    private void writeOutbound(byte[] data, int len) throws IOException {
+        synchronized (writeLock) {
+            OutputStream currentOut = out.get();
+            if (!connected.get() || currentOut == null) return;
+            // Stamp before writing so a fast reply can't be read before the send is recorded.
+            rttSentNanos.compareAndSet(NO_SEND, System.nanoTime());
+            currentOut.write(data, 0, len);
+            currentOut.flush();
+        }
+    }
 
-                // MUD line-oriented input; CRLF for telnet compatibility
-                currentOut.write(line.getBytes(Charset.forName(cfg.charset)));
-//                currentOut.write('\r');
-                currentOut.write('\n');
-            }
+    /**
+     * Writes a telnet negotiation reply from the reader thread. It shares {@link #writeLock}
+     * with outbound commands, since once MCCP3 is on both go through one deflater.
+     */
+    private void writeReply(byte[] reply) throws IOException {
+        synchronized (writeLock) {
+            OutputStream currentOut = out.get();
+            if (currentOut == null) return;
+            currentOut.write(reply);
             currentOut.flush();
-        } catch (IOException e) {
-            disconnect("write_error: " + e.getMessage(), e);
         }
     }
 
@@ -317,6 +532,11 @@ public class MudClient {
         InputStream i = in.getAndSet(null);
         OutputStream o = out.getAndSet(null);
         Socket s = socket.getAndSet(null);
+        rttSentNanos.set(NO_SEND);
+        OutboundQueue queue = outbound;
+        if (queue != null) {
+            queue.clear();
+        }
 
         closeQuietly(i);
         closeQuietly(o);
@@ -0,0 +1,182 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+
+/**
+ * Turns telnet-filtered data bytes into text, dropping carriage returns. Owned by one
+ * reader thread.
+ * <p>
+ * Single-byte charsets such as the default ISO-8859-1 take a fast path: each byte is
+ * widened through a 256-entry table straight into a reusable {@code char[]}, with no
+ * {@link CharsetDecoder} and no carry-over between blocks. Multi-byte charsets (UTF-8)
+ * keep the general decoder, which holds back incomplete sequences until the next block.
+ */
+final class MudTextDecoder {
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Byte-to-char table for single-byte charsets, or {@code null} for the general path. */
+    private final char[] table;
+    private char[] chars = new char[BUFFER_SIZE];
+
+    // General path only
+    private final CharsetDecoder decoder;
+    private ByteBuffer pending;
+    private final CharBuffer decoded;
+    private final StringBuilder out;
+
+    MudTextDecoder(Charset cs) {
+        this.table = singleByteTable(cs);
+        if (table == null) {
+            this.decoder = cs.newDecoder();
+            this.pending = ByteBuffer.allocate(BUFFER_SIZE);
+            this.decoded = CharBuffer.allocate(BUFFER_SIZE);
+            this.out = new StringBuilder(BUFFER_SIZE);
+        } else {
+            this.decoder = null;
+            this.pending = null;
+            this.decoded = null;
+            this.out = null;
+        }
+    }
+
+    boolean isSingleByte() {
+        return table != null;
+    }
+
+    String append(byte[] data, int off, int len) {
+        if (len == 0) {
+            return "";
+        }
+        return table != null ? widen(data, off, len) : decode(data, off, len);
+    }
+
+    private String widen(byte[] data, int off, int len) {
+        if (chars.length < len) {
+            chars = new char[Math.max(len, chars.length * 2)];
+        }
+        char[] dst = chars;
+        char[] map = table;
+        int n = 0;
+        for (int i = off, end = off + len; i < end; i++) {
+            char c = map[data[i] & 0xFF];
+            if (c != '\r') {
+                dst[n++] = c;
+            }
+        }
+        return new String(dst, 0, n);
+    }
+
+    private String decode(byte[] data, int off, int len) {
+        ensureCapacity(len);
+        pending.put(data, off, len);
+        pending.flip();
+
+        out.setLength(0);
+        while (true) {
+            decoded.clear();
+            CoderResult result = decoder.decode(pending, decoded, false);
+            decoded.flip();
+            if (decoded.hasRemaining()) {
+                out.append(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+            }
+            if (result.isOverflow()) {
+                continue;
+            }
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isError()) {
+                throw new IllegalArgumentException("Failed to decode mud stream: " + result);
+            }
+        }
+        pending.compact();
+        return stripCarriageReturns(out);
+    }
+
+    private void ensureCapacity(int incoming) {
+        if (pending.remaining() >= incoming) {
+            return;
+        }
+        int required = pending.position() + incoming;
+        int newSize = pending.capacity();
+        while (newSize < required) {
+            newSize *= 2;
+        }
+        ByteBuffer resized = ByteBuffer.allocate(newSize);
+        pending.flip();
+        resized.put(pending);
+        pending = resized;
+    }
+
+    private static String stripCarriageReturns(StringBuilder input) {
+        int length = input.length();
+        int write = 0;
+        for (int i = 0; i < length; i++) {
+            char c = input.charAt(i);
+            if (c != '\r') {
+                if (write != i) {
+                    input.setCharAt(write, c);
+                }
+                write++;
+            }
+        }
+        input.setLength(write);
+        return input.toString();
+    }
+
+    /**
+     * @return the char for every byte value if {@code cs} maps each byte to exactly one
+     *         char on its own, otherwise {@code null}
+     */
+    static char[] singleByteTable(Charset cs) {
+        if (!cs.canEncode()) {
+            return null;
+        }
+        CharsetEncoder encoder = cs.newEncoder();
+        CharsetDecoder probe = cs.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        if (encoder.maxBytesPerChar() != 1.0f || probe.maxCharsPerByte() != 1.0f) {
+            return null;
+        }
+        byte[] all = new byte[256];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = (byte) i;
+        }
+        try {
+            CharBuffer mapped = probe.decode(ByteBuffer.wrap(all));
+            if (mapped.remaining() != all.length) {
+                return null;
+            }
+            char[] table = new char[all.length];
+            mapped.get(table);
+            return table;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
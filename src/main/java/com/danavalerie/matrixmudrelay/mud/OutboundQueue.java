@@ -0,0 +1,218 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.util.Sanitizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound command pipeline. Queued lines are encoded with one cached encoder into a
+ * reusable buffer and handed to the {@link Sink} as a single write per batch.
+ * <p>
+ * With pacing enabled, at most {@code maxInFlight} commands are sent ahead of the server's
+ * prompts; each prompt (GA/EOR) releases one more. If no prompt arrives within
+ * {@code timeoutNanos} of the last send, the window is reset so a server that never marks
+ * its prompts cannot stall the queue. The time from a send to the prompt that acknowledges
+ * it is tracked as the send-to-echo latency.
+ * <p>
+ * {@link #enqueue} and {@link #onPrompt} may be called from any thread; {@link #drain} is
+ * only ever called from the single writer thread.
+ */
+final class OutboundQueue {
+    /** Most unacknowledged sends remembered; older ones are assumed lost. */
+    private static final int MAX_TRACKED_SENDS = 256;
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    interface Sink {
+        void write(byte[] data, int len) throws IOException;
+    }
+
+    private final Sink sink;
+    private final CharsetEncoder encoder;
+    private final boolean pacing;
+    private final int maxInFlight;
+    private final long timeoutNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition windowOpened = lock.newCondition();
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    /** Send times of commands not yet acknowledged by a prompt, oldest first. */
+    private final ArrayDeque<Long> sendTimes = new ArrayDeque<>();
+    private long lastSendNanos;
+    private long lastEchoNanos = -1;
+    private long smoothedEchoNanos = -1;
+
+    // Writer thread only
+    private final List<String> batch = new ArrayList<>();
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    OutboundQueue(Sink sink, Charset charset, boolean pacing, int maxInFlight, long timeoutNanos) {
+        this.sink = sink;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.pacing = pacing;
+        this.maxInFlight = Math.max(1, Math.min(MAX_TRACKED_SENDS, maxInFlight));
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    void enqueue(List<String> lines) {
+        lock.lock();
+        try {
+            for (String line : lines) {
+                pending.add(Sanitizer.sanitizeMudInput(line));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called on the reader thread for each server prompt.
+     */
+    void onPrompt() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Long sent = sendTimes.poll();
+            if (sent != null) {
+                long echo = now - sent;
+                lastEchoNanos = echo;
+                smoothedEchoNanos = smoothedEchoNanos < 0 ? echo : smoothedEchoNanos + (echo - smoothedEchoNanos) / 8;
+                windowOpened.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops everything queued and forgets outstanding sends, waking a paced {@link #drain}.
+     */
+    void clear() {
+        lock.lock();
+        try {
+            pending.clear();
+            sendTimes.clear();
+            windowOpened.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends everything queued, waiting for prompts between batches when pacing is enabled.
+     * Returns once the queue is empty.
+     */
+    void drain() throws IOException, InterruptedException {
+        while (takeBatch()) {
+            buffer.clear();
+            for (String line : batch) {
+                encode(line);
+            }
+            sink.write(buffer.array(), buffer.position());
+        }
+    }
+
+    MudClient.OutboundStats stats() {
+        lock.lock();
+        try {
+            return new MudClient.OutboundStats(pending.size(), sendTimes.size(),
+                    toMillis(lastEchoNanos), toMillis(smoothedEchoNanos));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean takeBatch() throws InterruptedException {
+        batch.clear();
+        lock.lock();
+        try {
+            if (pacing) {
+                while (!pending.isEmpty() && sendTimes.size() >= maxInFlight) {
+                    long waitNanos = lastSendNanos + timeoutNanos - System.nanoTime();
+                    if (waitNanos <= 0) {
+                        // No prompt in time: assume the server doesn't send them and open the window.
+                        sendTimes.clear();
+                        break;
+                    }
+                    windowOpened.awaitNanos(waitNanos);
+                }
+            }
+            int count = pacing ? Math.min(pending.size(), maxInFlight - sendTimes.size()) : pending.size();
+            if (count <= 0) {
+                return false;
+            }
+            long now = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                batch.add(pending.poll());
+                if (sendTimes.size() == MAX_TRACKED_SENDS) {
+                    sendTimes.poll();
+                }
+                sendTimes.add(now);
+            }
+            lastSendNanos = now;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void encode(String line) {
+        CharBuffer chars = CharBuffer.wrap(line);
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, buffer, true);
+        while (result.isOverflow()) {
+            grow();
+            result = encoder.encode(chars, buffer, true);
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            grow();
+        }
+        if (!buffer.hasRemaining()) {
+            grow();
+        }
+        // MUD line-oriented input; a bare LF is what the server expects
+        buffer.put((byte) '\n');
+    }
+
+    private void grow() {
+        ByteBuffer resized = ByteBuffer.allocate(buffer.capacity() * 2);
+        buffer.flip();
+        resized.put(buffer);
+        buffer = resized;
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-bucket latency histogram in milliseconds. Buckets are 1 ms wide below 64 ms, then
+ * each doubling is split into {@value #SUB_BUCKETS} equal buckets up to about 65 s, so
+ * percentiles are accurate to within ~6%. Recording is lock-free and allocation-free;
+ * any thread may record or read.
+ */
+public final class RttHistogram {
+    private static final int LINEAR_LIMIT = 64;
+    private static final int LINEAR_SHIFT = 6;
+    private static final int SUB_BUCKETS = 16;
+    private static final int SUB_BUCKET_SHIFT = 4;
+    private static final int DOUBLINGS = 10;
+    private static final int BUCKETS = LINEAR_LIMIT + DOUBLINGS * SUB_BUCKETS + 1;
+
+    public record Summary(long samples, long lastMs, long p50Ms, long p99Ms) {
+        public static final Summary EMPTY = new Summary(0, -1, -1, -1);
+    }
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private volatile long lastMs = -1;
+
+    public void record(long nanos) {
+        long ms = Math.max(0, TimeUnit.NANOSECONDS.toMillis(nanos));
+        counts.incrementAndGet(bucketFor(ms));
+        total.incrementAndGet();
+        lastMs = ms;
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    public long lastMillis() {
+        return lastMs;
+    }
+
+    /**
+     * @param fraction between 0 and 1, e.g. 0.99
+     * @return the upper bound of the bucket holding that percentile, or -1 with no samples
+     */
+    public long percentileMillis(double fraction) {
+        long samples = total.get();
+        if (samples == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * samples));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    public Summary summary() {
+        if (total.get() == 0) {
+            return Summary.EMPTY;
+        }
+        return new Summary(total.get(), lastMs, percentileMillis(0.50), percentileMillis(0.99));
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        lastMs = -1;
+    }
+
+    static int bucketFor(long ms) {
+        if (ms < LINEAR_LIMIT) {
+            return (int) ms;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(ms); // >= LINEAR_SHIFT
+        int doubling = magnitude - LINEAR_SHIFT;
+        if (doubling >= DOUBLINGS) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) ((ms >>> (magnitude - SUB_BUCKET_SHIFT)) & (SUB_BUCKETS - 1));
+        return LINEAR_LIMIT + doubling * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        if (bucket >= BUCKETS - 1) {
+            return 1L << (LINEAR_SHIFT + DOUBLINGS); // overflow: "at least this long"
+        }
+        int doubling = (bucket - LINEAR_LIMIT) / SUB_BUCKETS;
+        int sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        int magnitude = doubling + LINEAR_SHIFT;
+        long width = 1L << (magnitude - SUB_BUCKET_SHIFT);
+        return (1L << magnitude) + (sub + 1) * width - 1;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends raw inbound socket blocks to a memory-mapped recording file, exactly as they were
+ * read and before any telnet, MCCP or GMCP handling, so a replay exercises the whole decode
+ * pipeline. See {@link SessionRecording} for the file format.
+ * <p>
+ * The file is mapped in {@link #REGION_SIZE} chunks and the header's end offset is updated
+ * after every block, so a recording stays readable even if the client dies mid-session.
+ */
+public final class SessionRecorder implements Closeable {
+    static final long REGION_SIZE = 4L << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long startNanos = System.nanoTime();
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position = SessionRecording.HEADER_SIZE;
+    private boolean closed;
+
+    public SessionRecorder(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, SessionRecording.HEADER_SIZE);
+        header.putInt(0, SessionRecording.MAGIC);
+        header.putShort(4, SessionRecording.VERSION);
+        header.putLong(8, position);
+        mapRegion(0);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Appends one block with the current monotonic timestamp. Empty blocks are skipped.
+     */
+    public synchronized void record(byte[] data, int off, int len) throws IOException {
+        if (closed || len <= 0) {
+            return;
+        }
+        int needed = SessionRecording.BLOCK_HEADER_SIZE + len;
+        if (position + needed > regionStart + region.capacity()) {
+            mapRegion(needed);
+        }
+        int at = (int) (position - regionStart);
+        region.putLong(at, System.nanoTime() - startNanos);
+        region.putInt(at + 8, len);
+        region.put(at + SessionRecording.BLOCK_HEADER_SIZE, data, off, len);
+        position += needed;
+        header.putLong(8, position);
+    }
+
+    /**
+     * @return bytes written so far, including the file header
+     */
+    public synchronized long size() {
+        return position;
+    }
+
+    private void mapRegion(int minimum) throws IOException {
+        regionStart = position;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, regionStart, Math.max(REGION_SIZE, minimum));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        region.force();
+        header.force();
+        try {
+            channel.truncate(position);
+        } catch (IOException ignored) {
+            // Some platforms refuse to shrink a file that is still mapped; the header's end
+            // offset already tells readers where the data stops.
+        }
+        channel.close();
+    }
+}
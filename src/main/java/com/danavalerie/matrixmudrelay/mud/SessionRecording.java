@@ -0,0 +1,129 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader for files written by {@link SessionRecorder}.
+ * <p>
+ * Layout (big-endian): a 16 byte header holding the magic {@code "DWRC"}, a version short,
+ * two reserved bytes and the end offset of the last complete block; then one block per
+ * socket read, each an 8 byte timestamp in nanoseconds since recording started, a 4 byte
+ * length and that many raw bytes.
+ */
+public final class SessionRecording implements Closeable {
+    static final int MAGIC = 0x44575243;
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int BLOCK_HEADER_SIZE = 12;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final long end;
+    private byte[] data = new byte[8192];
+    private int length;
+    private long timestampNanos;
+
+    private SessionRecording(FileChannel channel, MappedByteBuffer map, long end) {
+        this.channel = channel;
+        this.map = map;
+        this.end = end;
+    }
+
+    /**
+     * Maps a recording for reading. Recordings larger than 2 GiB are not supported.
+     */
+    public static SessionRecording open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a session recording: " + path);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC) {
+                throw new IOException("Not a session recording: " + path);
+            }
+            if (map.getShort(4) != VERSION) {
+                throw new IOException("Unsupported session recording version " + map.getShort(4) + ": " + path);
+            }
+            long end = Math.min(map.getLong(8), size);
+            map.position(HEADER_SIZE);
+            return new SessionRecording(channel, map, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Advances to the next block.
+     *
+     * @return {@code false} at the end of the recording
+     */
+    public boolean next() throws IOException {
+        int pos = map.position();
+        if (pos + BLOCK_HEADER_SIZE > end) {
+            return false;
+        }
+        long timestamp = map.getLong(pos);
+        int len = map.getInt(pos + 8);
+        if (len <= 0 || pos + BLOCK_HEADER_SIZE + (long) len > end) {
+            throw new IOException("Corrupt session recording block at offset " + pos);
+        }
+        if (data.length < len) {
+            data = new byte[Math.max(len, data.length * 2)];
+        }
+        map.get(pos + BLOCK_HEADER_SIZE, data, 0, len);
+        map.position(pos + BLOCK_HEADER_SIZE + len);
+        timestampNanos = timestamp;
+        length = len;
+        return true;
+    }
+
+    /**
+     * @return the current block's bytes; valid up to {@link #length()} until the next call
+     *         to {@link #next()}, and free for the caller to modify
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return when the current block was read, in nanoseconds since recording started
+     */
+    public long timestampNanos() {
+        return timestampNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -19,20 +19,21 @@
 package com.danavalerie.matrixmudrelay.mud;
   
 import com.google.gson.JsonElement;
-import com.google.gson.JsonNull;
-import com.google.gson.JsonParser;
-import com.google.gson.JsonPrimitive;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.util.function.Supplier;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * Minimal Telnet negotiation tolerance:
  * - Strip IAC sequences from output.
  * - Reply WONT to DO, reply DONT to WILL (unsupported options).
  * - Ignore subnegotiation blocks.
+ * - Optionally negotiate MCCP2 (inbound) and MCCP3 (outbound) compression.
+ * - Report GA/EOR prompt markers to an optional {@link PromptListener}.
  */
 public final class TelnetDecoder {
     private static final byte IAC  = (byte)255;
@@ -42,11 +43,18 @@ public final class TelnetDecoder {
     private static final byte WILL = (byte)251;
     private static final byte SB   = (byte)250;
     private static final byte SE   = (byte)240;
+    private static final byte GA   = (byte)249;
+    private static final byte EOR_CMD = (byte)239;
 
     private static final byte TTYPE = (byte)24;
+    private static final byte EOR   = (byte)25;
+    private static final byte COMPRESS2 = (byte)86;
+    private static final byte COMPRESS3 = (byte)87;
     private static final byte MXP   = (byte)91;
     private static final byte GMCP  = (byte)201;
 
+    private static final byte[] NO_DATA = new byte[0];
+
     private static final byte IS   = (byte)0;
     private static final byte SEND = (byte)1;
 
@@ -56,61 +64,209 @@ public final class TelnetDecoder {
     private byte lastCmd = 0;
     private byte sbOpt = 0;
     private final ByteArrayOutputStream sbBuf = new ByteArrayOutputStream();
+    private boolean inboundCompressionStarted;
+    private int consumed;
 
-    private final Supplier<OutputStream> outSupplier;
+    private final ReplyWriter replyWriter;
     private final SubnegotiationListener subnegotiationListener;
+    private final CompressionListener compressionListener;
+    private volatile PromptListener promptListener;
+    private volatile Collection<String> gmcpModules = List.of(Gmcp.ROOM_INFO, Gmcp.CHAR_VITALS, Gmcp.CHAR_INFO);
+
+    /**
+     * Sends a complete negotiation reply. Each call carries one whole reply, so that the
+     * caller can write it in a single locked, flushed write alongside outbound commands.
+     */
+    public interface ReplyWriter {
+        void write(byte[] reply) throws IOException;
+    }
 
     public interface SubnegotiationListener {
         void onSubnegotiation(byte opt, byte[] data);
     }
 
-    public record GmcpMessage(String command, JsonElement payload) {}
+    /**
+     * Receives MCCP3 start requests. Implementations must write {@code startSequence}
+     * uncompressed and then route every later outbound byte through a deflater.
+     */
+    public interface CompressionListener {
+        void startOutboundCompression(byte[] startSequence) throws IOException;
+    }
+
+    /**
+     * Notified on the reader thread whenever the server marks the end of a prompt with
+     * IAC GA or IAC EOR.
+     */
+    public interface PromptListener {
+        void onPrompt();
+    }
+
+    /**
+     * A GMCP message. {@code value} holds the typed form from {@link Gmcp#decode} for the
+     * well-known modules, and is {@code null} otherwise.
+     */
+    public record GmcpMessage(String command, JsonElement payload, Object value) {
+        public GmcpMessage(String command, JsonElement payload) {
+            this(command, payload, Gmcp.decode(command, payload));
+        }
+
+        public String module() {
+            return Gmcp.normalizeModule(command);
+        }
+    }
+
+    public TelnetDecoder(ReplyWriter replyWriter, SubnegotiationListener subnegotiationListener) {
+        this(replyWriter, subnegotiationListener, null);
+    }
 
-    public TelnetDecoder(Supplier<OutputStream> outSupplier, SubnegotiationListener subnegotiationListener) {
-        this.outSupplier = outSupplier;
+    /**
+     * @param compressionListener when non-null, MCCP2 and MCCP3 are accepted; callers must then
+     *                            check {@link #takeInboundCompressionStart()} after every
+     *                            {@link #filter} call
+     */
+    public TelnetDecoder(ReplyWriter replyWriter,
+                         SubnegotiationListener subnegotiationListener,
+                         CompressionListener compressionListener) {
+        this.replyWriter = replyWriter;
         this.subnegotiationListener = subnegotiationListener;
+        this.compressionListener = compressionListener;
+    }
+
+    public void setPromptListener(PromptListener promptListener) {
+        this.promptListener = promptListener;
+    }
+
+    /**
+     * Sets the GMCP modules advertised in Core.Supports.Set when the server offers GMCP.
+     * The collection is read at handshake time, so a live view picks up later additions on
+     * the next connection.
+     */
+    public void setGmcpModules(Collection<String> gmcpModules) {
+        this.gmcpModules = gmcpModules;
     }
 
     public byte[] accept(byte b) throws IOException {
+        int data = step(b);
+        return data < 0 ? NO_DATA : new byte[]{ (byte) data };
+    }
+
+    /**
+     * Filters a block of raw socket bytes in place. Telnet commands and subnegotiations
+     * are consumed exactly as {@link #accept(byte)} would; the remaining data bytes are
+     * compacted to the front of the range. Runs of plain data between IACs are moved as a
+     * block rather than stepped through byte by byte.
+     * <p>
+     * Filtering stops early when the server starts an MCCP2 compressed stream; the bytes
+     * after {@link #consumed()} are then compressed and must be inflated before being
+     * passed back in.
+     *
+     * @return the number of data bytes now starting at {@code off}
+     */
+    public int filter(byte[] buf, int off, int len) throws IOException {
+        int write = off;
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            if (state == State.DATA || state == State.SB_DATA) {
+                // Pass the whole run up to the next IAC through without the state machine.
+                int run = i;
+                while (run < end && buf[run] != IAC) {
+                    run++;
+                }
+                int n = run - i;
+                if (n > 0) {
+                    if (state == State.SB_DATA) {
+                        sbBuf.write(buf, i, n);
+                    } else {
+                        if (write != i) {
+                            System.arraycopy(buf, i, buf, write, n);
+                        }
+                        write += n;
+                    }
+                    i = run;
+                    continue;
+                }
+            }
+            int data = step(buf[i++]);
+            if (data >= 0) {
+                buf[write++] = (byte) data;
+            } else if (inboundCompressionStarted) {
+                break;
+            }
+        }
+        consumed = i - off;
+        return write - off;
+    }
+
+    /**
+     * @return how many input bytes the last {@link #filter} call consumed
+     */
+    public int consumed() {
+        return consumed;
+    }
+
+    /**
+     * Returns whether an MCCP2 stream began during the last {@link #filter} call, clearing the flag.
+     */
+    public boolean takeInboundCompressionStart() {
+        boolean started = inboundCompressionStarted;
+        inboundCompressionStarted = false;
+        return started;
+    }
+
+    /**
+     * Advances the state machine by one byte.
+     *
+     * @return the data byte (0-255) to pass through, or -1 if the byte was consumed
+     */
+    private int step(byte b) throws IOException {
         switch (state) {
             case DATA -> {
-                if (b == IAC) { state = State.IAC; return new byte[0]; }
-                return new byte[]{ b };
+                if (b == IAC) { state = State.IAC; return -1; }
+                return b & 0xFF;
             }
             case IAC -> {
                 if (b == IAC) { // escaped 255
                     state = State.DATA;
-                    return new byte[]{ IAC };
+                    return IAC & 0xFF;
                 }
                 if (b == DO || b == DONT || b == WILL || b == WONT) {
                     lastCmd = b;
                     state = State.OPT;
-                    return new byte[0];
+                    return -1;
                 }
                 if (b == SB) {
                     state = State.SB;
-                    return new byte[0];
+                    return -1;
+                }
+                if (b == GA || b == EOR_CMD) {
+                    PromptListener listener = promptListener;
+                    if (listener != null) {
+                        listener.onPrompt();
+                    }
+                    state = State.DATA;
+                    return -1;
                 }
                 // Other telnet commands: ignore
                 state = State.DATA;
-                return new byte[0];
+                return -1;
             }
             case OPT -> {
                 byte opt = b;
                 handleNegotiation(lastCmd, opt);
                 state = State.DATA;
-                return new byte[0];
+                return -1;
             }
             case SB -> {
                 sbOpt = b;
                 sbBuf.reset();
                 state = State.SB_DATA;
-                return new byte[0];
+                return -1;
             }
             case SB_DATA -> {
                 if (b == IAC) { state = State.SB_IAC; }
                 else { sbBuf.write(b); }
-                return new byte[0];
+                return -1;
             }
             case SB_IAC -> {
                 if (b == SE) {
@@ -123,104 +279,86 @@ public final class TelnetDecoder {
                     // unexpected, but try to recover
                     state = State.SB_DATA;
                 }
-                return new byte[0];
+                return -1;
             }
         }
         state = State.DATA;
-        return new byte[0];
+        return -1;
     }
 
     private void handleNegotiation(byte cmd, byte opt) throws IOException {
-        OutputStream out = outSupplier.get();
-        if (out == null) return;
-
+        ByteArrayOutputStream reply = new ByteArrayOutputStream();
         if (cmd == DO) {
             if (opt == MXP || opt == TTYPE || opt == GMCP) {
-                send(out, WILL, opt);
+                command(reply, WILL, opt);
             } else {
-                send(out, WONT, opt);
+                command(reply, WONT, opt);
             }
         } else if (cmd == WILL) {
-            if (opt == MXP || opt == GMCP) {
-                send(out, DO, opt);
+            if (opt == MXP || opt == GMCP || opt == EOR) {
+                command(reply, DO, opt);
                 if (opt == GMCP) {
-                    sendGmcpHandshake(out);
+                    gmcpHandshake(reply);
                 }
+            } else if (opt == COMPRESS2 && compressionListener != null) {
+                command(reply, DO, opt);
+            } else if (opt == COMPRESS3 && compressionListener != null) {
+                replyWriter.write(new byte[]{ IAC, DO, opt });
+                compressionListener.startOutboundCompression(new byte[]{ IAC, SB, COMPRESS3, IAC, SE });
+                return;
             } else {
-                send(out, DONT, opt);
+                command(reply, DONT, opt);
             }
         }
+        if (reply.size() > 0) {
+            replyWriter.write(reply.toByteArray());
+        }
     }
 
     private void handleSubnegotiation(byte opt, byte[] data) throws IOException {
-        OutputStream out = outSupplier.get();
-        if (out == null) return;
-
+        if (opt == COMPRESS2 && compressionListener != null) {
+            inboundCompressionStarted = true;
+            return;
+        }
         if (opt == TTYPE && data.length > 0 && data[0] == SEND) {
-            out.write(IAC);
-            out.write(SB);
-            out.write(TTYPE);
-            out.write(IS);
-            out.write("ANSI".getBytes()); // Could be "MTTS 9" if we want to be fancy
-            out.write(IAC);
-            out.write(SE);
-            out.flush();
+            ByteArrayOutputStream reply = new ByteArrayOutputStream();
+            reply.write(IAC);
+            reply.write(SB);
+            reply.write(TTYPE);
+            reply.write(IS);
+            reply.writeBytes("ANSI".getBytes(StandardCharsets.US_ASCII)); // Could be "MTTS 9" if we want to be fancy
+            reply.write(IAC);
+            reply.write(SE);
+            replyWriter.write(reply.toByteArray());
         } else if (opt == GMCP) {
             if (subnegotiationListener != null) {
                 subnegotiationListener.onSubnegotiation(opt, data);
             }
-            String msg = new String(data);
-//            System.out.println("[DEBUG_LOG] GMCP: " + msg);
         }
     }
 
-    private void sendGmcpHandshake(OutputStream out) throws IOException {
+    private void gmcpHandshake(ByteArrayOutputStream reply) {
         // Send Core.Hello and Core.Supports.Set
-        sendGmcp(out, "Core.Hello { \"client\": \"dwclient-lesa\", \"version\": \"1.0.0\" }");
-        sendGmcp(out, "Core.Supports.Set [ \"room.info 1\", \"room.map 1\", \"char.vitals 1\", \"char.info 1\" ]");
-    }
-
-    private void sendGmcp(OutputStream out, String json) throws IOException {
-        out.write(IAC);
-        out.write(SB);
-        out.write(GMCP);
-        out.write(json.getBytes());
-        out.write(IAC);
-        out.write(SE);
-        out.flush();
-    }
-
-    private static void send(OutputStream out, byte cmd, byte opt) throws IOException {
-        out.write(IAC);
-        out.write(cmd);
-        out.write(opt);
-        out.flush();
-    }
-
-    public static GmcpMessage parseGmcpMessage(String msg) {
-        if (msg == null) return null;
-        String trimmed = msg.trim();
-        if (trimmed.isEmpty()) return null;
-        int split = trimmed.indexOf(' ');
-        String command;
-        String payloadText;
-        if (split == -1) {
-            command = trimmed;
-            payloadText = "";
-        } else {
-            command = trimmed.substring(0, split).trim();
-            payloadText = trimmed.substring(split + 1).trim();
-        }
-        if (command.isEmpty()) return null;
-        JsonElement payload = JsonNull.INSTANCE;
-        if (!payloadText.isEmpty()) {
-            try {
-                payload = JsonParser.parseString(payloadText);
-            } catch (Exception e) {
-                payload = new JsonPrimitive(payloadText);
-            }
-        }
-        return new GmcpMessage(command, payload);
+        gmcp(reply, "Core.Hello { \"client\": \"dwclient-lesa\", \"version\": \"1.0.0\" }");
+        String supports = gmcpModules.stream()
+                .sorted()
+                .map(module -> "\"" + module + " 1\"")
+                .collect(Collectors.joining(", "));
+        gmcp(reply, "Core.Supports.Set [ " + supports + " ]");
+    }
+
+    private static void gmcp(ByteArrayOutputStream reply, String json) {
+        reply.write(IAC);
+        reply.write(SB);
+        reply.write(GMCP);
+        reply.writeBytes(json.getBytes());
+        reply.write(IAC);
+        reply.write(SE);
     }
-}
 
+    private static void command(ByteArrayOutputStream reply, byte cmd, byte opt) {
+        reply.write(IAC);
+        reply.write(cmd);
+        reply.write(opt);
+    }
+}
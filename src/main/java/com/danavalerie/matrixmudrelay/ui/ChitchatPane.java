@@ -27,9 +27,11 @@ import javax.swing.text.StyleConstants;
 import javax.swing.text.StyleContext;
 import java.awt.Color;
 import java.awt.Font;
+import java.nio.file.Path;
 
 public final class ChitchatPane extends JTextPane implements AutoScrollable {
     private static final Color DEFAULT_COLOR = new Color(220, 220, 220);
+    private final ScrollbackLimiter scrollback = new ScrollbackLimiter();
     private boolean autoScroll = true;
 
     public ChitchatPane() {
@@ -64,6 +66,7 @@ public final class ChitchatPane extends JTextPane implements AutoScrollable {
                 getDocument().insertString(getDocument().getLength(), normalized, buildAttributes(color));
             } catch (BadLocationException ignored) {
             }
+            scrollback.trim(getDocument(), getDocument().getLength());
             if (autoScroll) {
                 setCaretPosition(getDocument().getLength());
             }
@@ -71,6 +74,16 @@ public final class ChitchatPane extends JTextPane implements AutoScrollable {
         runOnEdt(appendTask);
     }
 
+    /**
+     * Caps how much text the pane keeps; see {@link ScrollbackLimiter#configure}.
+     */
+    public void setScrollback(int maxLines, int maxChars, Path archive) {
+        runOnEdt(() -> {
+            scrollback.configure(maxLines, maxChars, archive);
+            scrollback.trim(getDocument(), getDocument().getLength());
+        });
+    }
+
     @Override
     public void setAutoScroll(boolean autoScroll) {
         this.autoScroll = autoScroll;
@@ -24,6 +24,7 @@ import com.danavalerie.matrixmudrelay.config.DeliveryRouteMappings;
 import com.danavalerie.matrixmudrelay.config.UiConfig;
 import com.danavalerie.matrixmudrelay.core.MenuPersistenceService;
 import com.danavalerie.matrixmudrelay.core.MudCommandProcessor;
+import com.danavalerie.matrixmudrelay.core.MudLineAssembler;
 import com.danavalerie.matrixmudrelay.core.WritMenuAction;
 import com.danavalerie.matrixmudrelay.core.RoomMapService;
 import com.danavalerie.matrixmudrelay.core.StoreInventoryTracker;
@@ -32,6 +33,7 @@ import com.danavalerie.matrixmudrelay.core.data.ShopItem;
 import com.danavalerie.matrixmudrelay.core.StatsHudRenderer;
 import com.danavalerie.matrixmudrelay.core.TimerService;
 import com.danavalerie.matrixmudrelay.core.RoomNoteService;
+import com.danavalerie.matrixmudrelay.core.SessionLog;
 import com.danavalerie.matrixmudrelay.core.WritTracker;
 import com.danavalerie.matrixmudrelay.ui.SpeedwalkMenuItem.SpeedwalkEstimate;
 import java.util.Optional;
@@ -39,7 +41,6 @@ import java.util.stream.Collectors;
 import com.danavalerie.matrixmudrelay.core.TeleportRegistry;
 import java.util.regex.Pattern;
 import com.danavalerie.matrixmudrelay.mud.MudClient;
-import com.danavalerie.matrixmudrelay.util.AnsiColorParser;
 import com.danavalerie.matrixmudrelay.util.GrammarUtils;
 import com.danavalerie.matrixmudrelay.util.PasswordPreferences;
 import org.slf4j.Logger;
@@ -69,6 +70,7 @@ import javax.swing.JViewport;
 import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.UIManager;
 import javax.swing.event.MenuEvent;
 import javax.swing.event.MenuListener;
@@ -103,6 +105,7 @@ import java.awt.event.WindowEvent;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
@@ -124,6 +127,9 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
     private static final int RESULTS_MENU_PAGE_SIZE = 15;
     private static final int WRIT_ITEM_SEARCH_LIMIT = 999;
     private static final int MAX_REGEN_RATE = 4;
+    // How long a partial line may wait for its newline before it is shown ungagged.
+    private static final int HELD_TEXT_DELAY_MS = 50;
+    private static final String DEFAULT_SESSION_LOG_DIR = "session-logs";
     private static final Map<Integer, String> KEYPAD_DIRECTIONS = Map.of(
             KeyEvent.VK_NUMPAD8, "north",
             KeyEvent.VK_NUMPAD2, "south",
@@ -172,14 +178,12 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
     private SpeedwalkMenuItem repeatLastSpeedwalkItem;
     private KeepOpenMenuItem writRouteMenuItem;
     private String currentCharacterName = null;
-    private final StringBuilder writLineBuffer = new StringBuilder();
     private String writCharacterName = null;
-    private final AnsiColorParser writParser = new AnsiColorParser();
-    private final StringBuilder writPendingEntity = new StringBuilder();
-    private String writPendingTail = "";
-    private final StringBuilder storeLineBuffer = new StringBuilder();
-    private Color writCurrentColor = AnsiColorParser.defaultColor();
-    private boolean writCurrentBold;
+    private final MudLineAssembler lineAssembler = new MudLineAssembler();
+    private final Timer heldTextTimer = new Timer(HELD_TEXT_DELAY_MS, e -> lineAssembler.flushHeldText());
+    private SessionLog sessionLog;
+    private SessionLogPanel sessionLogPanel;
+    private JSplitPane outputSearchSplit;
     private boolean forwardingKey;
     private boolean suppressNextKeyTyped;
     private boolean allowSplitPersist;
@@ -201,7 +205,8 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
     private JButton cancelTeleportButton;
 
 
-    public DesktopClientFrame(ClientConfig cfg, UiConfig uiCfg, Path configPath, DeliveryRouteMappings routeMappings, RoomMapService routeMapService) {
+    public DesktopClientFrame(ClientConfig cfg, UiConfig uiCfg, Path configPath, DeliveryRouteMappings routeMappings,
+                              RoomMapService routeMapService, RoomNoteService roomNotes) {
         super("Lesa's Discworld MUD Client");
         this.cfg = cfg;
         this.uiCfg = uiCfg;
@@ -210,7 +215,7 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
         this.configPath = configPath;
         this.routesPath = configPath.resolveSibling("delivery-routes.json");
         this.routeMappings = routeMappings;
-        this.roomButtonService = new RoomNoteService(configPath.resolveSibling("room-notes.json"));
+        this.roomButtonService = roomNotes;
         this.roomButtonService.populateMissingNames(this.routeMapService);
         this.roomButtonBarPanel = new RoomButtonBarPanel(roomButtonService, this::submitCommand);
         this.uuLibraryButtonPanel = new UULibraryButtonPanel(this::submitCommand);
@@ -266,8 +271,19 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
         this.timerPanel = new TimerPanel(timerService, () -> mud.getCurrentRoomSnapshot().characterName());
         outputPane.setChitchatListener((text, color) -> chitchatPane.appendChitchatLine(text, color));
         outputPane.setTriggers(cfg.triggers);
+        lineAssembler.setGags(cfg.gags, pattern -> SwingUtilities.invokeLater(() ->
+                outputPane.appendErrorText("Gag disabled, it is too slow: " + pattern.pattern())));
+        heldTextTimer.setRepeats(false);
+        applyScrollbackLimits();
         commandProcessor = new MudCommandProcessor(cfg, uiCfg, configPath, mud, routeMapService, writTracker, storeInventoryTracker, timerService, () -> routeMappings, this);
-        outputPane.setLineListener(line -> commandProcessor.onFullLineReceived(line));
+        lineAssembler.addListener(this::ingestTrackerLine);
+        outputPane.attachTo(lineAssembler);
+        lineAssembler.addListener(line -> commandProcessor.onFullLineReceived(line.trimmed()));
+        String sessionLogDir = cfg.ui.sessionLogDir != null ? cfg.ui.sessionLogDir : DEFAULT_SESSION_LOG_DIR;
+        if (!sessionLogDir.isBlank()) {
+            sessionLog = new SessionLog(Paths.get(sessionLogDir));
+            lineAssembler.addListener(sessionLog);
+        }
         SpeedwalkMenuItem.setEstimateProvider(this::estimateSpeedwalkForMenu);
         mapPanel.setSpeedwalkHandler(
                 location -> commandProcessor.speedwalkTo(location.roomId())
@@ -281,6 +297,7 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
         fontManager.registerListener(discworldTimePanel);
         fontManager.registerListener(font -> updateTheme(mapPanel.isInverted()));
 
+        statsPanel.setRttSource(mud::getRttSummary);
         statsPanel.setCharacterSelector(name -> {
             String current = statsPanel.getCurrentCharacterName();
             if (current == null) {
@@ -496,6 +513,14 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
         triggersItem.addActionListener(event -> showTriggerDialog());
         mainMenu.add(triggersItem);
 
+        KeepOpenMenuItem searchLogItem = new KeepOpenMenuItem("Search Session Log...", false);
+        if (currentBg != null && currentFg != null) {
+            updateMenuTheme(searchLogItem, currentBg, currentFg);
+        }
+        searchLogItem.setEnabled(sessionLog != null);
+        searchLogItem.addActionListener(event -> showSessionLogSearch());
+        mainMenu.add(searchLogItem);
+
         KeepOpenMenuItem editRoomItem = new KeepOpenMenuItem("Edit Current Room...", false);
         if (currentBg != null && currentFg != null) {
             updateMenuTheme(editRoomItem, currentBg, currentFg);
@@ -749,7 +774,7 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
 
 
     private void showTriggerDialog() {
-        TriggerConfigDialog dialog = new TriggerConfigDialog(this, cfg.triggers);
+        TriggerConfigDialog dialog = new TriggerConfigDialog(this, cfg.triggers, outputPane::triggerStats);
         if (currentBg != null && currentFg != null) {
             updateComponentTree(dialog.getContentPane(), currentBg, currentFg);
         }
@@ -2511,10 +2536,20 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
     }
 
     private void handleMudLine(String line) {
-        String normalized = normalizeWritOutput(line);
-        bufferWritLines(normalized);
-        bufferStoreInventoryLines(normalized);
-        outputPane.appendMudText(line);
+        lineAssembler.feed(line);
+        if (lineAssembler.hasHeldText()) {
+            heldTextTimer.restart();
+        } else {
+            heldTextTimer.stop();
+        }
+    }
+
+    private void ingestTrackerLine(MudLineAssembler.MudLine line) {
+        storeInventoryTracker.ingestLine(line.text());
+        if (writTracker.ingestLine(line.text())) {
+            writCharacterName = mud.getCurrentRoomSnapshot().characterName();
+            updateWritMenus(writTracker.getRequirements());
+        }
     }
 
     private void handleStoreBuy(int index, int quantity) {
@@ -2783,6 +2818,12 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
 
         JPanel inputPanel = new JPanel(new BorderLayout(6, 6));
         JButton sendButton = new JButton("Send");
+        JLabel burstIndicator = new JLabel("Burst");
+        burstIndicator.setForeground(new Color(255, 160, 0));
+        burstIndicator.setToolTipText("Output is flooding in; the display refreshes a few times a second until it slows down.");
+        burstIndicator.setVisible(false);
+        outputPane.setBurstListener(burstIndicator::setVisible);
+        inputPanel.add(burstIndicator, BorderLayout.WEST);
         inputPanel.add(inputField, BorderLayout.CENTER);
         inputPanel.add(sendButton, BorderLayout.EAST);
 
@@ -2821,7 +2862,19 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
             }
         });
 
-        JSplitPane outputSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT, chitchatTimerSplit, outputScroll);
+        JComponent outputArea = outputScroll;
+        if (sessionLog != null) {
+            sessionLogPanel = new SessionLogPanel(sessionLog, () -> setSessionLogSearchVisible(false));
+            sessionLogPanel.setVisible(false);
+            outputSearchSplit = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, outputScroll, sessionLogPanel);
+            outputSearchSplit.setContinuousLayout(true);
+            outputSearchSplit.setResizeWeight(0.6);
+            outputSearchSplit.setDividerSize(6);
+            outputSearchSplit.setBorder(null);
+            outputArea = outputSearchSplit;
+        }
+
+        JSplitPane outputSplit = new JSplitPane(JSplitPane.VERTICAL_SPLIT, chitchatTimerSplit, outputArea);
         outputSplit.setContinuousLayout(true);
         outputSplit.setResizeWeight(0.2);
         outputSplit.setDividerSize(6);
@@ -3237,144 +3290,46 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
         }
     }
 
-    private void shutdown() {
-        commandProcessor.shutdown();
-        mapPanel.shutdown();
-        try {
-            mud.disconnect("shutdown", null);
-        } catch (Exception ignored) {
+    private void applyScrollbackLimits() {
+        int lines = cfg.ui.scrollbackLines != null ? cfg.ui.scrollbackLines : ScrollbackLimiter.DEFAULT_MAX_LINES;
+        int chars = cfg.ui.scrollbackChars != null ? cfg.ui.scrollbackChars : ScrollbackLimiter.DEFAULT_MAX_CHARS;
+        String archiveDir = cfg.ui.scrollbackArchiveDir;
+        Path outputArchive = null;
+        Path chitchatArchive = null;
+        if (archiveDir != null && !archiveDir.isBlank()) {
+            outputArchive = Paths.get(archiveDir, "output.txt");
+            chitchatArchive = Paths.get(archiveDir, "chitchat.txt");
         }
+        outputPane.setScrollback(lines, chars, outputArchive);
+        chitchatPane.setScrollback(lines, chars, chitchatArchive);
     }
 
-    private void bufferWritLines(String text) {
-        if (text == null || text.isEmpty()) {
-            return;
-        }
-        writLineBuffer.append(text);
-        int start = 0;
-        boolean updated = false;
-        while (true) {
-            int newline = writLineBuffer.indexOf("\n", start);
-            if (newline == -1) {
-                break;
-            }
-            String line = writLineBuffer.substring(start, newline);
-            updated |= writTracker.ingest(line);
-            start = newline + 1;
-        }
-        if (start > 0) {
-            writLineBuffer.delete(0, start);
-        }
-        if (updated) {
-            var requirements = writTracker.getRequirements();
-            String charName = mud.getCurrentRoomSnapshot().characterName();
-            SwingUtilities.invokeLater(() -> {
-                writCharacterName = charName;
-                updateWritMenus(requirements);
-            });
-        }
+    private void showSessionLogSearch() {
+        setSessionLogSearchVisible(true);
+        sessionLogPanel.focusQuery();
     }
 
-    private void bufferStoreInventoryLines(String text) {
-        if (text == null || text.isEmpty()) {
+    private void setSessionLogSearchVisible(boolean visible) {
+        if (sessionLogPanel == null) {
             return;
         }
-        storeLineBuffer.append(text);
-        int start = 0;
-        while (true) {
-            int newline = storeLineBuffer.indexOf("\n", start);
-            if (newline == -1) {
-                break;
-            }
-            String line = storeLineBuffer.substring(start, newline);
-            storeInventoryTracker.ingest(line);
-            start = newline + 1;
-        }
-        if (start > 0) {
-            storeLineBuffer.delete(0, start);
-        }
-    }
-
-    private String normalizeWritOutput(String text) {
-        if (text == null || text.isEmpty()) {
-            return "";
-        }
-        String normalized = text.replace("\r", "");
-        String combined = writPendingTail + normalized;
-        AnsiColorParser.ParseResult result =
-                writParser.parseStreaming(combined, writCurrentColor, writCurrentBold);
-        writPendingTail = result.tail();
-        writCurrentColor = result.color();
-        writCurrentBold = result.bold();
-        return decodeEntitiesToPlain(result.segments());
-    }
-
-    private String decodeEntitiesToPlain(List<AnsiColorParser.Segment> segments) {
-        if (segments.isEmpty()) {
-            return "";
-        }
-        StringBuilder out = new StringBuilder();
-        StringBuilder literal = new StringBuilder();
-        for (AnsiColorParser.Segment segment : segments) {
-            String text = segment.text();
-            if (text.isEmpty()) {
-                continue;
-            }
-            for (int i = 0; i < text.length(); i++) {
-                char ch = text.charAt(i);
-                if (writPendingEntity.length() == 0) {
-                    if (ch == '&') {
-                        flushWritLiteral(out, literal);
-                        startWritEntity();
-                    } else {
-                        literal.append(ch);
-                    }
-                } else {
-                    if (ch == '&') {
-                        flushWritPendingEntity(out);
-                        startWritEntity();
-                    } else {
-                        writPendingEntity.append(ch);
-                        if (ch == ';') {
-                            out.append(decodeWritEntity(writPendingEntity.toString()));
-                            writPendingEntity.setLength(0);
-                        }
-                    }
-                }
-            }
-            flushWritLiteral(out, literal);
+        sessionLogPanel.setVisible(visible);
+        if (visible) {
+            outputSearchSplit.setDividerLocation(0.6);
         }
-        return out.toString();
-    }
-
-    private void startWritEntity() {
-        writPendingEntity.setLength(0);
-        writPendingEntity.append('&');
+        outputSearchSplit.revalidate();
     }
 
-    private void flushWritPendingEntity(StringBuilder out) {
-        if (writPendingEntity.length() == 0) {
-            return;
+    private void shutdown() {
+        commandProcessor.shutdown();
+        if (sessionLog != null) {
+            sessionLog.close();
         }
-        out.append(writPendingEntity);
-        writPendingEntity.setLength(0);
-    }
-
-    private static void flushWritLiteral(StringBuilder out, StringBuilder literal) {
-        if (literal.length() == 0) {
-            return;
+        mapPanel.shutdown();
+        try {
+            mud.disconnect("shutdown", null);
+        } catch (Exception ignored) {
         }
-        out.append(literal);
-        literal.setLength(0);
-    }
-
-    private static String decodeWritEntity(String entity) {
-        return switch (entity) {
-            case "&lt;" -> "<";
-            case "&gt;" -> ">";
-            case "&amp;" -> "&";
-            default -> entity;
-        };
     }
 
     private void updateTheme(boolean inverted) {
@@ -3490,14 +3445,18 @@ public final class DesktopClientFrame extends JFrame implements MudCommandProces
         com.danavalerie.matrixmudrelay.util.SoundUtils.playUULibraryAlertSound();
     }
 
-    public static void launch(ClientConfig cfg, UiConfig uiCfg, Path configPath, DeliveryRouteMappings routes, RoomMapService routeMapService) {
+    public static void installLookAndFeel() {
         try {
             UIManager.setLookAndFeel(UIManager.getCrossPlatformLookAndFeelClassName());
         } catch (Exception e) {
             System.err.println("Unable to set cross-platform look and feel: " + e.getMessage());
         }
+    }
+
+    public static void launch(ClientConfig cfg, UiConfig uiCfg, Path configPath, DeliveryRouteMappings routes,
+                              RoomMapService routeMapService, RoomNoteService roomNotes) {
         SwingUtilities.invokeLater(() -> {
-            DesktopClientFrame frame = new DesktopClientFrame(cfg, uiCfg, configPath, routes, routeMapService);
+            DesktopClientFrame frame = new DesktopClientFrame(cfg, uiCfg, configPath, routes, routeMapService, roomNotes);
             frame.setVisible(true);
         });
     }
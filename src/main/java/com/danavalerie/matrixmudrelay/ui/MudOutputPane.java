@@ -19,31 +19,59 @@
 package com.danavalerie.matrixmudrelay.ui;
 
 import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import com.danavalerie.matrixmudrelay.core.MudLineAssembler;
+import com.danavalerie.matrixmudrelay.core.TriggerEngine;
 import com.danavalerie.matrixmudrelay.util.AnsiColorParser;
 import com.danavalerie.matrixmudrelay.util.SoundUtils;
 import com.danavalerie.matrixmudrelay.util.ThreadUtils;
-
-import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.swing.JTextPane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
-import javax.swing.text.AttributeSet;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.SimpleAttributeSet;
-import javax.swing.text.StyleConstants;
-import javax.swing.text.StyleContext;
+import javax.swing.Timer;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsEnvironment;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
-import java.io.File;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
-public final class MudOutputPane extends JTextPane implements AutoScrollable {
+/**
+ * MUD output view. Text is kept in a {@link TerminalLineStore} and drawn on a fixed
+ * character grid, wrapping at the pane width; only the rows inside the clip are laid out
+ * and painted, so scrolling and repainting cost the same however long the scrollback is.
+ * Supports mouse selection with copy (Ctrl+C) and select-all (Ctrl+A). Trigger regexes
+ * run on a worker thread; only the resulting alert is applied on the EDT.
+ */
+public final class MudOutputPane extends JComponent implements Scrollable, AutoScrollable, MudLineAssembler.Listener {
     private static final Color SYSTEM_COLOR = new Color(120, 200, 255);
     private static final Color COMMAND_COLOR = new Color(255, 215, 0);
     private static final Color ERROR_COLOR = new Color(255, 80, 80);
@@ -52,38 +80,69 @@ public final class MudOutputPane extends JTextPane implements AutoScrollable {
     private static final Color ALERT_BACKGROUND = new Color(255, 255, 255);
     private static final Color TELL_COLOR = new Color(255, 235, 80);
     private static final Color TALKER_COLOR = new Color(180, 120, 255);
-
-    private List<AlertPattern> alertPatterns = new ArrayList<>();
-    private final AnsiColorParser parser = new AnsiColorParser();
-    private AttributeSet systemAttributes;
-    private AttributeSet commandAttributes;
-    private AttributeSet errorAttributes;
-    private String pendingTail = "";
-    private final StringBuilder pendingEntity = new StringBuilder();
-    private Color pendingEntityColor;
-    private boolean pendingEntityBold;
-    private Color currentColor = AnsiColorParser.defaultColor();
-    private boolean currentBold = false;
-    private final StringBuilder lineBuffer = new StringBuilder();
-    private int lineStartOffset = 0;
+    private static final Color SELECTION_COLOR = new Color(70, 100, 160);
+    private static final int DEFAULT_COLUMNS = 80;
+    /** More lines than this within one {@link #BURST_WINDOW_MS} window starts burst mode. */
+    static final int BURST_ENTER_LINES = 100;
+    /** Burst mode ends after a window with fewer lines than this. */
+    static final int BURST_EXIT_LINES = 25;
+    static final int BURST_WINDOW_MS = 250;
+
+    private static final Logger log = LoggerFactory.getLogger(MudOutputPane.class);
+    private static final ExecutorService triggerWorker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "trigger-matcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile TriggerEngine<AlertPattern> triggers = new TriggerEngine<>(List.of());
+    private MudLineAssembler source;
+    private final TerminalLineStore lines = new TerminalLineStore();
+    private final TerminalStyles styles = new TerminalStyles();
+    private int systemStyle;
+    private int commandStyle;
+    private int errorStyle;
+    private int[] parserStyles = new int[0];
+    private int pendingChangedFrom = -1;
+    private final ScrollbackLimiter scrollback = new ScrollbackLimiter();
     private BiConsumer<String, Color> chitchatListener;
-    private Consumer<String> lineListener;
     private boolean autoScroll = true;
 
+    // The last line from the source, as an absolute line number, and its length before any
+    // repeat counter, so that a collapsed repeat can update the counter in place.
+    private long lastLine = -1;
+    private int lastLineLength;
+
+    // Burst mode: while lines flood in, layout and scrolling happen once per window
+    // instead of once per chunk. Lines still reach the store and the triggers at once.
+    private final Timer burstTimer = new Timer(BURST_WINDOW_MS, e -> burstTick());
+    private boolean burstMode;
+    private int windowLines;
+    private long windowStartNanos = System.nanoTime();
+    private Consumer<Boolean> burstListener = active -> {
+    };
+
+    // Layout: rowEnd[i] is the number of wrapped rows in lines 0..i, valid below validLines.
+    private int[] rowEnd = new int[1024];
+    private int validLines;
+    private int columns = DEFAULT_COLUMNS;
+    private int cellWidth = 1;
+    private int lineHeight = 1;
+    private int ascent;
+    private Font boldFont;
+
+    // Selection endpoints as absolute line numbers (see TerminalLineStore#evictedLines).
+    private long anchorLine = -1;
+    private int anchorCol;
+    private long leadLine;
+    private int leadCol;
+
     public MudOutputPane() {
-        setEditable(false);
+        setOpaque(true);
+        setFocusable(true);
         updateTheme(true);
         setFont(new Font(Font.MONOSPACED, Font.PLAIN, 18));
-
-        // Hide the caret and prevent automatic scrolling on insertion
-        javax.swing.text.DefaultCaret caret = new javax.swing.text.DefaultCaret() {
-            @Override
-            public void paint(java.awt.Graphics g) {
-                // do nothing
-            }
-        };
-        caret.setUpdatePolicy(javax.swing.text.DefaultCaret.NEVER_UPDATE);
-        setCaret(caret);
+        installSelection();
     }
 
     public void updateTheme(boolean inverted) {
@@ -91,163 +150,670 @@ public final class MudOutputPane extends JTextPane implements AutoScrollable {
         setBackground(MapPanel.BACKGROUND_DARK);
         setForeground(MapPanel.FOREGROUND_LIGHT);
 
-        if (currentColor.equals(MapPanel.FOREGROUND_DARK)) {
-            currentColor = MapPanel.FOREGROUND_LIGHT;
+        systemStyle = styles.intern(SYSTEM_COLOR, null, true);
+        commandStyle = styles.intern(COMMAND_COLOR, null, false);
+        errorStyle = styles.intern(ERROR_COLOR, null, true);
+    }
+
+    /**
+     * Subscribes the pane to {@code source}, whose parser styles it displays.
+     */
+    public void attachTo(MudLineAssembler source) {
+        this.source = source;
+        source.addDisplayListener(this);
+    }
+
+    @Override
+    public void onText(char[] chars, int start, int end, int parserStyle) {
+        ThreadUtils.checkEdt();
+        if (pendingChangedFrom < 0) {
+            pendingChangedFrom = lines.lineCount() - 1;
+        }
+        lines.append(chars, start, end, terminalStyle(parserStyle));
+    }
+
+    /**
+     * Hands the line to the trigger worker; a match comes back to the EDT as
+     * {@link #applyAlert}.
+     */
+    @Override
+    public void onLine(MudLineAssembler.MudLine line) {
+        windowLines++;
+        // The newline that completed this line has just opened the last line.
+        int index = lines.lineCount() - 2;
+        lastLine = lines.evictedLines() + index;
+        lastLineLength = lines.lineLength(index);
+        TriggerEngine<AlertPattern> engine = triggers;
+        String trimmed = line.trimmed();
+        if (engine.isEmpty() || trimmed.isEmpty()) {
+            return;
         }
+        long absoluteLine = lines.evictedLines() + index;
+        String text = line.text();
+        triggerWorker.execute(() -> {
+            AlertPattern alertPattern;
+            try {
+                alertPattern = engine.match(trimmed);
+            } catch (RuntimeException | StackOverflowError e) {
+                log.warn("Trigger matching failed on: {}", trimmed, e);
+                return;
+            }
+            if (alertPattern != null) {
+                SwingUtilities.invokeLater(() -> applyAlert(absoluteLine, text, alertPattern));
+            }
+        });
+    }
 
-        StyleContext context = StyleContext.getDefaultStyleContext();
+    /**
+     * Shows a repeat of the last line, collapsed by a gag, as a counter on that line. If
+     * other output has come in between, the line is shown again with the counter.
+     */
+    @Override
+    public void onRepeat(MudLineAssembler.MudLine line, int count) {
+        windowLines++;
+        int index = (int) (lastLine - lines.evictedLines());
+        if (index >= 0 && index == lines.lineCount() - 2 && lines.lineLength(index + 1) == 0) {
+            cut(index, lastLineLength);
+        } else {
+            if (pendingChangedFrom < 0) {
+                pendingChangedFrom = lines.lineCount() - 1;
+            }
+            if (lines.lineLength(lines.lineCount() - 1) > 0) {
+                lines.append("\n", systemStyle);
+            }
+            String text = line.text();
+            for (int run = 0; run < line.runCount(); run++) {
+                lines.append(text, line.runStart(run), line.runEnds()[run], terminalStyle(line.runStyles()[run]));
+            }
+            lastLine = lines.evictedLines() + lines.lineCount() - 1;
+            lastLineLength = lines.lineLength(lines.lineCount() - 1);
+        }
+        lines.append(" (x" + count + ")\n", systemStyle);
+    }
 
-        SimpleAttributeSet system = new SimpleAttributeSet();
-        StyleConstants.setForeground(system, SYSTEM_COLOR);
-        StyleConstants.setBold(system, true);
-        systemAttributes = context.addAttributes(SimpleAttributeSet.EMPTY, system);
+    private void cut(int line, int length) {
+        long absoluteLine = lines.evictedLines() + line;
+        if (anchorLine >= absoluteLine || leadLine >= absoluteLine) {
+            anchorLine = -1;
+        }
+        lines.truncate(line, length);
+        if (pendingChangedFrom < 0 || line < pendingChangedFrom) {
+            pendingChangedFrom = line;
+        }
+    }
 
-        SimpleAttributeSet command = new SimpleAttributeSet();
-        StyleConstants.setForeground(command, COMMAND_COLOR);
-        commandAttributes = context.addAttributes(SimpleAttributeSet.EMPTY, command);
+    private void applyAlert(long absoluteLine, String text, AlertPattern alertPattern) {
+        int line = (int) (absoluteLine - lines.evictedLines());
+        if (line >= 0 && line < lines.lineCount()) {
+            lines.restyleLine(line, alertStyle(alertPattern));
+            repaint();
+        }
+        if (alertPattern.sound() != null) {
+            alertPattern.sound().run();
+        }
+        if (alertPattern.sendToChitchat() && chitchatListener != null) {
+            Color color = alertPattern.foreground() != null ? alertPattern.foreground() : DEFAULT_COLOR;
+            chitchatListener.accept(text, color);
+        }
+    }
 
-        SimpleAttributeSet error = new SimpleAttributeSet();
-        StyleConstants.setForeground(error, ERROR_COLOR);
-        StyleConstants.setBold(error, true);
-        errorAttributes = context.addAttributes(SimpleAttributeSet.EMPTY, error);
+    /**
+     * Blocks until every line queued for trigger matching so far has been matched and
+     * its alert, if any, applied. Must not be called on the EDT.
+     */
+    static void awaitTriggers() {
+        try {
+            triggerWorker.submit(() -> {}).get();
+            SwingUtilities.invokeAndWait(() -> {});
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
     }
 
-    public void appendMudText(String text) {
-        if (text == null || text.isEmpty()) {
+    @Override
+    public void onChunkEnd() {
+        if (burstMode) {
             return;
         }
-        String normalized = text.replace("\r", "");
-        String combined = pendingTail + normalized;
-        AnsiColorParser.ParseResult result = parser.parseStreaming(combined, currentColor, currentBold);
-        pendingTail = result.tail();
-        currentColor = result.color();
-        currentBold = result.bold();
-        appendSegments(decodeEntities(result.segments()));
+        if (windowLines > BURST_ENTER_LINES) {
+            // Show the chunk that started the flood at once; batch what follows.
+            setBurstMode(true);
+        } else {
+            long now = System.nanoTime();
+            if (now - windowStartNanos >= TimeUnit.MILLISECONDS.toNanos(BURST_WINDOW_MS)) {
+                windowStartNanos = now;
+                windowLines = 0;
+            }
+        }
+        flushPendingChanges();
+    }
+
+    private void flushPendingChanges() {
+        if (pendingChangedFrom >= 0) {
+            int changedFrom = pendingChangedFrom;
+            pendingChangedFrom = -1;
+            contentChanged(changedFrom);
+        }
+    }
+
+    /**
+     * Runs once per window during burst mode: shows what arrived, and ends the mode once
+     * the flood has died down.
+     */
+    private void burstTick() {
+        flushPendingChanges();
+        if (windowLines < BURST_EXIT_LINES) {
+            setBurstMode(false);
+        }
+        windowLines = 0;
+    }
+
+    private void setBurstMode(boolean active) {
+        burstMode = active;
+        windowLines = 0;
+        windowStartNanos = System.nanoTime();
+        if (active) {
+            burstTimer.start();
+        } else {
+            burstTimer.stop();
+        }
+        burstListener.accept(active);
+    }
+
+    boolean isBurstMode() {
+        return burstMode;
+    }
+
+    /**
+     * Told on the EDT when burst mode starts ({@code true}) and ends.
+     */
+    public void setBurstListener(Consumer<Boolean> burstListener) {
+        this.burstListener = burstListener;
     }
 
     public void appendSystemText(String text) {
         if (text == null || text.isBlank()) {
             return;
         }
-        String normalized = ensureTrailingNewline(decodeEntitiesOnce(text));
-        Runnable appendTask = () -> {
-            try {
-                getDocument().insertString(getDocument().getLength(), normalized, systemAttributes);
-            } catch (BadLocationException ignored) {
-            }
-            if (autoScroll) {
-                setCaretPosition(getDocument().getLength());
-            }
-        };
-        runOnEdt(appendTask);
+        appendStyled(ensureTrailingNewline(AnsiColorParser.decodeEntities(text)), systemStyle);
     }
 
     public void appendCommandEcho(String text) {
         if (text == null) {
             return;
         }
-        String normalized = ensureTrailingNewline(decodeEntitiesOnce(text));
-        Runnable appendTask = () -> {
-            try {
-                getDocument().insertString(getDocument().getLength(), normalized, commandAttributes);
-            } catch (BadLocationException ignored) {
-            }
-            if (autoScroll) {
-                setCaretPosition(getDocument().getLength());
-            }
-        };
-        runOnEdt(appendTask);
+        appendStyled(ensureTrailingNewline(AnsiColorParser.decodeEntities(text)), commandStyle);
     }
 
     public void appendErrorText(String text) {
         if (text == null || text.isBlank()) {
             return;
         }
-        String normalized = ensureTrailingNewline(decodeEntitiesOnce(text));
-        Runnable appendTask = () -> {
-            try {
-                getDocument().insertString(getDocument().getLength(), normalized, errorAttributes);
-            } catch (BadLocationException ignored) {
+        appendStyled(ensureTrailingNewline(AnsiColorParser.decodeEntities(text)), errorStyle);
+    }
+
+    private void appendStyled(String text, int style) {
+        runOnEdt(() -> {
+            if (pendingChangedFrom < 0) {
+                pendingChangedFrom = lines.lineCount() - 1;
             }
-            if (autoScroll) {
-                setCaretPosition(getDocument().getLength());
+            lines.append(text, style);
+            if (!burstMode) {
+                flushPendingChanges();
             }
-        };
-        runOnEdt(appendTask);
+        });
     }
 
-    private void appendSegments(List<AnsiColorParser.Segment> segments) {
-        if (segments.isEmpty()) {
-            return;
+    private int terminalStyle(int parserStyle) {
+        if (parserStyle >= parserStyles.length) {
+            int oldLength = parserStyles.length;
+            parserStyles = Arrays.copyOf(parserStyles, Math.max(parserStyle + 1, oldLength * 2));
+            Arrays.fill(parserStyles, oldLength, parserStyles.length, -1);
         }
-        Runnable appendTask = () -> {
-            ThreadUtils.checkEdt();
-            for (AnsiColorParser.Segment segment : segments) {
-                appendSegment(segment);
-            }
+        int style = parserStyles[parserStyle];
+        if (style < 0) {
+            style = styles.intern(source.color(parserStyle), null, MudLineAssembler.isBold(parserStyle));
+            parserStyles[parserStyle] = style;
+        }
+        return style;
+    }
+
+    private int alertStyle(AlertPattern alertPattern) {
+        Color foreground = alertPattern.foreground() != null ? alertPattern.foreground() : DEFAULT_COLOR;
+        return styles.intern(foreground, alertPattern.background(), alertPattern.bold());
+    }
+
+    /**
+     * Caps how much text the pane keeps; see {@link ScrollbackLimiter#configure}.
+     */
+    public void setScrollback(int maxLines, int maxChars, Path archive) {
+        runOnEdt(() -> {
+            scrollback.configure(maxLines, maxChars, archive);
+            contentChanged(lines.lineCount() - 1);
+        });
+    }
+
+    /**
+     * Trims the scrollback, drops stale layout from {@code changedFrom} on, and repaints,
+     * following the end of the text if auto-scroll is on.
+     */
+    private void contentChanged(int changedFrom) {
+        validLines = Math.min(validLines, changedFrom);
+        int removedRows = 0;
+        int evicted = scrollback.trim(lines);
+        if (evicted > 0) {
+            removedRows = dropLayout(evicted);
+        }
+        Dimension size = getPreferredSize();
+        if (getParent() instanceof JViewport viewport) {
+            setSize(viewport.getWidth(), Math.max(size.height, viewport.getHeight()));
             if (autoScroll) {
-                setCaretPosition(getDocument().getLength());
+                viewport.setViewPosition(new Point(0, Math.max(0, size.height - viewport.getHeight())));
+            } else if (removedRows > 0) {
+                Point position = viewport.getViewPosition();
+                viewport.setViewPosition(new Point(0, Math.max(0, position.y - removedRows * lineHeight)));
             }
-        };
-        runOnEdt(appendTask);
+        }
+        revalidate();
+        repaint();
     }
 
-    private void appendSegment(AnsiColorParser.Segment segment) {
-        String text = segment.text();
-        if (text.isEmpty()) {
-            return;
+    /**
+     * Shifts the row prefix sums after {@code evicted} lines were dropped from the front.
+     *
+     * @return the number of wrapped rows that went with them, if known
+     */
+    private int dropLayout(int evicted) {
+        if (validLines <= evicted) {
+            validLines = 0;
+            return 0;
+        }
+        int removedRows = rowEnd[evicted - 1];
+        for (int i = evicted; i < validLines; i++) {
+            rowEnd[i - evicted] = rowEnd[i] - removedRows;
+        }
+        validLines -= evicted;
+        return removedRows;
+    }
+
+    private void ensureRows() {
+        int count = lines.lineCount();
+        if (rowEnd.length < count) {
+            rowEnd = Arrays.copyOf(rowEnd, Math.max(count, rowEnd.length * 2));
         }
-        AttributeSet attributes = buildAttributes(segment.color(), segment.bold());
-        int index = 0;
-        while (index < text.length()) {
-            int newlineIndex = text.indexOf('\n', index);
-            if (newlineIndex == -1) {
-                String chunk = text.substring(index);
-                insertChunk(chunk, attributes);
-                lineBuffer.append(chunk);
-                break;
+        for (int i = validLines; i < count; i++) {
+            int rows = Math.max(1, (lines.lineLength(i) + columns - 1) / columns);
+            rowEnd[i] = (i == 0 ? 0 : rowEnd[i - 1]) + rows;
+        }
+        validLines = count;
+    }
+
+    private int totalRows() {
+        ensureRows();
+        return rowEnd[lines.lineCount() - 1];
+    }
+
+    /**
+     * @return the line that contains wrapped row {@code row}, clamped to the last line
+     */
+    private int lineForRow(int row) {
+        ensureRows();
+        int lo = 0;
+        int hi = lines.lineCount() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rowEnd[mid] > row) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
             }
-            String chunk = text.substring(index, newlineIndex + 1);
-            insertChunk(chunk, attributes);
-            lineBuffer.append(text, index, newlineIndex);
-            handleCompletedLine();
-            index = newlineIndex + 1;
         }
+        return lo;
     }
 
-    private void insertChunk(String chunk, AttributeSet attributes) {
-        ThreadUtils.checkEdt();
+    private void updateColumns(int width) {
+        if (width <= 0) {
+            return;
+        }
+        Insets insets = getInsets();
+        int cols = Math.max(1, (width - insets.left - insets.right) / cellWidth);
+        if (cols != columns) {
+            columns = cols;
+            validLines = 0;
+        }
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        if (font == null) {
+            return;
+        }
+        FontMetrics metrics = getFontMetrics(font);
+        cellWidth = Math.max(1, metrics.charWidth('M'));
+        lineHeight = Math.max(1, metrics.getHeight());
+        ascent = metrics.getAscent();
+        boldFont = font.deriveFont(Font.BOLD);
+        validLines = 0;
+        columns = -1;
+        updateColumns(getParent() instanceof JViewport viewport ? viewport.getWidth() : getWidth());
+        if (columns < 0) {
+            columns = DEFAULT_COLUMNS;
+        }
+        revalidate();
+        repaint();
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        updateColumns(width);
+        super.setBounds(x, y, width, height);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet()) {
+            return super.getPreferredSize();
+        }
+        if (getParent() instanceof JViewport viewport) {
+            updateColumns(viewport.getWidth());
+        }
+        Insets insets = getInsets();
+        return new Dimension(columns * cellWidth + insets.left + insets.right,
+                totalRows() * lineHeight + insets.top + insets.bottom);
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
         try {
-            getDocument().insertString(getDocument().getLength(), chunk, attributes);
-        } catch (BadLocationException ignored) {
+            Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+            if (hints instanceof Map<?, ?> map) {
+                g.addRenderingHints(map);
+            }
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            Insets insets = getInsets();
+            int total = totalRows();
+            int firstRow = Math.max(0, (clip.y - insets.top) / lineHeight);
+            int lastRow = Math.min(total - 1, (clip.y + clip.height - insets.top) / lineHeight);
+            int line = lineForRow(firstRow);
+            for (int row = firstRow; row <= lastRow; row++) {
+                while (rowEnd[line] <= row) {
+                    line++;
+                }
+                int rowInLine = row - (line == 0 ? 0 : rowEnd[line - 1]);
+                int from = rowInLine * columns;
+                int to = Math.min(lines.lineLength(line), from + columns);
+                paintRow(g, line, from, to, insets.left, insets.top + row * lineHeight,
+                        row == rowEnd[line] - 1);
+            }
+        } finally {
+            g.dispose();
         }
     }
 
-    private void handleCompletedLine() {
-        String fullLine = lineBuffer.toString();
-        lineBuffer.setLength(0);
-        String trimmed = fullLine.strip();
-        AlertPattern alertPattern = matchAlert(trimmed);
-        if (alertPattern != null) {
-            int lineEndOffset = getDocument().getLength();
-            try {
-                getDocument().remove(lineStartOffset, lineEndOffset - lineStartOffset);
-                AttributeSet attributes = buildAlertAttributes(alertPattern);
-                getDocument().insertString(lineStartOffset, fullLine + "\n", attributes);
-                if (alertPattern.sound() != null) {
-                    alertPattern.sound().run();
+    private void paintRow(Graphics2D g, int line, int from, int to, int left, int top, boolean lastRowOfLine) {
+        int lineStart = lines.lineStart(line);
+        int firstRun = lines.firstRun(line);
+        int endRun = lines.endRun(line);
+        for (int run = firstRun; run < endRun; run++) {
+            Color background = styles.background(lines.runStyle(run));
+            int start = Math.max(lines.runStart(run), lineStart + from);
+            int end = Math.min(lines.runEnd(run), lineStart + to);
+            if (background != null && start < end) {
+                g.setColor(background);
+                g.fillRect(left + (start - lineStart - from) * cellWidth, top, (end - start) * cellWidth, lineHeight);
+            }
+        }
+        long absolute = lines.evictedLines() + line;
+        if (hasSelection()) {
+            int selStart = selectionStartCol(absolute);
+            int selEnd = selectionEndCol(absolute);
+            if (selStart >= 0) {
+                int start = Math.max(selStart, from);
+                int end = Math.min(selEnd, to);
+                if (lastRowOfLine && selEnd > lines.lineLength(line)) {
+                    end++; // show the selected line break
+                }
+                if (start < end) {
+                    g.setColor(SELECTION_COLOR);
+                    g.fillRect(left + (start - from) * cellWidth, top, (end - start) * cellWidth, lineHeight);
                 }
-            } catch (BadLocationException ignored) {
             }
         }
-        if (alertPattern != null && alertPattern.sendToChitchat() && chitchatListener != null) {
-            Color color = alertPattern.foreground() != null ? alertPattern.foreground() : DEFAULT_COLOR;
-            chitchatListener.accept(fullLine, color);
+        char[] chars = lines.chars();
+        for (int run = firstRun; run < endRun; run++) {
+            int start = Math.max(lines.runStart(run), lineStart + from);
+            int end = Math.min(lines.runEnd(run), lineStart + to);
+            if (start >= end) {
+                continue;
+            }
+            int style = lines.runStyle(run);
+            g.setColor(styles.foreground(style));
+            g.setFont(styles.bold(style) ? boldFont : getFont());
+            g.drawChars(chars, start, end - start, left + (start - lineStart - from) * cellWidth, top + ascent);
+        }
+    }
+
+    private void installSelection() {
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+                requestFocusInWindow();
+                long[] position = positionAt(e.getPoint());
+                if (!e.isShiftDown() || anchorLine < 0) {
+                    anchorLine = position[0];
+                    anchorCol = (int) position[1];
+                }
+                leadLine = position[0];
+                leadCol = (int) position[1];
+                if (e.getClickCount() == 2) {
+                    selectWord();
+                }
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e) || anchorLine < 0) {
+                    return;
+                }
+                long[] position = positionAt(e.getPoint());
+                leadLine = position[0];
+                leadCol = (int) position[1];
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+
+        int shortcut = GraphicsEnvironment.isHeadless()
+                ? InputEvent.CTRL_DOWN_MASK
+                : Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_C, shortcut), "copy");
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_INSERT, InputEvent.CTRL_DOWN_MASK), "copy");
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_A, shortcut), "select-all");
+        getActionMap().put("copy", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                copy();
+            }
+        });
+        getActionMap().put("select-all", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                selectAll();
+            }
+        });
+    }
+
+    /**
+     * @return {absolute line, column} of the character boundary nearest {@code point}
+     */
+    private long[] positionAt(Point point) {
+        Insets insets = getInsets();
+        int total = totalRows();
+        int row = Math.max(0, Math.min(total - 1, (point.y - insets.top) / lineHeight));
+        int line = lineForRow(row);
+        int rowInLine = row - (line == 0 ? 0 : rowEnd[line - 1]);
+        int from = rowInLine * columns;
+        int to = Math.min(lines.lineLength(line), from + columns);
+        int col = from + Math.round((float) (point.x - insets.left) / cellWidth);
+        if (point.y < insets.top) {
+            col = 0;
+        } else if (point.y >= insets.top + total * lineHeight) {
+            col = lines.lineLength(line);
+        }
+        return new long[]{lines.evictedLines() + line, Math.max(from, Math.min(to, col))};
+    }
+
+    private void selectWord() {
+        int line = (int) (leadLine - lines.evictedLines());
+        if (line < 0 || line >= lines.lineCount()) {
+            return;
         }
-        if (lineListener != null) {
-            lineListener.accept(trimmed);
+        char[] chars = lines.chars();
+        int base = lines.lineStart(line);
+        int length = lines.lineLength(line);
+        int start = Math.min(leadCol, length);
+        int end = start;
+        while (start > 0 && !Character.isWhitespace(chars[base + start - 1])) {
+            start--;
+        }
+        while (end < length && !Character.isWhitespace(chars[base + end])) {
+            end++;
+        }
+        anchorLine = leadLine;
+        anchorCol = start;
+        leadCol = end;
+    }
+
+    public void selectAll() {
+        runOnEdt(() -> {
+            anchorLine = lines.evictedLines();
+            anchorCol = 0;
+            leadLine = lines.evictedLines() + lines.lineCount() - 1;
+            leadCol = lines.lineLength(lines.lineCount() - 1);
+            repaint();
+        });
+    }
+
+    private boolean hasSelection() {
+        return anchorLine >= 0 && (anchorLine != leadLine || anchorCol != leadCol);
+    }
+
+    private boolean anchorFirst() {
+        return anchorLine < leadLine || (anchorLine == leadLine && anchorCol <= leadCol);
+    }
+
+    /**
+     * @return the first selected column of the line, or -1 if none of it is selected
+     */
+    private int selectionStartCol(long absoluteLine) {
+        long startLine = anchorFirst() ? anchorLine : leadLine;
+        long endLine = anchorFirst() ? leadLine : anchorLine;
+        if (absoluteLine < startLine || absoluteLine > endLine) {
+            return -1;
+        }
+        return absoluteLine == startLine ? (anchorFirst() ? anchorCol : leadCol) : 0;
+    }
+
+    /**
+     * @return one past the last selected column, past the line length if the break is selected
+     */
+    private int selectionEndCol(long absoluteLine) {
+        long endLine = anchorFirst() ? leadLine : anchorLine;
+        return absoluteLine == endLine ? (anchorFirst() ? leadCol : anchorCol) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return the selected text, or null if nothing is selected
+     */
+    public String getSelectedText() {
+        if (!hasSelection()) {
+            return null;
+        }
+        long evicted = lines.evictedLines();
+        long startLine = anchorFirst() ? anchorLine : leadLine;
+        long endLine = anchorFirst() ? leadLine : anchorLine;
+        int startCol = anchorFirst() ? anchorCol : leadCol;
+        int endCol = anchorFirst() ? leadCol : anchorCol;
+        if (endLine < evicted) {
+            return null;
+        }
+        if (startLine < evicted) {
+            startLine = evicted;
+            startCol = 0;
+        }
+        StringBuilder out = new StringBuilder();
+        lines.appendText(out, (int) (startLine - evicted), startCol, (int) (endLine - evicted), endCol);
+        return out.toString();
+    }
+
+    public void copy() {
+        String selected = getSelectedText();
+        if (selected != null && !selected.isEmpty()) {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(selected), null);
+        }
+    }
+
+    /**
+     * @return all kept text, lines separated by {@code '\n'}
+     */
+    public String getText() {
+        StringBuilder out = new StringBuilder(lines.charCount() + lines.lineCount());
+        int last = lines.lineCount() - 1;
+        lines.appendText(out, 0, 0, last, lines.lineLength(last));
+        return out.toString();
+    }
+
+    int getLineCount() {
+        return lines.lineCount();
+    }
+
+    Color foregroundAt(int line, int col) {
+        int style = lines.styleAt(line, col);
+        return style < 0 ? null : styles.foreground(style);
+    }
+
+    Color backgroundAt(int line, int col) {
+        int style = lines.styleAt(line, col);
+        return style < 0 ? null : styles.background(style);
+    }
+
+    boolean isBoldAt(int line, int col) {
+        int style = lines.styleAt(line, col);
+        return style >= 0 && styles.bold(style);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight : cellWidth;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        if (orientation == SwingConstants.VERTICAL) {
+            return Math.max(lineHeight, visibleRect.height - lineHeight);
         }
-        lineStartOffset = getDocument().getLength();
+        return visibleRect.width;
     }
 
     @Override
@@ -255,21 +821,13 @@ public final class MudOutputPane extends JTextPane implements AutoScrollable {
         return true;
     }
 
-    private AttributeSet buildAlertAttributes(AlertPattern alertPattern) {
-        SimpleAttributeSet alert = new SimpleAttributeSet();
-        Color foreground = alertPattern.foreground() != null ? alertPattern.foreground() : DEFAULT_COLOR;
-        StyleConstants.setForeground(alert, foreground);
-        if (alertPattern.background() != null) {
-            StyleConstants.setBackground(alert, alertPattern.background());
-        }
-        if (alertPattern.bold()) {
-            StyleConstants.setBold(alert, true);
-        }
-        return alert;
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
     }
 
     public void setTriggers(List<ClientConfig.Trigger> triggers) {
-        List<AlertPattern> patterns = new ArrayList<>();
+        List<TriggerEngine.Rule<AlertPattern>> rules = new ArrayList<>();
         for (ClientConfig.Trigger t : triggers) {
             try {
                 Pattern p = Pattern.compile(t.pattern);
@@ -288,31 +846,20 @@ public final class MudOutputPane extends JTextPane implements AutoScrollable {
                         }
                     };
                 }
-                patterns.add(new AlertPattern(p, fg, bg, t.bold, sound, t.sendToChitchat));
+                rules.add(new TriggerEngine.Rule<>(p, new AlertPattern(fg, bg, t.bold, sound, t.sendToChitchat)));
             } catch (Exception e) {
                 System.err.println("Error parsing trigger: " + t.pattern + " - " + e.getMessage());
             }
         }
-        this.alertPatterns = patterns;
-    }
-
-    private AlertPattern matchAlert(String line) {
-        if (line.isEmpty()) {
-            return null;
-        }
-        for (AlertPattern alertPattern : alertPatterns) {
-            if (alertPattern.pattern().matcher(line).matches()) {
-                return alertPattern;
-            }
-        }
-        return null;
+        this.triggers = new TriggerEngine<>(rules, this.triggers, pattern -> SwingUtilities.invokeLater(() ->
+                appendErrorText("Trigger disabled, it is too slow: " + pattern.pattern())));
     }
 
-    private AttributeSet buildAttributes(Color color, boolean bold) {
-        SimpleAttributeSet attrs = new SimpleAttributeSet();
-        StyleConstants.setForeground(attrs, color);
-        StyleConstants.setBold(attrs, bold);
-        return attrs;
+    /**
+     * Cost counters for the trigger with this pattern, or null if it is not active.
+     */
+    public TriggerEngine.Stats triggerStats(String pattern) {
+        return triggers.stats(pattern);
     }
 
     private static void runOnEdt(Runnable task) {
@@ -334,10 +881,6 @@ public final class MudOutputPane extends JTextPane implements AutoScrollable {
         this.chitchatListener = chitchatListener;
     }
 
-    public void setLineListener(Consumer<String> lineListener) {
-        this.lineListener = lineListener;
-    }
-
     @Override
     public void setAutoScroll(boolean autoScroll) {
         this.autoScroll = autoScroll;
@@ -351,127 +894,12 @@ public final class MudOutputPane extends JTextPane implements AutoScrollable {
     @Override
     public void scrollToBottom() {
         runOnEdt(() -> {
-            setCaretPosition(getDocument().getLength());
             setAutoScroll(true);
+            contentChanged(lines.lineCount() - 1);
         });
     }
 
-    private List<AnsiColorParser.Segment> decodeEntities(List<AnsiColorParser.Segment> segments) {
-        if (segments.isEmpty()) {
-            return segments;
-        }
-        List<AnsiColorParser.Segment> decoded = new java.util.ArrayList<>();
-        for (AnsiColorParser.Segment segment : segments) {
-            String text = segment.text();
-            if (text.isEmpty()) {
-                continue;
-            }
-            StringBuilder literal = new StringBuilder();
-            for (int i = 0; i < text.length(); i++) {
-                char ch = text.charAt(i);
-                if (pendingEntity.length() == 0) {
-                    if (ch == '&') {
-                        flushLiteral(decoded, literal, segment.color(), segment.bold());
-                        startPendingEntity(segment.color(), segment.bold());
-                    } else {
-                        literal.append(ch);
-                    }
-                } else {
-                    if (ch == '&') {
-                        flushPendingEntityLiteral(decoded);
-                        startPendingEntity(segment.color(), segment.bold());
-                    } else {
-                        pendingEntity.append(ch);
-                        if (ch == ';') {
-                            String decodedEntity = decodeEntity(pendingEntity.toString());
-                            appendSegment(decoded, decodedEntity, pendingEntityColor, pendingEntityBold);
-                            pendingEntity.setLength(0);
-                        }
-                    }
-                }
-            }
-            flushLiteral(decoded, literal, segment.color(), segment.bold());
-        }
-        return decoded;
-    }
-
-    private void startPendingEntity(Color color, boolean bold) {
-        pendingEntity.setLength(0);
-        pendingEntity.append('&');
-        pendingEntityColor = color;
-        pendingEntityBold = bold;
-    }
-
-    private void flushPendingEntityLiteral(List<AnsiColorParser.Segment> segments) {
-        if (pendingEntity.length() == 0) {
-            return;
-        }
-        appendSegment(segments, pendingEntity.toString(), pendingEntityColor, pendingEntityBold);
-        pendingEntity.setLength(0);
-    }
-
-    private static void flushLiteral(List<AnsiColorParser.Segment> segments,
-                                     StringBuilder literal,
-                                     Color color,
-                                     boolean bold) {
-        if (literal.length() == 0) {
-            return;
-        }
-        appendSegment(segments, literal.toString(), color, bold);
-        literal.setLength(0);
-    }
-
-    private static void appendSegment(List<AnsiColorParser.Segment> segments,
-                                      String text,
-                                      Color color,
-                                      boolean bold) {
-        if (text.isEmpty()) {
-            return;
-        }
-        if (!segments.isEmpty()) {
-            AnsiColorParser.Segment last = segments.get(segments.size() - 1);
-            if (last.color().equals(color) && last.bold() == bold) {
-                segments.set(segments.size() - 1,
-                        new AnsiColorParser.Segment(last.text() + text, color, bold));
-                return;
-            }
-        }
-        segments.add(new AnsiColorParser.Segment(text, color, bold));
-    }
-
-    private static String decodeEntity(String entity) {
-        return switch (entity) {
-            case "&lt;" -> "<";
-            case "&gt;" -> ">";
-            case "&amp;" -> "&";
-            default -> entity;
-        };
-    }
-
-    private static String decodeEntitiesOnce(String text) {
-        StringBuilder out = new StringBuilder();
-        int i = 0;
-        while (i < text.length()) {
-            char ch = text.charAt(i);
-            if (ch != '&') {
-                out.append(ch);
-                i++;
-                continue;
-            }
-            int end = text.indexOf(';', i + 1);
-            if (end == -1) {
-                out.append(text.substring(i));
-                break;
-            }
-            String entity = text.substring(i, end + 1);
-            out.append(decodeEntity(entity));
-            i = end + 1;
-        }
-        return out.toString();
-    }
-
-    private record AlertPattern(Pattern pattern,
-                                Color foreground,
+    private record AlertPattern(Color foreground,
                                 Color background,
                                 boolean bold,
                                 Runnable sound,
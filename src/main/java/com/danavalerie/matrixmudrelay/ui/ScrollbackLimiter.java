@@ -0,0 +1,169 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.ui;
+
+import com.danavalerie.matrixmudrelay.util.ThreadUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps a pane's text within a line and character budget. Once either cap is
+ * exceeded the oldest whole paragraphs are removed in one batch, down to
+ * {@link #TRIM_TARGET_PERCENT}% of the cap, so the cost of a removal is paid rarely rather
+ * than on every appended line. Removed text can be appended to an archive file.
+ */
+final class ScrollbackLimiter {
+    static final int DEFAULT_MAX_LINES = 20_000;
+    static final int DEFAULT_MAX_CHARS = 4_000_000;
+    static final int TRIM_TARGET_PERCENT = 90;
+
+    private static final Logger log = LoggerFactory.getLogger(ScrollbackLimiter.class);
+    private static final ExecutorService archiveWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "scrollback-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private int maxLines = DEFAULT_MAX_LINES;
+    private int maxChars = DEFAULT_MAX_CHARS;
+    private Path archive;
+
+    /**
+     * @param maxLines paragraph cap, or 0 or less for no cap
+     * @param maxChars character cap, or 0 or less for no cap
+     * @param archive file that evicted text is appended to, or null to discard it
+     */
+    void configure(int maxLines, int maxChars, Path archive) {
+        this.maxLines = maxLines;
+        this.maxChars = maxChars;
+        this.archive = archive;
+    }
+
+    /**
+     * Evicts the oldest paragraphs if the document is over either cap. Nothing at or after
+     * {@code keepFrom} is removed, so a line still being assembled stays intact.
+     *
+     * @return the number of characters removed from the start of the document
+     */
+    int trim(Document doc, int keepFrom) {
+        ThreadUtils.checkEdt();
+        Element root = doc.getDefaultRootElement();
+        int lines = root.getElementCount();
+        int length = doc.getLength();
+        boolean overLines = maxLines > 0 && lines > maxLines;
+        boolean overChars = maxChars > 0 && length > maxChars;
+        if (!overLines && !overChars) {
+            return 0;
+        }
+        int end = 0;
+        if (overLines) {
+            int evict = lines - (int) ((long) maxLines * TRIM_TARGET_PERCENT / 100);
+            end = root.getElement(Math.min(evict, lines) - 1).getEndOffset();
+        }
+        if (overChars) {
+            int cut = length - (int) ((long) maxChars * TRIM_TARGET_PERCENT / 100);
+            end = Math.max(end, root.getElement(root.getElementIndex(cut)).getEndOffset());
+        }
+        end = Math.min(end, Math.min(keepFrom, length));
+        if (end <= 0) {
+            return 0;
+        }
+        try {
+            if (archive != null) {
+                archive(archive, doc.getText(0, end));
+            }
+            doc.remove(0, end);
+        } catch (BadLocationException e) {
+            return 0;
+        }
+        return end;
+    }
+
+    /**
+     * Drops the oldest lines of {@code store} if it is over either cap.
+     *
+     * @return the number of lines removed
+     */
+    int trim(TerminalLineStore store) {
+        int lines = store.lineCount() - 1;
+        boolean overLines = maxLines > 0 && lines > maxLines;
+        boolean overChars = maxChars > 0 && store.charCount() > maxChars;
+        if (!overLines && !overChars) {
+            return 0;
+        }
+        int evict = 0;
+        if (overLines) {
+            evict = lines - (int) ((long) maxLines * TRIM_TARGET_PERCENT / 100);
+        }
+        if (overChars) {
+            int cut = store.charCount() - (int) ((long) maxChars * TRIM_TARGET_PERCENT / 100);
+            evict = Math.max(evict, store.lineAtOffset(cut) + 1);
+        }
+        evict = Math.min(evict, lines);
+        if (evict <= 0) {
+            return 0;
+        }
+        if (archive != null) {
+            StringBuilder evicted = new StringBuilder();
+            store.appendText(evicted, 0, 0, evict, 0);
+            archive(archive, evicted.toString());
+        }
+        store.removeFirstLines(evict);
+        return evict;
+    }
+
+    private static void archive(Path file, String text) {
+        archiveWriter.execute(() -> {
+            try {
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                Files.writeString(file, text, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                log.warn("Failed to archive scrollback to {}", file, e);
+            }
+        });
+    }
+
+    /**
+     * Blocks until every archive write queued so far has finished.
+     */
+    static void awaitArchived() {
+        try {
+            archiveWriter.submit(() -> {}).get();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
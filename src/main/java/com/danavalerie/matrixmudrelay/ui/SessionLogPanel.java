@@ -0,0 +1,154 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.ui;
+
+import com.danavalerie.matrixmudrelay.core.SessionLog;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.JTextField;
+import javax.swing.SwingWorker;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Search box and results for the {@link SessionLog}, shown beside the MUD output.
+ */
+final class SessionLogPanel extends JPanel {
+    private static final int RESULT_LIMIT = 1000;
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private enum Range {
+        HOUR("Last hour", Duration.ofHours(1)),
+        DAY("Last day", Duration.ofDays(1)),
+        WEEK("Last week", Duration.ofDays(7)),
+        MONTH("Last 30 days", Duration.ofDays(30)),
+        ALL("All time", null);
+
+        private final String label;
+        private final Duration duration;
+
+        Range(String label, Duration duration) {
+            this.label = label;
+            this.duration = duration;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final SessionLog sessionLog;
+    private final JTextField queryField = new JTextField();
+    private final JComboBox<Range> rangeBox = new JComboBox<>(Range.values());
+    private final JTextArea results = new JTextArea();
+    private final JLabel status = new JLabel(" ");
+    private SwingWorker<List<SessionLog.Hit>, Void> running;
+
+    SessionLogPanel(SessionLog sessionLog, Runnable onClose) {
+        super(new BorderLayout(4, 4));
+        this.sessionLog = sessionLog;
+        setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
+
+        rangeBox.setSelectedItem(Range.WEEK);
+        JButton searchButton = new JButton("Search");
+        JButton closeButton = new JButton("Close");
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        buttons.add(rangeBox);
+        buttons.add(searchButton);
+        buttons.add(closeButton);
+        JPanel searchRow = new JPanel(new BorderLayout(4, 0));
+        searchRow.add(queryField, BorderLayout.CENTER);
+        searchRow.add(buttons, BorderLayout.EAST);
+        add(searchRow, BorderLayout.NORTH);
+
+        results.setEditable(false);
+        results.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(results), BorderLayout.CENTER);
+        add(status, BorderLayout.SOUTH);
+
+        queryField.addActionListener(e -> search());
+        searchButton.addActionListener(e -> search());
+        closeButton.addActionListener(e -> onClose.run());
+    }
+
+    void focusQuery() {
+        queryField.requestFocusInWindow();
+        queryField.selectAll();
+    }
+
+    private void search() {
+        if (running != null) {
+            running.cancel(false);
+        }
+        String query = queryField.getText();
+        Range range = (Range) rangeBox.getSelectedItem();
+        long now = System.currentTimeMillis();
+        long from = range == null || range.duration == null ? 0 : now - range.duration.toMillis();
+        long started = System.nanoTime();
+        status.setText("Searching\u2026");
+        running = new SwingWorker<>() {
+            @Override
+            protected List<SessionLog.Hit> doInBackground() throws Exception {
+                return sessionLog.search(query, from, Long.MAX_VALUE, RESULT_LIMIT);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    showHits(get(), (System.nanoTime() - started) / 1_000_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    status.setText("Search failed: " + e.getCause().getMessage());
+                }
+            }
+        };
+        running.execute();
+    }
+
+    private void showHits(List<SessionLog.Hit> hits, long elapsedMs) {
+        StringBuilder text = new StringBuilder();
+        for (SessionLog.Hit hit : hits) {
+            text.append(TIME_FORMAT.format(Instant.ofEpochMilli(hit.timeMillis())))
+                    .append("  ").append(hit.line()).append('\n');
+        }
+        results.setText(text.toString());
+        results.setCaretPosition(results.getDocument().getLength());
+        String count = hits.size() >= RESULT_LIMIT ? "Latest " + RESULT_LIMIT + " matches" : hits.size() + " matches";
+        status.setText(count + " in " + elapsedMs + " ms");
+    }
+}
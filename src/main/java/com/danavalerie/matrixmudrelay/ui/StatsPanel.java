@@ -19,6 +19,7 @@
 package com.danavalerie.matrixmudrelay.ui;
 
 import com.danavalerie.matrixmudrelay.core.StatsHudRenderer;
+import com.danavalerie.matrixmudrelay.mud.RttHistogram;
 import com.danavalerie.matrixmudrelay.util.ThreadUtils;
 
 import javax.swing.BorderFactory;
@@ -47,6 +48,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public final class StatsPanel extends JPanel implements FontChangeListener {
     private static final Color BACKGROUND = new Color(10, 10, 15);
@@ -67,6 +69,7 @@ public final class StatsPanel extends JPanel implements FontChangeListener {
     private static final int GP_TIMER_DEFAULT_INTERVAL_MS = 1000;
     private static final int HP_RATE_SAMPLE_SIZE = 5;
     private static final int HP_TIMER_DEFAULT_INTERVAL_MS = 1000;
+    private static final int RTT_REFRESH_INTERVAL_MS = 1000;
     private static final NumberFormat NUMBER_FORMAT = NumberFormat.getIntegerInstance(Locale.US);
 
     private final JMenuBar nameMenuBar = new JMenuBar();
@@ -82,6 +85,8 @@ public final class StatsPanel extends JPanel implements FontChangeListener {
     private final JProgressBar gpBar = buildBar(GP_COLOR);
     private final JProgressBar burdenBar = buildBar(BURDEN_COLOR);
     private final JProgressBar xpBar = buildBar(XP_COLOR);
+    private final JLabel rttLabel = new JLabel("RTT --");
+    private Supplier<RttHistogram.Summary> rttSource;
     private final List<JPanel> statGroups = new ArrayList<>();
     private final int[] gpRateSamples = new int[GP_RATE_SAMPLE_SIZE];
     private final Timer gpTimer;
@@ -135,6 +140,8 @@ public final class StatsPanel extends JPanel implements FontChangeListener {
         statusBar.add(buildStatGroup(burdenLabel, burdenBar));
         statusBar.add(Box.createHorizontalStrut(10));
         statusBar.add(buildStatGroup(xpLabel, xpBar));
+        statusBar.add(Box.createHorizontalStrut(10));
+        statusBar.add(rttLabel);
         statusBar.add(Box.createHorizontalGlue());
         add(statusBar, BorderLayout.CENTER);
 
@@ -145,6 +152,28 @@ public final class StatsPanel extends JPanel implements FontChangeListener {
         gpTimer.start();
         hpTimer = new Timer(HP_TIMER_DEFAULT_INTERVAL_MS, this::onHpTick);
         hpTimer.start();
+        new Timer(RTT_REFRESH_INTERVAL_MS, e -> refreshRtt()).start();
+    }
+
+    /**
+     * Supplies the command round-trip summary shown next to the bars; polled once a second.
+     */
+    public void setRttSource(Supplier<RttHistogram.Summary> rttSource) {
+        this.rttSource = rttSource;
+    }
+
+    private void refreshRtt() {
+        ThreadUtils.checkEdt();
+        RttHistogram.Summary summary = rttSource == null ? null : rttSource.get();
+        if (summary == null || summary.samples() == 0) {
+            rttLabel.setText("RTT --");
+            rttLabel.setToolTipText(null);
+            return;
+        }
+        rttLabel.setText("RTT " + summary.lastMs() + "ms (p50 " + summary.p50Ms() + " / p99 " + summary.p99Ms() + ")");
+        rttLabel.setToolTipText("Time from sending a command to the next prompt from the MUD, or to the"
+                + " next room change if that comes first, over " + format(summary.samples()) + " commands."
+                + " Until the MUD has sent a prompt, any data ends the timing.");
     }
 
     public void setCharacterSelector(Consumer<String> selector) {
@@ -260,6 +289,7 @@ public final class StatsPanel extends JPanel implements FontChangeListener {
         gpLabel.setFont(font);
         burdenLabel.setFont(font);
         xpLabel.setFont(font);
+        rttLabel.setFont(font);
         hpBar.setFont(font);
         gpBar.setFont(font);
         burdenBar.setFont(font);
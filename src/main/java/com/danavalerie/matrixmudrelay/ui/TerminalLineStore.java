@@ -0,0 +1,279 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.ui;
+
+import java.util.Arrays;
+
+/**
+ * Append-only store of styled text lines held in flat primitive arrays: one {@code char[]}
+ * of line text with the newlines left out, the start offset and first run of every line,
+ * and the start offset and style id of every run. The last line is always open and
+ * receives appended text; a {@code '\n'} closes it and opens the next.
+ * <p>
+ * Old lines are dropped from the front in batches with {@link #removeFirstLines}. Line
+ * indexes are relative to the oldest kept line; {@link #evictedLines()} converts them to
+ * stable absolute numbers. Not thread-safe; the output pane uses it on the EDT only.
+ */
+final class TerminalLineStore {
+    private static final int TAB_WIDTH = 8;
+
+    private char[] text = new char[16 * 1024];
+    private int textLength;
+    private int[] lineStart = new int[1024];
+    private int[] lineFirstRun = new int[1024];
+    private int lineCount = 1;
+    private int[] runStart = new int[1024];
+    private int[] runStyle = new int[1024];
+    private int runCount;
+    private long evictedLines;
+
+    /**
+     * Appends text in one style. Newlines end the current line, tabs are expanded to the
+     * next multiple of eight columns and other control characters are dropped.
+     */
+    void append(CharSequence s, int style) {
+        append(s, 0, s.length(), style);
+    }
+
+    void append(CharSequence s, int start, int end, int style) {
+        for (int i = start; i < end; i++) {
+            put(s.charAt(i), style);
+        }
+    }
+
+    void append(char[] chars, int start, int end, int style) {
+        for (int i = start; i < end; i++) {
+            put(chars[i], style);
+        }
+    }
+
+    private void put(char c, int style) {
+        if (c == '\n') {
+            newLine();
+        } else if (c == '\t') {
+            int spaces = TAB_WIDTH - lineLength(lineCount - 1) % TAB_WIDTH;
+            for (int k = 0; k < spaces; k++) {
+                appendChar(' ', style);
+            }
+        } else if (c >= ' ') {
+            appendChar(c, style);
+        }
+    }
+
+    private void appendChar(char c, int style) {
+        int last = lineCount - 1;
+        if (runCount == lineFirstRun[last] || runStyle[runCount - 1] != style) {
+            if (runCount == runStart.length) {
+                runStart = Arrays.copyOf(runStart, runCount * 2);
+                runStyle = Arrays.copyOf(runStyle, runCount * 2);
+            }
+            runStart[runCount] = textLength;
+            runStyle[runCount] = style;
+            runCount++;
+        }
+        if (textLength == text.length) {
+            text = Arrays.copyOf(text, textLength * 2);
+        }
+        text[textLength++] = c;
+    }
+
+    private void newLine() {
+        if (lineCount == lineStart.length) {
+            lineStart = Arrays.copyOf(lineStart, lineCount * 2);
+            lineFirstRun = Arrays.copyOf(lineFirstRun, lineCount * 2);
+        }
+        lineStart[lineCount] = textLength;
+        lineFirstRun[lineCount] = runCount;
+        lineCount++;
+    }
+
+    /**
+     * @return kept lines, including the open last line (so never less than one)
+     */
+    int lineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return kept characters, not counting line breaks
+     */
+    int charCount() {
+        return textLength;
+    }
+
+    /**
+     * @return lines dropped from the front so far; add to an index for an absolute line number
+     */
+    long evictedLines() {
+        return evictedLines;
+    }
+
+    int lineStart(int line) {
+        return lineStart[line];
+    }
+
+    int lineLength(int line) {
+        int end = line + 1 < lineCount ? lineStart[line + 1] : textLength;
+        return end - lineStart[line];
+    }
+
+    char[] chars() {
+        return text;
+    }
+
+    int firstRun(int line) {
+        return lineFirstRun[line];
+    }
+
+    /**
+     * @return one past the last run of {@code line}
+     */
+    int endRun(int line) {
+        return line + 1 < lineCount ? lineFirstRun[line + 1] : runCount;
+    }
+
+    int runStart(int run) {
+        return runStart[run];
+    }
+
+    int runEnd(int run) {
+        return run + 1 < runCount ? runStart[run + 1] : textLength;
+    }
+
+    int runStyle(int run) {
+        return runStyle[run];
+    }
+
+    /**
+     * @return the style of the character at {@code col}, or -1 if the line is shorter
+     */
+    int styleAt(int line, int col) {
+        if (col < 0 || col >= lineLength(line)) {
+            return -1;
+        }
+        int offset = lineStart[line] + col;
+        for (int run = firstRun(line); run < endRun(line); run++) {
+            if (offset < runEnd(run)) {
+                return runStyle[run];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the line holding character {@code offset} of {@link #chars()}
+     */
+    int lineAtOffset(int offset) {
+        int lo = 0;
+        int hi = lineCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (lineStart[mid] <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    String lineText(int line) {
+        return new String(text, lineStart[line], lineLength(line));
+    }
+
+    /**
+     * Appends columns {@code [fromCol, toCol)} of each line in the range to {@code out},
+     * with a newline after every line but the last.
+     */
+    void appendText(StringBuilder out, int fromLine, int fromCol, int toLine, int toCol) {
+        for (int line = fromLine; line <= toLine; line++) {
+            int len = lineLength(line);
+            int start = line == fromLine ? Math.min(fromCol, len) : 0;
+            int end = line == toLine ? Math.min(toCol, len) : len;
+            if (end > start) {
+                out.append(text, lineStart[line] + start, end - start);
+            }
+            if (line < toLine) {
+                out.append('\n');
+            }
+        }
+    }
+
+    /**
+     * Replaces every run of {@code line} with a single run in {@code style}.
+     */
+    void restyleLine(int line, int style) {
+        int first = firstRun(line);
+        int end = endRun(line);
+        if (lineLength(line) == 0) {
+            return;
+        }
+        runStyle[first] = style;
+        int removed = end - first - 1;
+        if (removed > 0) {
+            System.arraycopy(runStart, end, runStart, first + 1, runCount - end);
+            System.arraycopy(runStyle, end, runStyle, first + 1, runCount - end);
+            runCount -= removed;
+            for (int i = line + 1; i < lineCount; i++) {
+                lineFirstRun[i] -= removed;
+            }
+        }
+    }
+
+    /**
+     * Cuts the text back to the first {@code length} characters of {@code line}, which
+     * becomes the open last line again; everything after it is dropped.
+     */
+    void truncate(int line, int length) {
+        int end = lineStart[line] + Math.min(length, lineLength(line));
+        int run = lineFirstRun[line];
+        while (run < runCount && runStart[run] < end) {
+            run++;
+        }
+        runCount = run;
+        textLength = end;
+        lineCount = line + 1;
+    }
+
+    /**
+     * Drops the oldest {@code count} lines; the open last line is never dropped.
+     */
+    void removeFirstLines(int count) {
+        count = Math.min(count, lineCount - 1);
+        if (count <= 0) {
+            return;
+        }
+        int chars = lineStart[count];
+        int runs = lineFirstRun[count];
+        System.arraycopy(text, chars, text, 0, textLength - chars);
+        textLength -= chars;
+        System.arraycopy(runStart, runs, runStart, 0, runCount - runs);
+        System.arraycopy(runStyle, runs, runStyle, 0, runCount - runs);
+        runCount -= runs;
+        for (int i = 0; i < runCount; i++) {
+            runStart[i] -= chars;
+        }
+        lineCount -= count;
+        for (int i = 0; i < lineCount; i++) {
+            lineStart[i] = lineStart[i + count] - chars;
+            lineFirstRun[i] = lineFirstRun[i + count] - runs;
+        }
+        evictedLines += count;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.ui;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns foreground/background/bold combinations as small integer ids so that the line
+ * store can keep one {@code int} per styled run.
+ */
+final class TerminalStyles {
+    private record Style(Color foreground, Color background, boolean bold) {
+    }
+
+    private final List<Style> styles = new ArrayList<>();
+    private final Map<Style, Integer> ids = new HashMap<>();
+
+    /**
+     * @param background may be null for the pane background
+     */
+    int intern(Color foreground, Color background, boolean bold) {
+        Style style = new Style(foreground, background, bold);
+        Integer id = ids.get(style);
+        if (id == null) {
+            id = styles.size();
+            styles.add(style);
+            ids.put(style, id);
+        }
+        return id;
+    }
+
+    Color foreground(int id) {
+        return styles.get(id).foreground();
+    }
+
+    Color background(int id) {
+        return styles.get(id).background();
+    }
+
+    boolean bold(int id) {
+        return styles.get(id).bold();
+    }
+}
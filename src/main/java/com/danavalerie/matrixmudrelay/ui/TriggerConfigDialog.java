@@ -1,20 +1,29 @@
 package com.danavalerie.matrixmudrelay.ui;
 
 import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import com.danavalerie.matrixmudrelay.core.TriggerEngine;
 import com.danavalerie.matrixmudrelay.util.SoundUtils;
 import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 public class TriggerConfigDialog extends JDialog {
     private final List<ClientConfig.Trigger> triggers;
-    private final DefaultListModel<ClientConfig.Trigger> listModel = new DefaultListModel<>();
-    private final JList<ClientConfig.Trigger> triggerList = new JList<>(listModel);
+    private static final Color FLAGGED_COLOR = new Color(255, 80, 80);
+    private static final int STATS_REFRESH_MS = 1000;
+
+    private final Function<String, TriggerEngine.Stats> statsLookup;
+    private final TriggerTableModel tableModel = new TriggerTableModel();
+    private final JTable triggerTable = new JTable(tableModel);
+    private final Timer statsTimer = new Timer(STATS_REFRESH_MS, e -> refreshStats());
 
     private JTextField patternField;
     private JButton foregroundButton;
@@ -34,7 +43,16 @@ public class TriggerConfigDialog extends JDialog {
     private boolean saved = false;
 
     public TriggerConfigDialog(Frame owner, List<ClientConfig.Trigger> triggers) {
+        this(owner, triggers, pattern -> null);
+    }
+
+    /**
+     * @param statsLookup cost counters of the active trigger with a given pattern, or null
+     */
+    public TriggerConfigDialog(Frame owner, List<ClientConfig.Trigger> triggers,
+                               Function<String, TriggerEngine.Stats> statsLookup) {
         super(owner, "Triggers", true);
+        this.statsLookup = statsLookup;
         this.triggers = new ArrayList<>();
         for (ClientConfig.Trigger t : triggers) {
             this.triggers.add(cloneTrigger(t));
@@ -44,11 +62,18 @@ public class TriggerConfigDialog extends JDialog {
         loadTriggers();
 
         if (!this.triggers.isEmpty()) {
-            triggerList.setSelectedIndex(0);
+            triggerTable.setRowSelectionInterval(0, 0);
         }
 
-        setSize(700, 500);
+        setSize(1000, 500);
         setLocationRelativeTo(owner);
+        statsTimer.start();
+    }
+
+    @Override
+    public void dispose() {
+        statsTimer.stop();
+        super.dispose();
     }
 
     private void initComponents() {
@@ -56,25 +81,21 @@ public class TriggerConfigDialog extends JDialog {
 
         // List on the left
         JPanel listPanel = new JPanel(new BorderLayout());
-        triggerList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        triggerList.setCellRenderer(new DefaultListCellRenderer() {
-            @Override
-            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
-                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
-                if (value instanceof ClientConfig.Trigger t) {
-                    setText(t.pattern == null || t.pattern.isEmpty() ? "(new trigger)" : t.pattern);
-                }
-                return this;
-            }
-        });
-        triggerList.addListSelectionListener(e -> {
+        triggerTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        triggerTable.setFillsViewportHeight(true);
+        triggerTable.setDefaultRenderer(Object.class, new StatsCellRenderer());
+        triggerTable.getColumnModel().getColumn(0).setPreferredWidth(220);
+        for (int column = 1; column < tableModel.getColumnCount(); column++) {
+            triggerTable.getColumnModel().getColumn(column).setPreferredWidth(60);
+        }
+        triggerTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
                 updateEditor();
             }
         });
 
-        JScrollPane scrollPane = new JScrollPane(triggerList);
-        scrollPane.setPreferredSize(new Dimension(200, 0));
+        JScrollPane scrollPane = new JScrollPane(triggerTable);
+        scrollPane.setPreferredSize(new Dimension(480, 0));
         listPanel.add(scrollPane, BorderLayout.CENTER);
 
         JPanel listButtons = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -183,19 +204,21 @@ public class TriggerConfigDialog extends JDialog {
             ClientConfig.Trigger t = new ClientConfig.Trigger();
             t.pattern = "New Trigger";
             triggers.add(t);
-            listModel.addElement(t);
-            triggerList.setSelectedValue(t, true);
+            int row = triggers.size() - 1;
+            tableModel.fireTableRowsInserted(row, row);
+            triggerTable.setRowSelectionInterval(row, row);
+            triggerTable.scrollRectToVisible(triggerTable.getCellRect(row, 0, true));
         });
 
         removeButton.addActionListener(e -> {
-            int idx = triggerList.getSelectedIndex();
+            int idx = triggerTable.getSelectedRow();
             if (idx != -1) {
                 triggers.remove(idx);
-                listModel.remove(idx);
-                if (idx < listModel.size()) {
-                    triggerList.setSelectedIndex(idx);
-                } else if (!listModel.isEmpty()) {
-                    triggerList.setSelectedIndex(listModel.size() - 1);
+                tableModel.fireTableRowsDeleted(idx, idx);
+                if (idx < triggers.size()) {
+                    triggerTable.setRowSelectionInterval(idx, idx);
+                } else if (!triggers.isEmpty()) {
+                    triggerTable.setRowSelectionInterval(triggers.size() - 1, triggers.size() - 1);
                 }
             }
         });
@@ -291,14 +314,22 @@ public class TriggerConfigDialog extends JDialog {
     }
 
     private void loadTriggers() {
-        listModel.clear();
-        for (ClientConfig.Trigger t : triggers) {
-            listModel.addElement(t);
+        tableModel.fireTableDataChanged();
+    }
+
+    private void refreshStats() {
+        if (!triggers.isEmpty()) {
+            tableModel.fireTableRowsUpdated(0, triggers.size() - 1);
         }
     }
 
+    private ClientConfig.Trigger getSelectedTrigger() {
+        int row = triggerTable.getSelectedRow();
+        return row == -1 ? null : triggers.get(row);
+    }
+
     private void updateEditor() {
-        ClientConfig.Trigger t = triggerList.getSelectedValue();
+        ClientConfig.Trigger t = getSelectedTrigger();
         if (t == null) {
             setEnabledAll(false);
             return;
@@ -360,8 +391,9 @@ public class TriggerConfigDialog extends JDialog {
 
     private void saveCurrentTrigger() {
         if (isUpdating) return;
-        ClientConfig.Trigger t = triggerList.getSelectedValue();
-        if (t == null) return;
+        int row = triggerTable.getSelectedRow();
+        if (row == -1) return;
+        ClientConfig.Trigger t = triggers.get(row);
 
         t.pattern = patternField.getText();
         t.foreground = selectedForeground;
@@ -372,7 +404,7 @@ public class TriggerConfigDialog extends JDialog {
         t.soundFile = wavFileField.getText();
         t.sendToChitchat = chitchatCheckBox.isSelected();
         
-        triggerList.repaint();
+        tableModel.fireTableRowsUpdated(row, row);
     }
 
     private ClientConfig.Trigger cloneTrigger(ClientConfig.Trigger t) {
@@ -395,4 +427,79 @@ public class TriggerConfigDialog extends JDialog {
     public boolean isSaved() {
         return saved;
     }
+
+    private TriggerEngine.Stats statsAt(int row) {
+        String pattern = triggers.get(row).pattern;
+        return pattern == null ? null : statsLookup.apply(pattern);
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * One row per trigger: its pattern, then the cost counters of the running trigger
+     * with that pattern (blank until the edited pattern has been saved and used).
+     */
+    private class TriggerTableModel extends AbstractTableModel {
+        private final String[] columns = {"Pattern", "Evaluated", "Matched", "Total ms", "Max ms"};
+
+        @Override
+        public int getRowCount() {
+            return triggers.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if (column == 0) {
+                String pattern = triggers.get(row).pattern;
+                return pattern == null || pattern.isEmpty() ? "(new trigger)" : pattern;
+            }
+            TriggerEngine.Stats stats = statsAt(row);
+            if (stats == null) {
+                return "";
+            }
+            return switch (column) {
+                case 1 -> Long.toString(stats.evaluations());
+                case 2 -> Long.toString(stats.matches());
+                case 3 -> millis(stats.totalNanos());
+                default -> millis(stats.maxNanos());
+            };
+        }
+    }
+
+    /**
+     * Flags triggers whose slowest evaluation exceeded the outlier threshold, and those
+     * the engine has disabled.
+     */
+    private class StatsCellRenderer extends DefaultTableCellRenderer {
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int row, int column) {
+            super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            setHorizontalAlignment(column == 0 ? LEFT : RIGHT);
+            TriggerEngine.Stats stats = statsAt(row);
+            String warning = null;
+            if (stats != null && stats.isDisabled()) {
+                warning = "Disabled: too slow. Edit the pattern to re-enable it.";
+            } else if (stats != null && stats.isSlow()) {
+                warning = "An evaluation took over "
+                        + TriggerEngine.SLOW_EVALUATION_NANOS / 1_000_000 + " ms";
+            }
+            if (!isSelected) {
+                setForeground(warning != null ? FLAGGED_COLOR : table.getForeground());
+            }
+            setToolTipText(warning);
+            return this;
+        }
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Case-insensitive Aho-Corasick automaton: finds which of a fixed set of needles occur
+ * in a text in one pass over it. Immutable once built, so it can be shared between
+ * threads.
+ */
+public final class AhoCorasick {
+    private static final int[] NO_OUTPUT = new int[0];
+
+    private final char[][] keys;
+    private final int[][] targets;
+    private final int[] fail;
+    private final int[][] outputs;
+
+    /**
+     * @param needles needle {@code i} is reported as id {@code i}; null or empty entries
+     *                are skipped
+     */
+    public AhoCorasick(List<String> needles) {
+        List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        List<List<Integer>> found = new ArrayList<>();
+        edges.add(new TreeMap<>());
+        found.add(new ArrayList<>());
+        for (int id = 0; id < needles.size(); id++) {
+            String needle = needles.get(id);
+            if (needle == null || needle.isEmpty()) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0; i < needle.length(); i++) {
+                char ch = fold(needle.charAt(i));
+                Integer next = edges.get(state).get(ch);
+                if (next == null) {
+                    next = edges.size();
+                    edges.get(state).put(ch, next);
+                    edges.add(new TreeMap<>());
+                    found.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            found.get(state).add(id);
+        }
+
+        int size = edges.size();
+        keys = new char[size][];
+        targets = new int[size][];
+        for (int state = 0; state < size; state++) {
+            TreeMap<Character, Integer> map = edges.get(state);
+            keys[state] = new char[map.size()];
+            targets[state] = new int[map.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : map.entrySet()) {
+                keys[state][i] = edge.getKey();
+                targets[state][i] = edge.getValue();
+                i++;
+            }
+        }
+
+        // Breadth-first, so every failure target is finished before the states that use it.
+        fail = new int[size];
+        outputs = new int[size][];
+        outputs[0] = toArray(found.get(0));
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            outputs[child] = toArray(found.get(child));
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char ch = keys[state][i];
+                int child = targets[state][i];
+                int f = fail[state];
+                while (f != 0 && step(f, ch) < 0) {
+                    f = fail[f];
+                }
+                int target = step(f, ch);
+                fail[child] = target < 0 ? 0 : target;
+                outputs[child] = merge(toArray(found.get(child)), outputs[fail[child]]);
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Sets the id of every needle found in {@code text} in {@code hits}.
+     */
+    public void scan(CharSequence text, BitSet hits) {
+        int state = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char ch = fold(text.charAt(i));
+            int next = step(state, ch);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = step(state, ch);
+            }
+            state = next < 0 ? 0 : next;
+            for (int id : outputs[state]) {
+                hits.set(id);
+            }
+        }
+    }
+
+    private int step(int state, char ch) {
+        int index = Arrays.binarySearch(keys[state], ch);
+        return index < 0 ? -1 : targets[state][index];
+    }
+
+    private static char fold(char ch) {
+        return Character.toLowerCase(ch);
+    }
+
+    private static int[] toArray(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return NO_OUTPUT;
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] merge(int[] own, int[] inherited) {
+        if (inherited.length == 0) {
+            return own;
+        }
+        if (own.length == 0) {
+            return inherited;
+        }
+        int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+        return merged;
+    }
+}
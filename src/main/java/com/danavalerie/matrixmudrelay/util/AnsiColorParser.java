@@ -19,281 +19,436 @@
 package com.danavalerie.matrixmudrelay.util;
 
 import java.awt.Color;
+import java.nio.CharBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Streaming parser for the ANSI SGR colours, MXP line-mode escapes ({@code ESC[n z}) and
+ * MXP colour tags that Discworld sends, and decodes the {@code &lt;}, {@code &gt;} and
+ * {@code &amp;} entities that MXP uses to escape text. Input may be split anywhere; a
+ * partial escape, tag or entity is carried over to the next {@link #feed} call. Printable
+ * text is handed to a {@link Sink} in runs of one style, with newlines kept in the run
+ * they end.
+ * <p>
+ * A style is a small int: a colour index shifted left one bit, with the low bit set for
+ * bold. Indexes 0-255 are the xterm palette, then the default colour, then the MXP colour
+ * names; true colours ({@code 38;2;r;g;b} or {@code #rrggbb}) are added after those the
+ * first time they are seen. Colour and bold reset at every newline, as on Discworld.
+ * <p>
+ * One instance per stream; not thread-safe.
+ */
 public final class AnsiColorParser {
     private static final Color DEFAULT_COLOR = new Color(220, 220, 220);
+    private static final int DEFAULT_INDEX = 256;
+    private static final String[] NAMED_COLORS = {
+            "black", "red", "green", "yellow", "blue", "magenta", "cyan", "white",
+            "gray", "grey", "silver", "maroon", "olive", "navy", "purple", "teal"};
+    private static final int NAMED_INDEX = DEFAULT_INDEX + 1;
+    private static final Color[] PALETTE = buildPalette();
+    private static final int MAX_PARAMS = 16;
+    private static final int MAX_TAG_LENGTH = 512;
+    private static final int MAX_EXTRA_COLORS = 4096;
+    private static final int MAX_ENTITY_LENGTH = 8;
+
+    public static final int DEFAULT_STYLE = DEFAULT_INDEX << 1;
 
-    public record Segment(String text, Color color, boolean bold) {
+    /**
+     * Receives parsed text. The array is reused; copy out what you keep.
+     */
+    public interface Sink {
+        void text(char[] chars, int start, int end, int style);
     }
 
-    public List<Segment> parse(String input) {
-        ParseResult result = parseStreaming(input);
-        return result.segments();
+    private enum State { TEXT, ESCAPE, CSI, TAG, ENTITY }
+
+    private State state = State.TEXT;
+    private int style = DEFAULT_STYLE;
+    private final int[] params = new int[MAX_PARAMS];
+    private int paramCount;
+    private boolean paramDigits;
+    private final StringBuilder tag = new StringBuilder();
+    private char tagQuote;
+    private final char[] entity = new char[MAX_ENTITY_LENGTH];
+    private final CharBuffer entityName = CharBuffer.wrap(entity);
+    private int entityLength;
+    private char[] out = new char[1024];
+    private int outLength;
+    private final List<Color> extraColors = new ArrayList<>();
+
+    public static Color defaultColor() {
+        return DEFAULT_COLOR;
     }
 
-    public ParseResult parseStreaming(String input) {
-        return parseStreaming(input, DEFAULT_COLOR, false);
+    public static boolean isBold(int style) {
+        return (style & 1) != 0;
     }
 
-    public ParseResult parseStreaming(String input, Color startColor, boolean startBold) {
-        List<Segment> segments = new ArrayList<>();
-        if (input == null || input.isEmpty()) {
-            return new ParseResult(segments, "", startColor, startBold);
+    /**
+     * @return the colour of {@code style}; true colours are only known to the parser that made them
+     */
+    public Color color(int style) {
+        int index = style >>> 1;
+        if (index < PALETTE.length) {
+            return PALETTE[index];
         }
+        int extra = index - PALETTE.length;
+        return extra < extraColors.size() ? extraColors.get(extra) : DEFAULT_COLOR;
+    }
 
-        StringBuilder buffer = new StringBuilder();
-        Color currentColor = startColor;
-        boolean bold = startBold;
+    /**
+     * @return the style that the next text will be in
+     */
+    public int style() {
+        return style;
+    }
 
-        int length = input.length();
-        int i = 0;
-        String tail = "";
-        while (i < length) {
-            char ch = input.charAt(i);
-            if (ch == 0x1b) {
-                if (i + 1 >= length) {
-                    tail = input.substring(i);
-                    break;
-                }
-                if (input.charAt(i + 1) == '[') {
-                    int end = findAnsiEnd(input, i + 2);
-                    if (end != -1) {
-                        flush(buffer, segments, currentColor, bold);
-                        String code = input.substring(i + 2, end);
-                        if (input.charAt(end) == 'z') {
-                            AnsiState state = applyMxp(code, currentColor, bold);
-                            currentColor = state.color();
-                            bold = state.bold();
-                        } else {
-                            AnsiState state = applySgr(code, currentColor, bold);
-                            currentColor = state.color();
-                            bold = state.bold();
-                        }
-                        i = end + 1;
-                        continue;
-                    }
-                    tail = input.substring(i);
-                    break;
-                }
+    /**
+     * Forgets any partial escape or tag and returns to the default style.
+     */
+    public void reset() {
+        state = State.TEXT;
+        style = DEFAULT_STYLE;
+        tag.setLength(0);
+        entityLength = 0;
+        outLength = 0;
+    }
+
+    /**
+     * Decodes the entities in plain text, such as a system message, the same way
+     * {@link #feed} does. Returns {@code text} itself when there is nothing to decode.
+     */
+    public static String decodeEntities(String text) {
+        int amp = text.indexOf('&');
+        if (amp < 0) {
+            return text;
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        out.append(text, 0, amp);
+        int i = amp;
+        while (i < text.length()) {
+            char ch = text.charAt(i);
+            if (ch != '&') {
+                out.append(ch);
+                i++;
+                continue;
+            }
+            int end = i + 1;
+            while (end < text.length() && end - i - 1 < MAX_ENTITY_LENGTH && isEntityChar(text.charAt(end))) {
+                end++;
             }
+            char decoded = end < text.length() && text.charAt(end) == ';' ? decodeEntity(text, i + 1, end) : 0;
+            if (decoded != 0) {
+                out.append(decoded);
+                i = end + 1;
+            } else {
+                out.append('&');
+                i++;
+            }
+        }
+        return out.toString();
+    }
 
-            if (ch == '<') {
-                flush(buffer, segments, currentColor, bold);
-                int end = findTagEnd(input, i + 1);
-                if (end != -1) {
-                    String tag = input.substring(i + 1, end);
-                    String lower = tag.toLowerCase().trim();
-                    if (lower.equals("br")) {
-                        buffer.append('\n');
-                        flush(buffer, segments, currentColor, bold);
-                        currentColor = DEFAULT_COLOR;
-                        bold = false;
-                        i = end + 1;
-                        continue;
-                    }
-                    if (lower.startsWith("c ") || lower.startsWith("color ") || isColorName(lower)) {
-                        flush(buffer, segments, currentColor, bold);
-                        String colorSpec = lower;
-                        if (!isColorName(lower)) {
-                            colorSpec = tag.substring(lower.startsWith("c ") ? 2 : 6).trim();
-                        }
-                        currentColor = parseColor(colorSpec, currentColor);
-                        i = end + 1;
-                        continue;
-                    }
-                    if (lower.startsWith("font")) {
-                        String colorSpec = extractAttribute(tag, "color");
-                        if (colorSpec != null) {
-                            flush(buffer, segments, currentColor, bold);
-                            currentColor = parseColor(colorSpec, currentColor);
-                        }
-                        i = end + 1;
-                        continue;
-                    }
-                    if (lower.equals("/c") || lower.equals("/color") || lower.equals("/font")) {
-                        flush(buffer, segments, currentColor, bold);
-                        currentColor = DEFAULT_COLOR;
-                        i = end + 1;
-                        continue;
+    public void feed(CharSequence input, Sink sink) {
+        feed(input, 0, input.length(), sink);
+    }
+
+    public void feed(CharSequence input, int start, int end, Sink sink) {
+        for (int i = start; i < end; i++) {
+            char ch = input.charAt(i);
+            switch (state) {
+                case TEXT -> text(ch, sink);
+                case ESCAPE -> {
+                    if (ch == '[') {
+                        state = State.CSI;
+                        paramCount = 0;
+                        paramDigits = false;
+                        params[0] = 0;
+                    } else {
+                        // A lone ESC is dropped and what follows is ordinary text.
+                        state = State.TEXT;
+                        text(ch, sink);
                     }
-                    i = end + 1;
-                    continue;
                 }
-                tail = input.substring(i);
-                break;
+                case CSI -> csi(ch, sink);
+                case TAG -> tag(ch, sink);
+                case ENTITY -> entity(ch, sink);
             }
+        }
+        flush(sink);
+    }
 
-            if (ch == '\n') {
-                buffer.append('\n');
-                flush(buffer, segments, currentColor, bold);
-                currentColor = DEFAULT_COLOR;
-                bold = false;
-                i++;
-                continue;
-            }
+    private void text(char ch, Sink sink) {
+        if (ch >= 0x20 && ch != 0x7f && ch != '<' && ch != '&') {
+            emit(ch);
+        } else if (ch == '&') {
+            state = State.ENTITY;
+            entityLength = 0;
+        } else if (ch == '\n') {
+            emit('\n');
+            setStyle(DEFAULT_STYLE, sink);
+        } else if (ch == '\t') {
+            emit('\t');
+        } else if (ch == 0x1b) {
+            state = State.ESCAPE;
+        } else if (ch == '<') {
+            state = State.TAG;
+            tag.setLength(0);
+            tagQuote = 0;
+        }
+    }
 
-            if (isPrintable(ch)) {
-                buffer.append(ch);
+    private void entity(char ch, Sink sink) {
+        if (ch == ';') {
+            char decoded = decodeEntity(entityName, 0, entityLength);
+            state = State.TEXT;
+            if (decoded != 0) {
+                emit(decoded);
+                return;
             }
-            i++;
+        } else if (entityLength < MAX_ENTITY_LENGTH && isEntityChar(ch)) {
+            entity[entityLength++] = ch;
+            return;
+        }
+        // Not an entity we know; show it as it came.
+        state = State.TEXT;
+        emit('&');
+        for (int i = 0; i < entityLength; i++) {
+            emit(entity[i]);
         }
+        text(ch, sink);
+    }
 
-        flush(buffer, segments, currentColor, bold);
-        return new ParseResult(segments, tail, currentColor, bold);
+    private static boolean isEntityChar(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9') || ch == '#';
     }
 
-    private static boolean isPrintable(char ch) {
-        if (ch == '\n' || ch == '\t') {
-            return true;
+    /**
+     * @return the character named by {@code name[start, end)}, or 0 if it is not one we decode
+     */
+    private static char decodeEntity(CharSequence name, int start, int end) {
+        int length = end - start;
+        if (length == 2 && name.charAt(start + 1) == 't') {
+            char first = name.charAt(start);
+            return first == 'l' ? '<' : first == 'g' ? '>' : 0;
+        }
+        if (length == 3 && name.charAt(start) == 'a' && name.charAt(start + 1) == 'm' && name.charAt(start + 2) == 'p') {
+            return '&';
         }
-        return ch >= 0x20 && ch != 0x7F;
+        return 0;
     }
 
-    private static void flush(StringBuilder buffer, List<Segment> segments, Color color, boolean bold) {
-        if (buffer.length() == 0) {
-            return;
+    private void csi(char ch, Sink sink) {
+        if (ch >= '0' && ch <= '9') {
+            if (paramCount < MAX_PARAMS) {
+                params[paramCount] = Math.min(params[paramCount] * 10 + (ch - '0'), 100_000);
+            }
+            paramDigits = true;
+        } else if (ch == ';' || ch == ':') {
+            paramCount++;
+            if (paramCount < MAX_PARAMS) {
+                params[paramCount] = 0;
+            }
+            paramDigits = false;
+        } else if (ch >= 0x40 && ch <= 0x7e) {
+            int count = Math.min(MAX_PARAMS, paramCount + (paramDigits || paramCount > 0 ? 1 : 0));
+            state = State.TEXT;
+            if (ch == 'm') {
+                setStyle(applySgr(count), sink);
+            } else if (ch == 'z') {
+                if (count > 0 && params[0] == 3) {
+                    setStyle(DEFAULT_STYLE, sink);
+                }
+            }
+        } else if (ch < 0x20 || ch > 0x3f) {
+            // Not a control sequence after all; drop it.
+            state = State.TEXT;
+            text(ch, sink);
         }
-        segments.add(new Segment(buffer.toString(), color, bold));
-        buffer.setLength(0);
     }
 
-    private static AnsiState applySgr(String code, Color current, boolean bold) {
-        if (code.isBlank()) {
-            return new AnsiState(DEFAULT_COLOR, false);
+    private int applySgr(int count) {
+        if (count == 0) {
+            return DEFAULT_STYLE;
         }
-        String[] parts = code.split(";");
-        int idx = 0;
-        Color color = current;
-        boolean nextBold = bold;
-        while (idx < parts.length) {
-            String part = parts[idx];
-            int value = parseInt(part, -1);
+        int index = style >>> 1;
+        boolean bold = isBold(style);
+        for (int p = 0; p < count; p++) {
+            int value = params[p];
             if (value == 0) {
-                color = DEFAULT_COLOR;
-                nextBold = false;
+                index = DEFAULT_INDEX;
+                bold = false;
             } else if (value == 1) {
-                nextBold = true;
+                bold = true;
             } else if (value == 22) {
-                nextBold = false;
+                bold = false;
             } else if (value == 39) {
-                color = DEFAULT_COLOR;
+                index = DEFAULT_INDEX;
             } else if (value >= 30 && value <= 37) {
-                color = basicColor(value - 30, false);
+                index = value - 30;
             } else if (value >= 90 && value <= 97) {
-                color = basicColor(value - 90, true);
-            } else if (value == 38) {
-                if (idx + 1 < parts.length && "5".equals(parts[idx + 1])) {
-                    int colorIndex = parseInt(parts[idx + 2], -1);
-                    if (colorIndex >= 0) {
-                        color = xtermColor(colorIndex);
-                    }
-                    idx += 2;
-                } else if (idx + 1 < parts.length && "2".equals(parts[idx + 1])) {
-                    int r = parseInt(parts[idx + 2], -1);
-                    int g = parseInt(parts[idx + 3], -1);
-                    int b = parseInt(parts[idx + 4], -1);
-                    if (r >= 0 && g >= 0 && b >= 0) {
-                        color = new Color(clamp(r), clamp(g), clamp(b));
-                    }
-                    idx += 4;
-                }
+                index = value - 90 + 8;
+            } else if (value == 38 && p + 2 < count && params[p + 1] == 5) {
+                int colorIndex = params[p + 2];
+                index = colorIndex <= 255 ? colorIndex : DEFAULT_INDEX;
+                p += 2;
+            } else if (value == 38 && p + 4 < count && params[p + 1] == 2) {
+                index = trueColorIndex(clamp(params[p + 2]), clamp(params[p + 3]), clamp(params[p + 4]));
+                p += 4;
             }
-            idx++;
         }
-        return new AnsiState(color, nextBold);
+        return (index << 1) | (bold ? 1 : 0);
     }
 
-    private static AnsiState applyMxp(String code, Color current, boolean bold) {
-        int value = parseInt(code, -1);
-        if (value == 3) {
-            return new AnsiState(DEFAULT_COLOR, false);
+    private void tag(char ch, Sink sink) {
+        if (tagQuote != 0) {
+            if (ch == tagQuote && (tag.length() == 0 || tag.charAt(tag.length() - 1) != '\\')) {
+                tagQuote = 0;
+            }
+        } else if (ch == '"' || ch == '\'') {
+            tagQuote = ch;
+        } else if (ch == '>') {
+            state = State.TEXT;
+            applyTag(sink);
+            return;
         }
-        return new AnsiState(current, bold);
+        if (tag.length() >= MAX_TAG_LENGTH) {
+            // Not a tag we could use; show it rather than swallowing the rest of the stream.
+            state = State.TEXT;
+            emit('<');
+            for (int i = 0; i < tag.length(); i++) {
+                text(tag.charAt(i), sink);
+            }
+            text(ch, sink);
+            return;
+        }
+        tag.append(ch);
     }
 
-    private static int parseInt(String value, int fallback) {
-        try {
-            return Integer.parseInt(value.trim());
-        } catch (NumberFormatException e) {
-            return fallback;
+    private void applyTag(Sink sink) {
+        String raw = tag.toString();
+        String lower = raw.toLowerCase().trim();
+        int index = style >>> 1;
+        if (lower.equals("br")) {
+            emit('\n');
+            setStyle(DEFAULT_STYLE, sink);
+        } else if (lower.startsWith("c ") || lower.startsWith("color ") || namedIndex(lower) >= 0) {
+            String spec = namedIndex(lower) >= 0 ? lower : raw.trim().substring(lower.startsWith("c ") ? 2 : 6);
+            setStyle((colorIndex(spec, index) << 1) | (style & 1), sink);
+        } else if (lower.startsWith("font")) {
+            String spec = extractAttribute(raw, "color");
+            if (spec != null) {
+                setStyle((colorIndex(spec, index) << 1) | (style & 1), sink);
+            }
+        } else if (lower.equals("/c") || lower.equals("/color") || lower.equals("/font")) {
+            setStyle((DEFAULT_INDEX << 1) | (style & 1), sink);
         }
     }
 
-    private static Color basicColor(int index, boolean bright) {
-        return switch (index) {
-            case 0 -> bright ? new Color(100, 100, 100) : new Color(0, 0, 0);
-            case 1 -> bright ? new Color(255, 85, 85) : new Color(170, 0, 0);
-            case 2 -> bright ? new Color(85, 255, 85) : new Color(0, 170, 0);
-            case 3 -> bright ? new Color(255, 255, 85) : new Color(170, 85, 0);
-            case 4 -> bright ? new Color(85, 85, 255) : new Color(0, 0, 170);
-            case 5 -> bright ? new Color(255, 85, 255) : new Color(170, 0, 170);
-            case 6 -> bright ? new Color(85, 255, 255) : new Color(0, 170, 170);
-            case 7 -> bright ? new Color(255, 255, 255) : new Color(170, 170, 170);
-            default -> DEFAULT_COLOR;
-        };
+    private void setStyle(int next, Sink sink) {
+        if (next != style) {
+            flush(sink);
+            style = next;
+        }
     }
 
-    private static Color xtermColor(int index) {
-        if (index < 0) {
-            return DEFAULT_COLOR;
-        }
-        if (index < 16) {
-            return basicColor(index % 8, index >= 8);
+    private void emit(char ch) {
+        if (outLength == out.length) {
+            out = Arrays.copyOf(out, outLength * 2);
         }
-        if (index >= 16 && index <= 231) {
-            int idx = index - 16;
-            int r = idx / 36;
-            int g = (idx / 6) % 6;
-            int b = idx % 6;
-            return new Color(scaleXterm(r), scaleXterm(g), scaleXterm(b));
-        }
-        if (index >= 232 && index <= 255) {
-            int gray = 8 + (index - 232) * 10;
-            return new Color(gray, gray, gray);
-        }
-        return DEFAULT_COLOR;
+        out[outLength++] = ch;
     }
 
-    private static int scaleXterm(int value) {
-        return value == 0 ? 0 : 55 + (value * 40);
+    private void flush(Sink sink) {
+        if (outLength > 0) {
+            sink.text(out, 0, outLength, style);
+            outLength = 0;
+        }
     }
 
-    private static Color parseColor(String value, Color fallback) {
-        if (value == null || value.isBlank()) {
-            return fallback;
-        }
+    private int colorIndex(String value, int fallback) {
         String trimmed = value.trim();
         if (trimmed.startsWith("#") && trimmed.length() == 7) {
             try {
                 int rgb = Integer.parseInt(trimmed.substring(1), 16);
-                return new Color((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
+                return trueColorIndex((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF);
             } catch (NumberFormatException ignored) {
                 return fallback;
             }
         }
-        String lower = trimmed.toLowerCase();
-        return switch (lower) {
-            case "black" -> Color.BLACK;
-            case "red" -> Color.RED;
-            case "green" -> Color.GREEN;
-            case "yellow" -> Color.YELLOW;
-            case "blue" -> Color.BLUE;
-            case "magenta" -> Color.MAGENTA;
-            case "cyan" -> Color.CYAN;
-            case "white" -> Color.WHITE;
-            case "gray", "grey" -> Color.GRAY;
-            case "silver" -> new Color(192, 192, 192);
-            case "maroon" -> new Color(128, 0, 0);
-            case "olive" -> new Color(128, 128, 0);
-            case "navy" -> new Color(0, 0, 128);
-            case "purple" -> new Color(128, 0, 128);
-            case "teal" -> new Color(0, 128, 128);
-            default -> fallback;
+        int named = namedIndex(trimmed.toLowerCase());
+        return named >= 0 ? named : fallback;
+    }
+
+    private int trueColorIndex(int r, int g, int b) {
+        int rgb = (r << 16) | (g << 8) | b;
+        for (int i = 0; i < PALETTE.length; i++) {
+            if ((PALETTE[i].getRGB() & 0xFFFFFF) == rgb) {
+                return i;
+            }
+        }
+        for (int i = 0; i < extraColors.size(); i++) {
+            if ((extraColors.get(i).getRGB() & 0xFFFFFF) == rgb) {
+                return PALETTE.length + i;
+            }
+        }
+        if (extraColors.size() >= MAX_EXTRA_COLORS) {
+            return DEFAULT_INDEX;
+        }
+        extraColors.add(new Color(r, g, b));
+        return PALETTE.length + extraColors.size() - 1;
+    }
+
+    private static int namedIndex(String lower) {
+        for (int i = 0; i < NAMED_COLORS.length; i++) {
+            if (NAMED_COLORS[i].equals(lower)) {
+                return NAMED_INDEX + i;
+            }
+        }
+        return -1;
+    }
+
+    private static Color[] buildPalette() {
+        Color[] palette = new Color[NAMED_INDEX + NAMED_COLORS.length];
+        for (int i = 0; i < 16; i++) {
+            palette[i] = basicColor(i % 8, i >= 8);
+        }
+        for (int i = 16; i <= 231; i++) {
+            int idx = i - 16;
+            palette[i] = new Color(scaleXterm(idx / 36), scaleXterm((idx / 6) % 6), scaleXterm(idx % 6));
+        }
+        for (int i = 232; i <= 255; i++) {
+            int gray = 8 + (i - 232) * 10;
+            palette[i] = new Color(gray, gray, gray);
+        }
+        palette[DEFAULT_INDEX] = DEFAULT_COLOR;
+        Color[] named = {Color.BLACK, Color.RED, Color.GREEN, Color.YELLOW, Color.BLUE, Color.MAGENTA,
+                Color.CYAN, Color.WHITE, Color.GRAY, Color.GRAY, new Color(192, 192, 192),
+                new Color(128, 0, 0), new Color(128, 128, 0), new Color(0, 0, 128),
+                new Color(128, 0, 128), new Color(0, 128, 128)};
+        System.arraycopy(named, 0, palette, NAMED_INDEX, named.length);
+        return palette;
+    }
+
+    private static Color basicColor(int index, boolean bright) {
+        return switch (index) {
+            case 0 -> bright ? new Color(100, 100, 100) : new Color(0, 0, 0);
+            case 1 -> bright ? new Color(255, 85, 85) : new Color(170, 0, 0);
+            case 2 -> bright ? new Color(85, 255, 85) : new Color(0, 170, 0);
+            case 3 -> bright ? new Color(255, 255, 85) : new Color(170, 85, 0);
+            case 4 -> bright ? new Color(85, 85, 255) : new Color(0, 0, 170);
+            case 5 -> bright ? new Color(255, 85, 255) : new Color(170, 0, 170);
+            case 6 -> bright ? new Color(85, 255, 255) : new Color(0, 170, 170);
+            case 7 -> bright ? new Color(255, 255, 255) : new Color(170, 170, 170);
+            default -> DEFAULT_COLOR;
         };
     }
 
+    private static int scaleXterm(int value) {
+        return value == 0 ? 0 : 55 + (value * 40);
+    }
+
     private static String extractAttribute(String tag, String attr) {
         String lower = tag.toLowerCase();
         String needle = attr.toLowerCase() + "=";
@@ -321,65 +476,7 @@ public final class AnsiColorParser {
         return tag.substring(start, end).trim();
     }
 
-    private static boolean isColorName(String s) {
-        switch (s.toLowerCase()) {
-            case "black", "red", "green", "yellow", "blue", "magenta", "cyan", "white",
-                    "gray", "grey", "silver", "maroon", "olive", "navy", "purple", "teal" -> {
-                return true;
-            }
-            default -> {
-                return false;
-            }
-        }
-    }
-
     private static int clamp(int value) {
         return Math.max(0, Math.min(255, value));
     }
-
-    private record AnsiState(Color color, boolean bold) {
-    }
-
-    public record ParseResult(List<Segment> segments, String tail, Color color, boolean bold) {
-    }
-
-    public static Color defaultColor() {
-        return DEFAULT_COLOR;
-    }
-
-    private static int findTagEnd(String input, int start) {
-        boolean inQuote = false;
-        char quoteChar = 0;
-        int len = input.length();
-        for (int i = start; i < len; i++) {
-            char ch = input.charAt(i);
-            if ((ch == '"' || ch == '\'') && (i == start || input.charAt(i - 1) != '\\')) {
-                if (inQuote && ch == quoteChar) {
-                    inQuote = false;
-                    quoteChar = 0;
-                } else if (!inQuote) {
-                    inQuote = true;
-                    quoteChar = ch;
-                }
-                continue;
-            }
-            if (ch == '>' && !inQuote) {
-                return i;
-            }
-        }
-        return -1;
-    }
-
-    private static int findAnsiEnd(String input, int start) {
-        int m = input.indexOf('m', start);
-        int z = input.indexOf('z', start);
-        if (m == -1) {
-            return z;
-        }
-        if (z == -1) {
-            return m;
-        }
-        return Math.min(m, z);
-    }
 }
-
@@ -0,0 +1,145 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends lines to a file on a background thread. The file stays open between lines and
+ * is flushed whenever the queue runs dry, so a burst of lines costs one write. The
+ * thread exits after a few idle seconds and is restarted by the next line.
+ */
+public final class AsyncLineWriter implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(AsyncLineWriter.class);
+    private static final long IDLE_SECONDS = 5;
+
+    private final Path path;
+    private final ThreadPoolExecutor executor;
+    private BufferedWriter writer;
+
+    public AsyncLineWriter(Path path) {
+        this.path = path;
+        executor = new ThreadPoolExecutor(1, 1, IDLE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "line-writer-" + path.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Queues {@code line}; a line separator is added.
+     */
+    public void append(String line) {
+        if (executor.isShutdown()) {
+            log.warn("Writer for {} is closed, dropping line", path);
+            return;
+        }
+        executor.execute(() -> write(line));
+    }
+
+    private void write(String line) {
+        try {
+            if (writer == null) {
+                writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            writer.write(line);
+            writer.write(System.lineSeparator());
+            if (executor.getQueue().isEmpty()) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write to {}", path, e);
+            closeWriter();
+        }
+    }
+
+    private void flushWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            log.error("Failed to write to {}", path, e);
+            closeWriter();
+        }
+    }
+
+    private void closeWriter() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.warn("Failed to close {}", path, e);
+        }
+        writer = null;
+    }
+
+    /**
+     * Blocks until every line queued so far is on disk.
+     */
+    public void awaitIdle() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.submit(this::flushWriter).get();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Writes what is queued, closes the file and stops accepting lines.
+     */
+    @Override
+    public void close() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        executor.execute(this::closeWriter);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
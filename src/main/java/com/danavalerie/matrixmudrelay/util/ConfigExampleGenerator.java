@@ -24,12 +24,19 @@ public class ConfigExampleGenerator {
             example.mud.port = 4242;
             example.mud.charset = "ISO-8859-1";
             example.mud.connectTimeoutMs = 10000;
+            example.mud.compression = true;
+            example.mud.commandPacing = false;
+            example.mud.maxCommandsInFlight = 4;
+            example.mud.pacingTimeoutMs = 2000;
 
             // UI settings - use fixed defaults instead of copying from config.json
             example.ui.fontFamily = "Monospaced";
             example.ui.fontSize = 20;
             example.ui.mapZoomPercent = 100;
             example.ui.invertMap = true;
+            example.ui.scrollbackLines = 20000;
+            example.ui.scrollbackChars = 4000000;
+            example.ui.sessionLogDir = "session-logs";
 
             // Bookmarks
             example.bookmarks.addAll(config.bookmarks);
@@ -37,6 +44,11 @@ public class ConfigExampleGenerator {
             // Triggers
             example.triggers.addAll(config.triggers);
 
+            // Gags
+            if (config.gags != null) {
+                example.gags.addAll(config.gags);
+            }
+
             System.out.println("Saving to config-example.json...");
             ConfigLoader.save(Paths.get("config-example.json"), example);
 
@@ -66,6 +66,10 @@ public class DataCleanup {
             BackgroundSaver.waitForIdle();
             BackgroundSaver.shutdown();
 
+            // 6. Binary map database (maps.db), stamped with the rewritten JSON
+            System.out.println("Rebuilding map database...");
+            mapDataService.saveDatabase();
+
             System.out.println("Data cleanup finished successfully.");
         } catch (Exception e) {
             System.err.println("Data cleanup failed!");
@@ -1,5 +1,7 @@
 package com.danavalerie.matrixmudrelay.util;
 
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
 import com.danavalerie.matrixmudrelay.core.data.ShopItem;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
@@ -80,6 +82,8 @@ public class GsonUtils {
     public static GsonBuilder getDefaultBuilder() {
         return new GsonBuilder()
                 .registerTypeAdapter(ShopItem.class, new ShopItem.Adapter())
+                .registerTypeAdapterFactory(new RoomData.Adapter())
+                .registerTypeAdapterFactory(new NpcData.Adapter())
                 .registerTypeAdapterFactory(EMPTY_TO_NULL_FACTORY)
                 .setPrettyPrinting();
     }
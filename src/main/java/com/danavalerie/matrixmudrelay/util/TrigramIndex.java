@@ -0,0 +1,152 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive substring search over a fixed list of names. Every lower-cased name is
+ * split into overlapping three-character trigrams, and each trigram keeps the sorted
+ * positions of the entries that contain it. A query intersects the posting lists of its
+ * own trigrams and confirms each survivor with {@link String#contains}; queries shorter
+ * than three characters fall back to a scan of the pre-lowered names.
+ * <p>
+ * Entries are kept in the order given, so results come back in that order and a search
+ * can stop at its limit. Immutable; build a new index when the entries change.
+ *
+ * @param <T> the indexed entries
+ */
+public final class TrigramIndex<T> {
+    private static final int[] NONE = new int[0];
+
+    private final List<T> entries;
+    private final String[] names;
+    private final Map<Long, int[]> postings = new HashMap<>();
+
+    /**
+     * @param entries in the order results should come back in
+     * @param name    the searchable name of an entry; null never matches
+     */
+    public TrigramIndex(List<T> entries, Function<T, String> name) {
+        this.entries = List.copyOf(entries);
+        names = new String[this.entries.size()];
+        Map<Long, int[]> counts = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            String value = name.apply(this.entries.get(i));
+            names[i] = value == null ? null : value.toLowerCase();
+            forEachTrigram(names[i], i, (key, position) -> counts.computeIfAbsent(key, k -> new int[1])[0]++);
+        }
+        counts.forEach((key, count) -> postings.put(key, new int[count[0]]));
+        Map<Long, int[]> filled = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            forEachTrigram(names[i], i, (key, position) -> {
+                int[] list = postings.get(key);
+                list[filled.computeIfAbsent(key, k -> new int[1])[0]++] = position;
+            });
+        }
+    }
+
+    /**
+     * Builds an index over {@code entries} sorted by {@code order}.
+     */
+    public static <T> TrigramIndex<T> sorted(List<T> entries, Function<T, String> name, Comparator<? super T> order) {
+        List<T> sorted = new ArrayList<>(entries);
+        sorted.sort(order);
+        return new TrigramIndex<>(sorted, name);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns up to {@code limit} entries whose name contains {@code query}, ignoring
+     * case, in index order.
+     */
+    public List<T> search(String query, int limit) {
+        List<T> results = new ArrayList<>();
+        if (limit <= 0) {
+            return results;
+        }
+        String needle = query.toLowerCase();
+        if (needle.length() < 3) {
+            for (int i = 0; i < names.length && results.size() < limit; i++) {
+                if (names[i] != null && names[i].contains(needle)) {
+                    results.add(entries.get(i));
+                }
+            }
+            return results;
+        }
+        List<int[]> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= needle.length(); i++) {
+            int[] list = postings.getOrDefault(trigram(needle, i), NONE);
+            if (list.length == 0) {
+                return results;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] shortest = lists.get(0);
+        candidates:
+        for (int position : shortest) {
+            for (int l = 1; l < lists.size(); l++) {
+                if (Arrays.binarySearch(lists.get(l), position) < 0) {
+                    continue candidates;
+                }
+            }
+            if (names[position].contains(needle)) {
+                results.add(entries.get(position));
+                if (results.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private interface TrigramSink {
+        void accept(long key, int position);
+    }
+
+    private static void forEachTrigram(String name, int position, TrigramSink sink) {
+        if (name == null || name.length() < 3) {
+            return;
+        }
+        long[] keys = new long[name.length() - 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = trigram(name, i);
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                sink.accept(keys[i], position);
+            }
+        }
+    }
+
+    private static long trigram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+}
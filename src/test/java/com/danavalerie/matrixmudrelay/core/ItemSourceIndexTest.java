@@ -0,0 +1,66 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import com.danavalerie.matrixmudrelay.core.data.ShopItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ItemSourceIndexTest {
+
+    private static RoomData shop(String id, String... items) {
+        RoomData room = new RoomData(id, 1, 0, 0, "Shop " + id, "shop");
+        List<ShopItem> stock = new ArrayList<>();
+        for (String item : items) {
+            stock.add(new ShopItem(item));
+        }
+        room.setShopItems(stock);
+        return room;
+    }
+
+    @Test
+    public void testLookupsAreCaseInsensitiveAndKeepInsertionOrder() {
+        ItemSourceIndex index = new ItemSourceIndex();
+        RoomData bakery = shop("bakery", "Fresh Bread", "bun");
+        RoomData market = shop("market", "fresh bread", "apple");
+        index.addRoom(bakery);
+        index.addRoom(market);
+        NpcData baker = new NpcData();
+        baker.setNpcName("baker");
+        baker.setItems(Map.of("FRESH BREAD", new NpcData.NpcItemData("4p", null)));
+        index.addNpc(baker);
+
+        List<ItemSourceIndex.ShopSource> shops = index.shops("  fresh BREAD ");
+        assertEquals(2, shops.size());
+        assertSame(bakery, shops.get(0).room());
+        assertEquals("Fresh Bread", shops.get(0).item().getName());
+        assertSame(market, shops.get(1).room());
+        assertEquals("4p", index.npcs("Fresh bread").get(0).item().getSalePrice());
+        assertTrue(index.shops("cake").isEmpty());
+    }
+}
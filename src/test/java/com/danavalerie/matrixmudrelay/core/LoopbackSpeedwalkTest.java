@@ -0,0 +1,108 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import com.danavalerie.matrixmudrelay.config.DeliveryRouteMappings;
+import com.danavalerie.matrixmudrelay.config.UiConfig;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import com.danavalerie.matrixmudrelay.mud.LoopbackMudServer;
+import com.danavalerie.matrixmudrelay.mud.MudClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoopbackSpeedwalkTest {
+    private LoopbackMudServer server;
+    private MudClient mud;
+    private MudCommandProcessor processor;
+
+    @TempDir
+    Path dataDir;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (processor != null) {
+            processor.shutdown();
+        }
+        if (mud != null) {
+            mud.disconnect("test", null);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void testRouteSpeedwalkMovesThroughSimulatedRooms() throws Exception {
+        MapDataService dataService = new MapDataService(dataDir);
+        Map<String, RoomData> rooms = dataService.getRooms();
+        // A 4x4 grid on one map; every room links to its orthogonal neighbours.
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                RoomData room = new RoomData(gridId(x, y), 1, x * 10, y * 10, "Grid " + x + "," + y, "outside");
+                if (x > 0) room.getExits().put("west", gridId(x - 1, y));
+                if (x < 3) room.getExits().put("east", gridId(x + 1, y));
+                if (y > 0) room.getExits().put("north", gridId(x, y - 1));
+                if (y < 3) room.getExits().put("south", gridId(x, y + 1));
+                rooms.put(room.getRoomId(), room);
+            }
+        }
+
+        server = new LoopbackMudServer(rooms, gridId(0, 0));
+        RouteCommandUpdateTest.MockOutput output = new RouteCommandUpdateTest.MockOutput();
+        mud = new MudClient(server.clientConfig(), line -> {}, reason -> {});
+        processor = new MudCommandProcessor(new ClientConfig(), new UiConfig(), null, mud,
+                new RoomMapService(dataService), new WritTracker(), new StoreInventoryTracker(), null,
+                () -> new DeliveryRouteMappings(List.of()), output);
+        mud.setGmcpListener(processor);
+        mud.connect();
+        assertTrue(server.awaitNegotiation(5, TimeUnit.SECONDS));
+        waitFor(() -> gridId(0, 0).equals(mud.getCurrentRoomSnapshot().roomId()));
+
+        processor.handleInput("/route " + gridId(3, 2));
+
+        waitFor(() -> gridId(3, 2).equals(server.currentRoomId()));
+        waitFor(() -> gridId(3, 2).equals(mud.getCurrentRoomSnapshot().roomId()));
+        List<String> commands = server.commands();
+        assertTrue(commands.get(0).startsWith("alias " + MudCommandProcessor.SPEEDWALK_ALIAS_NAME + " "), commands.get(0));
+        assertEquals(1 + 5, commands.size(), "Expected the alias definition plus five steps: " + commands);
+    }
+
+    private static String gridId(int x, int y) {
+        return "grid-" + x + "-" + y;
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
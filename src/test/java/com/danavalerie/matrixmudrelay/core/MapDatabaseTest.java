@@ -0,0 +1,142 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import com.danavalerie.matrixmudrelay.core.data.ShopItem;
+import com.danavalerie.matrixmudrelay.util.GsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MapDatabaseTest {
+    private static final Gson GSON = GsonUtils.getGson();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testRoundTripMatchesJsonAndGoesStaleWithIt() throws Exception {
+        RoomData shop = new RoomData("r1", 1, 10, -20, "A Sh\u00f6p", "shop");
+        shop.getExits().put("north", "r2");
+        shop.getExits().put("south", "r2");
+        shop.setShopItems(List.of(new ShopItem("sock"), new ShopItem("hat", "pointy hat")));
+        shop.setFlags(List.of(RoomData.FLAG_NO_TELEPORT));
+        RoomData street = new RoomData("r2", 1, 10, -16, "A Street", null);
+        street.setExits(null);
+        street.setShopItems(null);
+        Map<String, RoomData> rooms = new TreeMap<>(Map.of("r1", shop, "r2", street));
+        NpcData npc = new NpcData();
+        npc.setNpcId("n1");
+        npc.setNpcName("Seller of sock");
+        npc.setRoomId("r1");
+        npc.getItems().put("sock", new NpcData.NpcItemData("4p", null));
+        npc.getItems().put("hat", null);
+        NpcData idler = new NpcData();
+        idler.setNpcId("n2");
+        idler.setItems(null);
+        Map<String, NpcData> npcs = new TreeMap<>(Map.of("n1", npc, "n2", idler));
+
+        Path roomsJson = dir.resolve("rooms.json");
+        Path npcsJson = dir.resolve("npcs.json");
+        Files.writeString(roomsJson, GSON.toJson(rooms));
+        Files.writeString(npcsJson, GSON.toJson(npcs));
+        Path db = dir.resolve("maps.db");
+        MapDatabase.write(db, rooms, npcs, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson));
+
+        MapDatabase.Contents contents = MapDatabase.read(db, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson));
+        assertNotNull(contents);
+        assertEquals(GSON.toJson(rooms), GSON.toJson(contents.rooms()));
+        assertEquals(GSON.toJson(npcs), GSON.toJson(contents.npcs()));
+        assertEquals("pointy hat", contents.rooms().get("r1").getShopItems().get(1).getShopName());
+        // Nulls come back as nulls, not as empty collections or an empty item.
+        assertNull(contents.rooms().get("r2").getExits());
+        assertNull(contents.rooms().get("r2").getShopItems());
+        assertTrue(contents.npcs().get("n1").getItems().containsKey("hat"));
+        assertNull(contents.npcs().get("n1").getItems().get("hat"));
+        assertNull(contents.npcs().get("n2").getItems());
+
+        Files.writeString(roomsJson, "{}");
+        assertNull(MapDatabase.read(db, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson)));
+        // A stale file is not held open or mapped, so it can be rebuilt in place.
+        MapDatabase.write(db, Map.of(), npcs, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson));
+        assertNotNull(MapDatabase.read(db, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson)));
+        Files.write(db, new byte[10]);
+        assertNull(MapDatabase.read(db, MapDatabase.Stamp.of(roomsJson), MapDatabase.Stamp.of(npcsJson)));
+        assertNull(MapDatabase.read(dir.resolve("missing.db"), MapDatabase.Stamp.MISSING, MapDatabase.Stamp.MISSING));
+    }
+
+    @Test
+    public void testStampCoversFilesLongerThanOneRead() throws Exception {
+        byte[] bytes = new byte[200_000];
+        new java.util.Random(7).nextBytes(bytes);
+        Path file = dir.resolve("npcs.json");
+        Files.write(file, bytes);
+        java.util.zip.CRC32C crc = new java.util.zip.CRC32C();
+        crc.update(bytes);
+
+        assertEquals(new MapDatabase.Stamp(bytes.length, (int) crc.getValue()), MapDatabase.Stamp.of(file));
+        assertEquals(MapDatabase.Stamp.MISSING, MapDatabase.Stamp.of(dir.resolve("missing.json")));
+    }
+
+    @Test
+    public void testServiceWritesDatabaseOnlyWhenAsked() throws Exception {
+        RoomData room = new RoomData("r1", 1, 0, 0, "A Room", null);
+        Files.writeString(dir.resolve("rooms.json"), GSON.toJson(Map.of("r1", room)));
+        Path db = dir.resolve("maps.db");
+
+        MapDataService fromJson = new MapDataService(dir);
+        assertEquals("A Room", fromJson.getRoom("r1").getRoomShort());
+        assertFalse(Files.exists(db));
+
+        fromJson.saveDatabaseIfStale();
+        assertTrue(Files.exists(db));
+        assertEquals(GSON.toJson(fromJson.getRooms()), GSON.toJson(new MapDataService(dir).getRooms()));
+    }
+
+    @Test
+    public void testNpcDatabaseMatchesJson() throws Exception {
+        Path npcsJson = Path.of("npcs.json");
+        assumeTrue(Files.exists(npcsJson), "npcs.json is not available");
+
+        Map<String, NpcData> npcs = GSON.fromJson(Files.readString(npcsJson), new TypeToken<TreeMap<String, NpcData>>() {}.getType());
+        MapDatabase.Stamp stamp = MapDatabase.Stamp.of(npcsJson);
+        Path db = dir.resolve("maps.db");
+        MapDatabase.write(db, Map.of(), npcs, MapDatabase.Stamp.MISSING, stamp);
+
+        MapDatabase.Contents contents = MapDatabase.read(db, MapDatabase.Stamp.MISSING, stamp);
+        assertNotNull(contents);
+        assertEquals(GSON.toJson(npcs), GSON.toJson(contents.npcs()));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MudLineAssemblerTest {
+
+    @Test
+    public void testLinesAreAssembledOnceAcrossChunks() {
+        MudLineAssembler assembler = new MudLineAssembler();
+        List<String> events = new ArrayList<>();
+        List<MudLineAssembler.MudLine> lines = new ArrayList<>();
+        assembler.addListener(new MudLineAssembler.Listener() {
+            @Override
+            public void onText(char[] chars, int start, int end, int style) {
+                events.add("text:" + new String(chars, start, end - start));
+            }
+
+            @Override
+            public void onLine(MudLineAssembler.MudLine line) {
+                events.add("line:" + line.text());
+                lines.add(line);
+            }
+
+            @Override
+            public void onChunkEnd() {
+                events.add("chunk");
+            }
+        });
+        assembler.addListener(line -> events.add("second:" + line.trimmed()));
+
+        assembler.feed("  \u001b[1;32mGreen\u001b[0m fish &l");
+        assembler.feed("t;3&gt; \r\nnext");
+
+        assertEquals(List.of("text:  ", "text:Green", "text: fish ", "chunk",
+                "text:<3> \n",
+                "line:  Green fish <3> ", "second:Green fish <3>", "text:next", "chunk"), events);
+
+        MudLineAssembler.MudLine line = lines.get(0);
+        assertEquals(3, line.runCount());
+        assertEquals("Green", line.text().substring(line.runStart(1), line.runEnds()[1]));
+        assertTrue(MudLineAssembler.isBold(line.runStyles()[1]));
+        assertEquals(new Color(0, 170, 0), assembler.color(line.runStyles()[1]));
+        assertEquals(line.runStyles()[0], line.runStyles()[2]);
+    }
+
+    @Test
+    public void testEntityHeavyMxpOutputBenchmark() {
+        StringBuilder chunk = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            chunk.append("<c yellow>&lt;").append(i).append("&gt;</c> &amp; ");
+        }
+        chunk.append('\n');
+        String text = chunk.toString();
+        MudLineAssembler assembler = new MudLineAssembler();
+        List<MudLineAssembler.MudLine> lines = new ArrayList<>();
+        assembler.addListener(lines::add);
+
+        int rounds = 200;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            assembler.feed(text);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(rounds, lines.size());
+        MudLineAssembler.MudLine line = lines.get(0);
+        assertTrue(line.text().startsWith("<0> & <1> & "), line.text());
+        assertEquals(4000, line.runCount());
+        double mbPerSecond = rounds * (double) text.length() / 1_000_000 / Math.max(1, elapsedMs) * 1000;
+        // Roughly 10 MB of markup; a quadratic merge takes minutes here.
+        assertTrue(elapsedMs < 10_000, String.format("Took %d ms (%.1f MB/s)", elapsedMs, mbPerSecond));
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopOthers() {
+        MudLineAssembler assembler = new MudLineAssembler();
+        List<String> seen = new ArrayList<>();
+        assembler.addListener(line -> {
+            throw new IllegalStateException("boom");
+        });
+        assembler.addListener(line -> seen.add(line.trimmed()));
+
+        assembler.feed("one\ntwo\n");
+
+        assertEquals(List.of("one", "two"), seen);
+    }
+
+    @Test
+    public void testGagsHoldAndHideLinesFromTheDisplayOnly() {
+        MudLineAssembler assembler = new MudLineAssembler();
+        ClientConfig.Gag miss = new ClientConfig.Gag();
+        miss.pattern = "^.+ misses you\\.$";
+        ClientConfig.Gag rain = new ClientConfig.Gag();
+        rain.pattern = "^The rain .*$";
+        rain.collapseRepeats = true;
+        assembler.setGags(List.of(miss, rain), pattern -> { });
+        List<String> events = new ArrayList<>();
+        List<String> allLines = new ArrayList<>();
+        assembler.addListener(line -> allLines.add(line.text()));
+        assembler.addDisplayListener(new MudLineAssembler.Listener() {
+            @Override
+            public void onText(char[] chars, int start, int end, int style) {
+                events.add("text:" + new String(chars, start, end - start));
+            }
+
+            @Override
+            public void onLine(MudLineAssembler.MudLine line) {
+                events.add("line:" + line.text());
+            }
+
+            @Override
+            public void onRepeat(MudLineAssembler.MudLine line, int count) {
+                events.add("repeat:" + count);
+            }
+        });
+
+        assembler.feed("The goblin");
+        assertTrue(assembler.hasHeldText());
+        assertEquals(List.of(), events);
+        assembler.feed(" misses you.\nThe rain falls.\nThe rain falls.\nHP: 10> ");
+        assertEquals(List.of("text:The rain falls.", "text:\n", "line:The rain falls.", "repeat:2"), events);
+        assertEquals(List.of("The goblin misses you.", "The rain falls.", "The rain falls."), allLines);
+
+        events.clear();
+        assembler.flushHeldText();
+        assertFalse(assembler.hasHeldText());
+        assembler.feed("\n");
+        assertEquals(List.of("text:HP: 10> ", "text:\n", "line:HP: 10> "), events);
+    }
+}
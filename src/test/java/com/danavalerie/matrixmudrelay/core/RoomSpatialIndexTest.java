@@ -0,0 +1,83 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class RoomSpatialIndexTest {
+
+    @Test
+    public void testMatchesLinearScan() {
+        Random random = new Random(7);
+        TreeMap<String, RoomData> rooms = new TreeMap<>();
+        for (int i = 0; i < 3000; i++) {
+            String id = String.format("%08x", random.nextInt());
+            rooms.put(id, new RoomData(id, 1 + random.nextInt(3), random.nextInt(400) - 50, random.nextInt(300), "Room " + i, "inside"));
+        }
+        RoomSpatialIndex index = new RoomSpatialIndex(rooms.values());
+
+        for (int q = 0; q < 500; q++) {
+            int mapId = 1 + random.nextInt(4);
+            int x = random.nextInt(700) - 200;
+            int y = random.nextInt(500) - 100;
+            RoomData expected = rooms.values().stream()
+                    .filter(r -> r.getMapId() == mapId)
+                    .min(Comparator.comparingDouble(r -> Math.hypot(r.getXpos() - x, r.getYpos() - y)))
+                    .orElse(null);
+            assertEquals(expected, index.nearest(mapId, x, y), "Nearest to " + mapId + "/" + x + "," + y);
+
+            RoomData exact = rooms.values().stream()
+                    .filter(r -> r.getMapId() == mapId && r.getXpos() == x && r.getYpos() == y)
+                    .findFirst().orElse(null);
+            assertEquals(exact, index.at(mapId, x, y));
+
+            List<String> area = rooms.values().stream()
+                    .filter(r -> r.getMapId() == mapId && r.getXpos() >= x && r.getXpos() <= x + 60 && r.getYpos() >= y && r.getYpos() <= y + 40)
+                    .map(RoomData::getRoomId).collect(Collectors.toList());
+            assertEquals(area, index.inArea(mapId, x, x + 60, y, y + 40).stream()
+                    .map(RoomData::getRoomId).sorted().collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void testMoveRefilesRoom() {
+        RoomData a = new RoomData("a", 1, 10, 10, "A", "inside");
+        RoomData b = new RoomData("b", 1, 10, 10, "B", "inside");
+        RoomSpatialIndex index = new RoomSpatialIndex(List.of(b, a));
+        assertEquals(a, index.at(1, 10, 10));
+
+        a.setMapId(2);
+        a.setXpos(500);
+        index.move(a, 1, 10, 10);
+        assertEquals(b, index.at(1, 10, 10));
+        assertEquals(a, index.at(2, 500, 10));
+        assertEquals(b, index.nearest(1, 900, 900));
+        assertNull(index.nearest(3, 0, 0));
+    }
+}
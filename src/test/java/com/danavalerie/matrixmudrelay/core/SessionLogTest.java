@@ -0,0 +1,106 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionLogTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private static void fill(SessionLog sessionLog) {
+        for (int i = 0; i < 250; i++) {
+            long time = i * DAY / 10;
+            String speaker = i % 50 == 0 ? "Wilbur" : "Bob";
+            sessionLog.append(time, speaker + " tells you: message " + i);
+            sessionLog.append(time + 1, "A rat scurries past.");
+        }
+    }
+
+    @Test
+    public void testSearchAcrossCompressedAndActiveSegments(@TempDir Path dir) throws Exception {
+        SessionLog sessionLog = new SessionLog(dir, 100);
+        fill(sessionLog);
+        sessionLog.awaitIdle();
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(5, files.filter(p -> p.toString().endsWith(".log.gz")).count());
+        }
+        List<SessionLog.Hit> hits = sessionLog.search("wilbur TELLS", 0, Long.MAX_VALUE, 100);
+        assertEquals(5, hits.size());
+        assertEquals("Wilbur tells you: message 0", hits.get(0).line());
+        assertEquals("Wilbur tells you: message 200", hits.get(4).line());
+
+        List<SessionLog.Hit> lastWeek = sessionLog.search("tells wilbur", 17 * DAY, 24 * DAY, 100);
+        assertEquals(List.of("Wilbur tells you: message 200"), lastWeek.stream().map(SessionLog.Hit::line).toList());
+
+        List<SessionLog.Hit> latest = sessionLog.search("tells", 0, Long.MAX_VALUE, 3);
+        assertEquals(List.of("Bob tells you: message 247", "Bob tells you: message 248",
+                "Bob tells you: message 249"), latest.stream().map(SessionLog.Hit::line).toList());
+        assertTrue(sessionLog.search("nobody", 0, Long.MAX_VALUE, 10).isEmpty());
+        sessionLog.close();
+    }
+
+    @Test
+    public void testIndexAndLeftoverSegmentsReloaded(@TempDir Path dir) throws Exception {
+        SessionLog first = new SessionLog(dir, 100);
+        fill(first);
+        first.close();
+        Files.writeString(dir.resolve("99999999999.log"), "99999999999\tWilbur tells you: after a crash\n");
+
+        SessionLog second = new SessionLog(dir, 100);
+        List<SessionLog.Hit> hits = second.search("wilbur", 0, Long.MAX_VALUE, 100);
+        assertEquals(6, hits.size());
+        assertEquals("Wilbur tells you: after a crash", hits.get(5).line());
+        assertTrue(Files.notExists(dir.resolve("99999999999.log")));
+        second.close();
+    }
+
+    @Test
+    public void testDamagedIndexRowsSkippedAndUnindexedSegmentsRecovered(@TempDir Path dir) throws Exception {
+        SessionLog first = new SessionLog(dir, 100);
+        fill(first);
+        first.close();
+        // A bad timestamp in one row, and another row lost, as if the client stopped
+        // between compressing a segment and indexing it.
+        Path index = dir.resolve(SessionLog.INDEX_FILE);
+        List<String> rows = Files.readAllLines(index);
+        assertEquals(5, rows.size());
+        String[] damaged = rows.get(0).split("\t", 4);
+        damaged[1] = "yesterday";
+        Files.write(index, List.of(String.join("\t", damaged), rows.get(1), rows.get(2), rows.get(3)));
+
+        SessionLog second = new SessionLog(dir, 100);
+        List<SessionLog.Hit> hits = second.search("wilbur", 0, Long.MAX_VALUE, 100);
+        assertEquals(5, hits.size());
+        assertEquals("Wilbur tells you: message 0", hits.get(0).line());
+        second.append(30 * DAY, "Wilbur tells you: still logging");
+        second.awaitIdle();
+        assertEquals(6, second.search("wilbur", 0, Long.MAX_VALUE, 100).size());
+        second.close();
+    }
+}
@@ -59,6 +59,7 @@ class SunLogTest {
 
         String sunriseMessage = "The turnwise sky starts to lighten as the sun peeks over the horizon.";
         processor.onFullLineReceived(sunriseMessage);
+        processor.awaitSunLog();
 
         assertTrue(Files.exists(sunLogPath), "sun.log should be created");
         List<String> lines = Files.readAllLines(sunLogPath);
@@ -97,6 +98,7 @@ class SunLogTest {
 
         String sunriseMessage = "The turnwise sky starts to lighten as the sun peeks over the horizon.";
         processor.onFullLineReceived(sunriseMessage);
+        processor.awaitSunLog();
 
         assertFalse(Files.exists(sunLogPath), "sun.log should not be created when SUNLOG property is not set");
     }
@@ -128,6 +130,7 @@ class SunLogTest {
 
         processor.onFullLineReceived("The turnwise sky starts to lighten as the sun peeks over the horizon.");
         processor.onFullLineReceived("The sun sinks further below the widdershins horizon.");
+        processor.awaitSunLog();
 
         assertTrue(Files.exists(sunLogPath));
         List<String> lines = Files.readAllLines(sunLogPath);
@@ -0,0 +1,103 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.core;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import com.danavalerie.matrixmudrelay.config.ConfigLoader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TriggerEngineTest {
+
+    private static String literal(String regex) {
+        return TriggerEngine.requiredLiteral(Pattern.compile(regex));
+    }
+
+    @Test
+    public void testRequiredLiteralExtraction() {
+        assertEquals("Whoops!  You tried to carry too many things and fumbled ",
+                literal("^Whoops!  You tried to carry too many things and fumbled .*$"));
+        assertEquals(" you think you can hear a faint rumbling sound from it.",
+                literal("^When you open the .* you think you can hear a faint rumbling sound from it\\.$"));
+        assertEquals(" tells you: ", literal("^.+ tells you: .*$"));
+        assertEquals("You have been awarded ", literal("^You have been awarded .*$"));
+        assertEquals("r and ", literal("colou?r and (red|blue) s*"));
+        assertEquals("xa+b", literal("x\\Qa+b\\E\\d"));
+        assertEquals("bbb", literal("(?i)a*bbb"));
+        assertEquals(") ", literal("^\\([^)]*\\) .*"));
+        assertNull(literal("^.*$"));
+        assertNull(literal("cat|dog"));
+        assertNull(literal("(?x) spaced out"));
+        assertNull(literal("\\x41BC"));
+    }
+
+    @Test
+    public void testFirstMatchInConfigOrderWithPrefilter() {
+        List<TriggerEngine.Rule<Integer>> rules = new ArrayList<>();
+        List<ClientConfig.Trigger> triggers = ConfigLoader.createDefaultTriggers();
+        for (int i = 0; i < triggers.size(); i++) {
+            rules.add(new TriggerEngine.Rule<>(Pattern.compile(triggers.get(i).pattern), i));
+        }
+        rules.add(new TriggerEngine.Rule<>(Pattern.compile("(?i)^the \\w+ TELLS you: .*$"), 99));
+        TriggerEngine<Integer> engine = new TriggerEngine<>(rules);
+
+        for (String line : List.of("Bob tells you: hi", "You have been awarded 5 experience points.",
+                "(chat) Bob: hello", "Your divine protection expires.", "Nothing to see here.")) {
+            Integer expected = null;
+            for (int i = 0; i < triggers.size() && expected == null; i++) {
+                if (Pattern.compile(triggers.get(i).pattern).matcher(line).matches()) {
+                    expected = i;
+                }
+            }
+            assertEquals(expected, engine.match(line), line);
+        }
+        assertEquals(99, engine.match("The guard Tells You: halt"));
+        assertNull(new TriggerEngine<Integer>(List.of()).match("anything"));
+    }
+
+    @Test
+    public void testStatsCountCandidatesAndSurviveRebuild() {
+        TriggerEngine.Rule<String> tells = new TriggerEngine.Rule<>(Pattern.compile("^.+ tells you: .*$"), "tell");
+        TriggerEngine.Rule<String> any = new TriggerEngine.Rule<>(Pattern.compile("^x.*$"), "x");
+        TriggerEngine<String> engine = new TriggerEngine<>(List.of(tells, any));
+
+        engine.match("Bob tells you: hi");
+        engine.match("Bob says: hi");
+        engine.match("xyz");
+
+        TriggerEngine.Stats tellStats = engine.stats(tells.pattern().pattern());
+        assertEquals(1, tellStats.evaluations(), "Prefilter should skip lines without the literal");
+        assertEquals(1, tellStats.matches());
+        assertEquals(1, engine.stats(any.pattern().pattern()).evaluations());
+        assertTrue(tellStats.totalNanos() >= tellStats.maxNanos());
+
+        TriggerEngine<String> rebuilt = new TriggerEngine<>(List.of(tells), engine, pattern -> {
+        });
+        assertSame(tellStats, rebuilt.stats(tells.pattern().pattern()));
+        assertNull(rebuilt.stats(any.pattern().pattern()));
+    }
+}
@@ -0,0 +1,78 @@
+package com.danavalerie.matrixmudrelay.core.data;
+
+import com.danavalerie.matrixmudrelay.util.GsonUtils;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class StreamingAdapterTest {
+    private static final Gson GSON = GsonUtils.getGson();
+    // Reads the way the client did before the hand-written adapters.
+    private static final Gson REFLECTIVE = new GsonBuilder()
+            .registerTypeAdapter(ShopItem.class, new ShopItem.Adapter())
+            .create();
+    private static final Type ROOMS = new TypeToken<TreeMap<String, RoomData>>() {}.getType();
+    private static final Type NPCS = new TypeToken<TreeMap<String, NpcData>>() {}.getType();
+
+    @Test
+    void readsRoomsLikeReflection() {
+        String json = """
+                {
+                  "r1": {"roomId": "r1", "mapId": 3, "xpos": -4, "ypos": "7", "roomShort": "A Shop",
+                         "roomType": null, "unknown": {"nested": [1, 2]},
+                         "exits": {"north": "r2", "up": null},
+                         "shopItems": ["sock", {"name": "hat", "shopName": "pointy hat"}, 12],
+                         "Flags": " notp "},
+                  "r2": {"roomId": "r2", "exits": null, "shopItems": null, "flags": ["a", " ", "b"]}
+                }""";
+        Map<String, RoomData> streamed = GSON.fromJson(json, ROOMS);
+        Map<String, RoomData> reflected = REFLECTIVE.fromJson(json, ROOMS);
+
+        assertEquals(GSON.toJson(reflected), GSON.toJson(streamed));
+        RoomData shop = streamed.get("r1");
+        assertEquals(7, shop.getYpos());
+        assertEquals("pointy hat", shop.getShopItems().get(1).getShopName());
+        assertEquals("12", shop.getShopItems().get(2).getName());
+        assertEquals(List.of("notp"), shop.getFlags());
+        assertNull(streamed.get("r2").getExits());
+        assertEquals(List.of("a", "b"), streamed.get("r2").getFlags());
+    }
+
+    @Test
+    void readsNpcsLikeReflection() throws Exception {
+        String json = """
+                {"n1": {"npcId": "n1", "npcName": "Seller", "roomId": null, "extra": true,
+                        "items": {"sock": {"salePrice": "4p", "specialNote": null}, "hat": null}},
+                 "n2": {"npcId": "n2", "items": null}}""";
+        Map<String, NpcData> sample = GSON.fromJson(json, NPCS);
+        Map<String, NpcData> sampleReflected = REFLECTIVE.fromJson(json, NPCS);
+        assertEquals(GSON.toJson(sampleReflected), GSON.toJson(sample));
+        assertNull(sample.get("n1").getItems().get("hat"));
+
+        Path npcsJson = Path.of("npcs.json");
+        assumeTrue(Files.exists(npcsJson), "npcs.json is not available");
+        Map<String, NpcData> reflected;
+        try (Reader reader = Files.newBufferedReader(npcsJson)) {
+            reflected = REFLECTIVE.fromJson(reader, NPCS);
+        }
+        Map<String, NpcData> streamed;
+        try (Reader reader = Files.newBufferedReader(npcsJson)) {
+            streamed = GSON.fromJson(reader, NPCS);
+        }
+
+        assertEquals(GSON.toJson(reflected), GSON.toJson(streamed));
+    }
+}
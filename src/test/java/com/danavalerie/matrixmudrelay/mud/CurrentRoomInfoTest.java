@@ -0,0 +1,80 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CurrentRoomInfoTest {
+
+    @Test
+    public void testOlderSnapshotsAreNotAffectedByUpdates() {
+        CurrentRoomInfo info = new CurrentRoomInfo();
+        info.update("room.info", JsonParser.parseString("{\"identifier\":\"a\",\"short\":\"first\"}"));
+        CurrentRoomInfo.Snapshot before = info.getSnapshot();
+
+        info.update("room.info", JsonParser.parseString("{\"identifier\":\"b\",\"short\":\"second\"}"));
+        info.update("char.info", JsonParser.parseString("{\"capname\":\"Lesa\"}"));
+
+        assertEquals("a", before.roomId());
+        assertEquals("first", before.roomName());
+        assertNull(before.characterName());
+        assertEquals(1, before.data().size());
+        assertEquals("b", info.getSnapshot().roomId());
+        assertEquals("Lesa", info.getSnapshot().characterName());
+    }
+
+    @Test
+    public void testDataCombinesNamespacesInOrder() {
+        CurrentRoomInfo info = new CurrentRoomInfo();
+        info.update("core.ping", JsonParser.parseString("{}"));
+        info.update("char.vitals", JsonParser.parseString("{\"hp\":1}"));
+        info.update("room.info", JsonParser.parseString("{\"identifier\":\"a\"}"));
+
+        Map<String, ?> data = info.getSnapshot().data();
+        assertEquals(List.of("room.info", "char.vitals", "core.ping"), List.copyOf(data.keySet()));
+        assertSame(data, info.getSnapshot().data(), "Combined view should be built once per snapshot");
+        assertThrows(UnsupportedOperationException.class, () -> info.getSnapshot().data().clear());
+    }
+
+    @Test
+    public void testRoomIdKeptWhenRoomInfoHasNoIdentifier() {
+        CurrentRoomInfo info = new CurrentRoomInfo();
+        assertTrue(info.getSnapshot().isEmpty());
+        info.update("room.info", JsonParser.parseString("{\"identifier\":\"a\"}"));
+        info.update("room.info", JsonParser.parseString("{\"short\":\"somewhere\"}"));
+
+        assertEquals("a", info.getSnapshot().roomId());
+        assertEquals("somewhere", info.getSnapshot().roomName());
+        assertFalse(info.getSnapshot().isEmpty());
+
+        info.clear();
+        assertTrue(info.getSnapshot().isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrameCoalescingQueueTest {
+
+    @Test
+    public void testFragmentsAreJoinedIntoFewDeliveries() throws Exception {
+        List<String> delivered = new ArrayList<>();
+        FrameCoalescingQueue queue = new FrameCoalescingQueue(delivered::add);
+        CountDownLatch done = new CountDownLatch(1);
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String fragment = Character.toString('a' + (i % 26));
+            expected.append(fragment);
+            queue.offerText(fragment, () -> true);
+        }
+        queue.offerEvent(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> {});
+
+        assertEquals(expected.toString(), String.join("", delivered));
+        assertTrue(delivered.size() < 50, "Expected coalesced deliveries but got " + delivered.size());
+        assertEquals(0, queue.pendingChars());
+    }
+
+    @Test
+    public void testEventsKeepTheirPositionInTheStream() throws Exception {
+        List<String> log = new ArrayList<>();
+        FrameCoalescingQueue queue = new FrameCoalescingQueue(text -> log.add("text:" + text));
+        CountDownLatch done = new CountDownLatch(1);
+        CountDownLatch blockEdt = new CountDownLatch(1);
+        // Hold the EDT so every offer lands in the same drain.
+        SwingUtilities.invokeLater(() -> {
+            try {
+                blockEdt.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        queue.offerText("one ", () -> true);
+        queue.offerText("two", () -> true);
+        queue.offerEvent(() -> log.add("gmcp"));
+        queue.offerText("three", () -> true);
+        queue.offerEvent(done::countDown);
+        blockEdt.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        SwingUtilities.invokeAndWait(() -> {});
+
+        assertEquals(List.of("text:one two", "gmcp", "text:three"), log);
+    }
+
+    @Test
+    public void testProducerIsParkedWhenOverBound() throws Exception {
+        List<String> delivered = new ArrayList<>();
+        FrameCoalescingQueue queue = new FrameCoalescingQueue(delivered::add, 10);
+        CountDownLatch blockEdt = new CountDownLatch(1);
+        SwingUtilities.invokeLater(() -> {
+            try {
+                blockEdt.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        });
+
+        long start = System.nanoTime();
+        Thread releaser = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            blockEdt.countDown();
+        });
+        releaser.start();
+        queue.offerText("0123456789abcdef", () -> true);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(waitedMs >= 50, "Producer should wait for the EDT to drain, waited " + waitedMs + "ms");
+        SwingUtilities.invokeAndWait(() -> {});
+        assertEquals(List.of("0123456789abcdef"), delivered);
+    }
+}
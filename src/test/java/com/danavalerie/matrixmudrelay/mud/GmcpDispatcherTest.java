@@ -0,0 +1,93 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class GmcpDispatcherTest {
+    private final GmcpDispatcher dispatcher = new GmcpDispatcher(
+            Set.of(Gmcp.ROOM_INFO, Gmcp.CHAR_VITALS, Gmcp.CHAR_INFO), StandardCharsets.UTF_8);
+
+    @Test
+    public void testVitalsDecodedToTypedRecord() {
+        TelnetDecoder.GmcpMessage message = decode(
+                "char.vitals {\"hp\":100,\"maxhp\":120,\"gp\":50,\"maxgp\":60,\"burden\":20,\"xp\":12345}");
+
+        assertNotNull(message);
+        assertEquals(new Gmcp.Vitals(100, 120, 50, 60, 20, 12345L), message.value());
+    }
+
+    @Test
+    public void testRoomInfoDecodedToTypedRecord() {
+        TelnetDecoder.GmcpMessage message = decode(
+                "Room.Info {\"identifier\":\"abc\",\"short\":\"a street\",\"kind\":\"outside\"}");
+
+        assertNotNull(message);
+        assertEquals(new Gmcp.RoomInfo("abc", "a street", CurrentRoomInfo.RoomEnvironment.OUTSIDE), message.value());
+    }
+
+    @Test
+    public void testUnchangedPayloadIsSuppressed() {
+        String vitals = "char.vitals {\"hp\":100,\"maxhp\":120,\"gp\":50,\"maxgp\":60,\"burden\":20,\"xp\":1}";
+        assertNotNull(decode(vitals));
+        assertNull(decode(vitals));
+        assertNull(decode("char.vitals { \"hp\": 100, \"maxhp\": 120, \"gp\": 50, \"maxgp\": 60, \"burden\": 20, \"xp\": 1 }"));
+        assertNotNull(decode(vitals.replace("\"hp\":100", "\"hp\":99")));
+    }
+
+    @Test
+    public void testSuppressionIsPerModule() {
+        assertNotNull(decode("char.info {\"capname\":\"Lesa\"}"));
+        assertNotNull(decode("room.info {\"identifier\":\"abc\"}"));
+        assertNull(decode("char.info {\"capname\":\"Lesa\"}"));
+        assertNull(decode("room.info {\"identifier\":\"abc\"}"));
+    }
+
+    @Test
+    public void testUnsubscribedModuleIsDropped() {
+        assertNull(decode("room.map {\"not even\": json"));
+        assertNull(decode("   "));
+    }
+
+    @Test
+    public void testSnapshotExposesTypedValues() {
+        CurrentRoomInfo info = new CurrentRoomInfo();
+        info.update(decode("room.info {\"identifier\":\"abc\",\"short\":\"a street\",\"kind\":\"inside\"}"));
+        info.update(decode("char.info {\"capname\":\"Lesa\"}"));
+        info.update(decode("char.vitals {\"hp\":1,\"maxhp\":2,\"gp\":3,\"maxgp\":4,\"burden\":5,\"xp\":6}"));
+
+        CurrentRoomInfo.Snapshot snapshot = info.getSnapshot();
+        assertEquals("abc", snapshot.roomId());
+        assertEquals("a street", snapshot.roomName());
+        assertEquals(CurrentRoomInfo.RoomEnvironment.INSIDE, snapshot.roomEnvironment());
+        assertEquals("Lesa", snapshot.characterName());
+        assertEquals(new Gmcp.Vitals(1, 2, 3, 4, 5, 6L), snapshot.vitals());
+    }
+
+    private TelnetDecoder.GmcpMessage decode(String text) {
+        return dispatcher.decode(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
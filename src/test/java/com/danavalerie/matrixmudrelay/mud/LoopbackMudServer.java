@@ -0,0 +1,349 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import com.google.gson.JsonObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small in-process telnet MUD for end-to-end tests. It negotiates TTYPE, GMCP, MXP and
+ * EOR the way Discworld does, walks a room graph (for example the rooms from
+ * {@code rooms.json}) in response to exit commands and {@code alias} speedwalks, and can
+ * stream scripted ANSI/MXP text with interleaved char.vitals at a chosen rate.
+ * <p>
+ * One client is served at a time. Every command gets a prompt terminated by IAC EOR (or
+ * IAC GA if the client refused EOR).
+ */
+public final class LoopbackMudServer implements Closeable {
+    private static final byte IAC = (byte) 255;
+    private static final byte DONT = (byte) 254;
+    private static final byte DO = (byte) 253;
+    private static final byte WONT = (byte) 252;
+    private static final byte WILL = (byte) 251;
+    private static final byte SB = (byte) 250;
+    private static final byte GA = (byte) 249;
+    private static final byte SE = (byte) 240;
+    private static final byte EOR_CMD = (byte) 239;
+    private static final byte TTYPE = (byte) 24;
+    private static final byte EOR = (byte) 25;
+    private static final byte MXP = (byte) 91;
+    private static final byte GMCP = (byte) 201;
+    private static final String PROMPT = "> ";
+    private static final Map<String, String> EXIT_ABBREVIATIONS = Map.of(
+            "n", "north", "s", "south", "e", "east", "w", "west",
+            "ne", "northeast", "nw", "northwest", "se", "southeast", "sw", "southwest",
+            "u", "up", "d", "down");
+
+    private final Map<String, RoomData> rooms;
+    private final ServerSocket serverSocket;
+    private final Thread acceptThread;
+    private final CountDownLatch negotiated = new CountDownLatch(3);
+    private final List<String> commands = new CopyOnWriteArrayList<>();
+    private final Map<String, String> aliases = new HashMap<>();
+    private volatile String currentRoomId;
+    private volatile String terminalType;
+    private volatile boolean useEor;
+    private volatile Socket client;
+    private OutputStream out;
+
+    /**
+     * @param rooms the room graph to walk; exits must name rooms in the same map
+     * @param startRoomId where the character stands after connecting
+     */
+    public LoopbackMudServer(Map<String, RoomData> rooms, String startRoomId) throws IOException {
+        this.rooms = rooms;
+        this.currentRoomId = startRoomId;
+        this.serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        this.acceptThread = new Thread(this::serve, "loopback-mud");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    /**
+     * @return a MUD config pointing at this server
+     */
+    public ClientConfig.Mud clientConfig() {
+        ClientConfig.Mud cfg = new ClientConfig.Mud();
+        cfg.host = serverSocket.getInetAddress().getHostAddress();
+        cfg.port = serverSocket.getLocalPort();
+        return cfg;
+    }
+
+    /**
+     * Waits until the client has answered the TTYPE, GMCP and MXP offers.
+     */
+    public boolean awaitNegotiation(long timeout, TimeUnit unit) throws InterruptedException {
+        return negotiated.await(timeout, unit);
+    }
+
+    public String terminalType() {
+        return terminalType;
+    }
+
+    public String currentRoomId() {
+        return currentRoomId;
+    }
+
+    /**
+     * @return every command received so far, with aliases expanded, in order
+     */
+    public List<String> commands() {
+        return List.copyOf(commands);
+    }
+
+    public void sendText(String text) throws IOException {
+        write(text.replace("\n", "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public void sendGmcp(String module, String json) throws IOException {
+        ByteArrayOutputStream msg = new ByteArrayOutputStream();
+        msg.write(IAC);
+        msg.write(SB);
+        msg.write(GMCP);
+        msg.writeBytes((module + " " + json).getBytes(StandardCharsets.UTF_8));
+        msg.write(IAC);
+        msg.write(SE);
+        write(msg.toByteArray());
+    }
+
+    public void sendPrompt() throws IOException {
+        ByteArrayOutputStream msg = new ByteArrayOutputStream();
+        msg.writeBytes(PROMPT.getBytes(StandardCharsets.ISO_8859_1));
+        msg.write(IAC);
+        msg.write(useEor ? EOR_CMD : GA);
+        write(msg.toByteArray());
+    }
+
+    /**
+     * Streams {@code lines} lines of coloured ANSI/MXP text from the calling thread, with a
+     * char.vitals update every {@code vitalsEvery} lines (0 for none).
+     *
+     * @param linesPerSecond target rate, or 0 to send as fast as the socket accepts
+     * @return the number of text bytes sent, excluding GMCP
+     */
+    public long streamText(int lines, int linesPerSecond, int vitalsEvery) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        long bytes = 0;
+        StringBuilder batch = new StringBuilder();
+        for (int i = 1; i <= lines; i++) {
+            batch.append("\u001b[1z<c yellow>Wilbur</c>\u001b[0;36m says: \u001b[1;32mline ")
+                    .append(i)
+                    .append("\u001b[0m of the scripted stream.\n");
+            boolean vitals = vitalsEvery > 0 && i % vitalsEvery == 0;
+            boolean pace = linesPerSecond > 0 && i % Math.max(1, linesPerSecond / 50) == 0;
+            if (vitals || pace || i == lines || batch.length() > 4096) {
+                bytes += batch.length();
+                sendText(batch.toString());
+                batch.setLength(0);
+            }
+            if (vitals) {
+                sendGmcp("char.vitals", "{\"hp\":" + (1000 - i % 500) + ",\"maxhp\":1000,\"gp\":100,"
+                        + "\"maxgp\":200,\"burden\":10,\"xp\":" + i + "}");
+            }
+            if (pace) {
+                long due = start + TimeUnit.SECONDS.toNanos(i) / linesPerSecond;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private void serve() {
+        try {
+            while (!serverSocket.isClosed()) {
+                Socket s = serverSocket.accept();
+                s.setTcpNoDelay(true);
+                client = s;
+                synchronized (this) {
+                    out = s.getOutputStream();
+                }
+                write(new byte[]{IAC, DO, TTYPE, IAC, WILL, GMCP, IAC, WILL, MXP, IAC, WILL, EOR});
+                readCommands(s.getInputStream());
+            }
+        } catch (IOException ignored) {
+            // closed
+        }
+    }
+
+    private void readCommands(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        ByteArrayOutputStream sb = new ByteArrayOutputStream();
+        int state = 0; // 0 data, 1 IAC, 2 option, 3 SB data, 4 SB IAC
+        int command = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            switch (state) {
+                case 0 -> {
+                    if (b == (IAC & 0xFF)) {
+                        state = 1;
+                    } else if (b == '\n') {
+                        handleLine(line.toString(StandardCharsets.ISO_8859_1));
+                        line.reset();
+                    } else if (b != '\r') {
+                        line.write(b);
+                    }
+                }
+                case 1 -> {
+                    if (b == (SB & 0xFF)) {
+                        sb.reset();
+                        state = 3;
+                    } else if (b == (DO & 0xFF) || b == (DONT & 0xFF) || b == (WILL & 0xFF) || b == (WONT & 0xFF)) {
+                        command = b;
+                        state = 2;
+                    } else {
+                        state = 0;
+                    }
+                }
+                case 2 -> {
+                    handleNegotiation((byte) command, (byte) b);
+                    state = 0;
+                }
+                case 3 -> {
+                    if (b == (IAC & 0xFF)) {
+                        state = 4;
+                    } else {
+                        sb.write(b);
+                    }
+                }
+                case 4 -> {
+                    if (b == (SE & 0xFF)) {
+                        handleSubnegotiation(sb.toByteArray());
+                        state = 0;
+                    } else {
+                        sb.write(b);
+                        state = 3;
+                    }
+                }
+                default -> state = 0;
+            }
+        }
+    }
+
+    private void handleNegotiation(byte command, byte option) throws IOException {
+        if (command == WILL && option == TTYPE) {
+            write(new byte[]{IAC, SB, TTYPE, 1, IAC, SE});
+        } else if (option == GMCP && (command == DO || command == DONT)) {
+            negotiated.countDown();
+        } else if (option == MXP && (command == DO || command == DONT)) {
+            negotiated.countDown();
+        } else if (option == EOR) {
+            useEor = command == DO;
+        }
+    }
+
+    private void handleSubnegotiation(byte[] data) throws IOException {
+        if (data.length > 1 && data[0] == TTYPE && data[1] == 0) {
+            terminalType = new String(data, 2, data.length - 2, StandardCharsets.ISO_8859_1);
+            negotiated.countDown();
+            sendRoom();
+            sendPrompt();
+        }
+    }
+
+    private void handleLine(String line) throws IOException {
+        String trimmed = line.trim();
+        if (trimmed.startsWith("alias ")) {
+            String[] parts = trimmed.split("\\s+", 3);
+            if (parts.length == 3) {
+                aliases.put(parts[1], parts[2]);
+            }
+            commands.add(trimmed);
+            sendPrompt();
+            return;
+        }
+        String alias = aliases.get(trimmed);
+        if (alias != null) {
+            for (String step : alias.split(";")) {
+                runCommand(step.trim());
+            }
+            return;
+        }
+        runCommand(trimmed);
+    }
+
+    private void runCommand(String command) throws IOException {
+        commands.add(command);
+        RoomData room = rooms.get(currentRoomId);
+        String exit = EXIT_ABBREVIATIONS.getOrDefault(command, command);
+        if (room != null && room.getExits().containsKey(exit)) {
+            currentRoomId = room.getExits().get(exit);
+            sendRoom();
+        } else if (command.equals("look") || command.equals("l")) {
+            sendRoom();
+        } else if (!command.isEmpty()) {
+            sendText("What?\n");
+        }
+        sendPrompt();
+    }
+
+    private void sendRoom() throws IOException {
+        RoomData room = rooms.get(currentRoomId);
+        if (room == null) {
+            sendText("You are nowhere.\n");
+            return;
+        }
+        JsonObject info = new JsonObject();
+        info.addProperty("identifier", room.getRoomId());
+        info.addProperty("short", room.getRoomShort());
+        if (room.getRoomType() != null) {
+            info.addProperty("kind", room.getRoomType());
+        }
+        sendGmcp("room.info", info.toString());
+        sendText("\u001b[1;37m" + room.getRoomShort() + "\u001b[0m\n"
+                + "There are " + room.getExits().size() + " obvious exits: "
+                + String.join(", ", room.getExits().keySet()) + ".\n");
+    }
+
+    private synchronized void write(byte[] data) throws IOException {
+        if (out == null) {
+            throw new IOException("No client connected");
+        }
+        out.write(data);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        Socket s = client;
+        if (s != null) {
+            s.close();
+        }
+    }
+}
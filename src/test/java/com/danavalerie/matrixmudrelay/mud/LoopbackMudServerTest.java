@@ -0,0 +1,127 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.core.data.RoomData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LoopbackMudServerTest {
+    private LoopbackMudServer server;
+    private MudClient client;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.disconnect("test", null);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    static Map<String, RoomData> twoRooms() {
+        Map<String, RoomData> rooms = new TreeMap<>();
+        RoomData drum = new RoomData("drum", 1, 10, 10, "The Mended Drum", "inside");
+        RoomData street = new RoomData("street", 1, 10, 0, "Short Street", "outside");
+        drum.getExits().put("north", "street");
+        street.getExits().put("south", "drum");
+        rooms.put(drum.getRoomId(), drum);
+        rooms.put(street.getRoomId(), street);
+        return rooms;
+    }
+
+    @Test
+    public void testNegotiatesAndWalks() throws Exception {
+        server = new LoopbackMudServer(twoRooms(), "drum");
+        StringBuffer text = new StringBuffer();
+        client = new MudClient(server.clientConfig(), text::append, reason -> {});
+        client.setGmcpListener(message -> {});
+        client.connect();
+
+        assertTrue(server.awaitNegotiation(5, TimeUnit.SECONDS));
+        assertEquals("ANSI", server.terminalType());
+        waitFor(() -> "drum".equals(client.getCurrentRoomSnapshot().roomId()));
+
+        client.sendLinesFromController(List.of("n"));
+        waitFor(() -> "street".equals(client.getCurrentRoomSnapshot().roomId()));
+        assertEquals("Short Street", client.getCurrentRoomSnapshot().roomName());
+        assertTrue(text.toString().contains("Short Street"));
+
+        client.sendLinesFromController(List.of("alias back s;n;s", "back"));
+        waitFor(() -> server.commands().size() == 5);
+        assertEquals(List.of("n", "alias back s;n;s", "s", "n", "s"), server.commands());
+        waitFor(() -> "drum".equals(client.getCurrentRoomSnapshot().roomId()));
+    }
+
+    @Test
+    public void testStreamThroughputAndEchoLatency() throws Exception {
+        server = new LoopbackMudServer(twoRooms(), "drum");
+        AtomicLong newlines = new AtomicLong();
+        AtomicReference<Gmcp.Vitals> vitals = new AtomicReference<>();
+        client = new MudClient(server.clientConfig(), text -> newlines.addAndGet(text.chars().filter(c -> c == '\n').count()),
+                reason -> {});
+        client.setGmcpListener(message -> {
+            if (message.value() instanceof Gmcp.Vitals v) {
+                vitals.set(v);
+            }
+        });
+        client.connect();
+        assertTrue(server.awaitNegotiation(5, TimeUnit.SECONDS));
+        waitFor(() -> newlines.get() >= 2);
+
+        int lines = 20_000;
+        long before = newlines.get();
+        long start = System.nanoTime();
+        long bytes = server.streamText(lines, 0, 100);
+        waitFor(() -> newlines.get() - before >= lines);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue(bytes > lines * 50L);
+        assertTrue(elapsedMs < 10_000, "Delivering " + lines + " lines took " + elapsedMs + "ms");
+        waitFor(() -> vitals.get() != null && vitals.get().xp() == lines);
+
+        client.sendLinesFromController(List.of("look"));
+        waitFor(() -> client.getOutboundStats().lastEchoMs() >= 0);
+        assertTrue(client.getOutboundStats().lastEchoMs() < 1000,
+                "Echo took " + client.getOutboundStats().lastEchoMs() + "ms");
+        RttHistogram.Summary rtt = client.getRttSummary();
+        assertEquals(1, rtt.samples());
+        assertTrue(rtt.lastMs() >= 0 && rtt.lastMs() <= rtt.p99Ms(), rtt.toString());
+    }
+
+    static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
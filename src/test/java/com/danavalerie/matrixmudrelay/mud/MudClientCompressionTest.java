@@ -0,0 +1,236 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MudClientCompressionTest {
+    private static final byte IAC = (byte) 255;
+    private static final byte WILL = (byte) 251;
+    private static final byte DO = (byte) 253;
+    private static final byte SB = (byte) 250;
+    private static final byte SE = (byte) 240;
+    private static final byte COMPRESS2 = (byte) 86;
+    private static final byte COMPRESS3 = (byte) 87;
+    private static final byte TTYPE = (byte) 24;
+    private static final byte GMCP = (byte) 201;
+
+    private ServerSocket server;
+    private MudClient client;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.disconnect("test", null);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testInboundStreamIsInflated() throws Exception {
+        server = new ServerSocket(0);
+        List<String> received = new CopyOnWriteArrayList<>();
+        client = new MudClient(config(server.getLocalPort()), received::add, reason -> {});
+        client.connect();
+
+        try (Socket s = server.accept()) {
+            OutputStream out = s.getOutputStream();
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            out.write(concat(ascii("plain "), new byte[]{IAC, WILL, COMPRESS2}));
+            out.flush();
+            byte[] reply = new byte[3];
+            in.readFully(reply);
+            assertArrayEquals(new byte[]{IAC, DO, COMPRESS2}, reply);
+
+            // Start sequence and the first compressed bytes arrive in the same packet.
+            byte[] session = ascii("compressed text\r\nsecond line\r\n");
+            out.write(concat(new byte[]{IAC, SB, COMPRESS2, IAC, SE}, deflate(session), ascii("after")));
+            out.flush();
+
+            waitFor(() -> String.join("", received).contains("after"));
+        }
+
+        assertEquals("plain compressed text\nsecond line\nafter", String.join("", received));
+    }
+
+    @Test
+    public void testOutboundStreamIsDeflated() throws Exception {
+        server = new ServerSocket(0);
+        client = new MudClient(config(server.getLocalPort()), line -> {}, reason -> {});
+        client.connect();
+
+        try (Socket s = server.accept()) {
+            OutputStream out = s.getOutputStream();
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            out.write(new byte[]{IAC, WILL, COMPRESS3});
+            out.flush();
+            byte[] reply = new byte[8];
+            in.readFully(reply);
+            assertArrayEquals(new byte[]{IAC, DO, COMPRESS3, IAC, SB, COMPRESS3, IAC, SE}, reply);
+
+            client.sendLinesFromController(List.of("look", "score"));
+
+            InputStream inflated = new InflaterInputStream(in);
+            byte[] expected = ascii("look\nscore\n");
+            byte[] actual = new byte[expected.length];
+            new DataInputStream(inflated).readFully(actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testNegotiationRepliesShareTheDeflatedStreamWithCommands() throws Exception {
+        server = new ServerSocket(0);
+        client = new MudClient(config(server.getLocalPort()), line -> {}, reason -> {});
+        client.connect();
+        int rounds = 200;
+
+        try (Socket s = server.accept()) {
+            OutputStream out = s.getOutputStream();
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            out.write(new byte[]{IAC, WILL, COMPRESS3});
+            out.flush();
+            in.readFully(new byte[8]);
+
+            Thread negotiator = new Thread(() -> {
+                try {
+                    for (int i = 0; i < rounds; i++) {
+                        out.write(new byte[]{IAC, DO, TTYPE, IAC, WILL, GMCP, IAC, SB, TTYPE, 1, IAC, SE});
+                        out.flush();
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            negotiator.start();
+            for (int i = 0; i < rounds; i++) {
+                client.sendLinesFromController(List.of("cmd" + i));
+            }
+            negotiator.join();
+
+            // Every byte the client sent must still inflate; pick the commands back out of it.
+            InputStream inflated = new InflaterInputStream(in);
+            StringBuilder commands = new StringBuilder();
+            int ttypeReplies = 0;
+            while (commands.indexOf("cmd" + (rounds - 1) + "\n") < 0 || ttypeReplies < rounds) {
+                int b = inflated.read();
+                assertTrue(b >= 0, "Client stream ended early");
+                if ((byte) b == IAC) {
+                    int cmd = inflated.read();
+                    if ((byte) cmd == SB) {
+                        int opt = inflated.read();
+                        while (inflated.read() != (SE & 0xff)) {
+                        }
+                        if ((byte) opt == TTYPE) {
+                            ttypeReplies++;
+                        }
+                    } else {
+                        inflated.read();
+                    }
+                } else {
+                    commands.append((char) b);
+                }
+            }
+            StringBuilder expected = new StringBuilder();
+            for (int i = 0; i < rounds; i++) {
+                expected.append("cmd").append(i).append('\n');
+            }
+            assertEquals(expected.toString(), commands.toString());
+        }
+    }
+
+    @Test
+    public void testCompressionRefusedWhenDisabled() throws Exception {
+        server = new ServerSocket(0);
+        ClientConfig.Mud cfg = config(server.getLocalPort());
+        cfg.compression = false;
+        client = new MudClient(cfg, line -> {}, reason -> {});
+        client.connect();
+
+        try (Socket s = server.accept()) {
+            s.getOutputStream().write(new byte[]{IAC, WILL, COMPRESS2});
+            s.getOutputStream().flush();
+            byte[] reply = new byte[3];
+            new DataInputStream(s.getInputStream()).readFully(reply);
+            assertArrayEquals(new byte[]{IAC, (byte) 254, COMPRESS2}, reply);
+        }
+    }
+
+    private static ClientConfig.Mud config(int port) {
+        ClientConfig.Mud cfg = new ClientConfig.Mud();
+        cfg.host = "127.0.0.1";
+        cfg.port = port;
+        return cfg;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[256];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buf);
+            out.write(buf, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MudClientRttTest {
+    private static final byte IAC = (byte) 255;
+    private static final byte GA = (byte) 249;
+
+    private ServerSocket server;
+    private MudClient client;
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.disconnect("test", null);
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSampleEndsAtPromptNotAtUnrelatedText() throws Exception {
+        server = new ServerSocket(0);
+        ClientConfig.Mud cfg = new ClientConfig.Mud();
+        cfg.host = "127.0.0.1";
+        cfg.port = server.getLocalPort();
+        StringBuffer text = new StringBuffer();
+        client = new MudClient(cfg, text::append, reason -> {});
+        client.connect();
+
+        try (Socket s = server.accept()) {
+            OutputStream out = s.getOutputStream();
+            BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.ISO_8859_1));
+            prompt(out);
+            waitFor(() -> text.indexOf("> ") >= 0);
+
+            client.sendLinesFromController(List.of("kill troll"));
+            assertEquals("kill troll", in.readLine());
+            // Channel chatter already on its way when the command arrives.
+            out.write("(chat) Bob: hi\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            Thread.sleep(150);
+            out.write("You attack the troll.\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            prompt(out);
+
+            waitFor(() -> client.getRttSummary().samples() > 0);
+        }
+
+        RttHistogram.Summary rtt = client.getRttSummary();
+        assertEquals(1, rtt.samples());
+        assertTrue(rtt.lastMs() >= 150, rtt.toString());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void prompt(OutputStream out) throws Exception {
+        out.write(new byte[]{'>', ' ', IAC, GA});
+        out.flush();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MudTextDecoderTest {
+
+    @Test
+    public void testLatin1FastPathMatchesStringDecoding() {
+        MudTextDecoder decoder = new MudTextDecoder(StandardCharsets.ISO_8859_1);
+        assertTrue(decoder.isSingleByte());
+
+        Random random = new Random(42);
+        StringBuilder decoded = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int block = 0; block < 200; block++) {
+            byte[] data = new byte[random.nextInt(20_000)];
+            random.nextBytes(data);
+            int off = data.length == 0 ? 0 : random.nextInt(Math.min(16, data.length));
+            decoded.append(decoder.append(data, off, data.length - off));
+            expected.append(new String(data, off, data.length - off, StandardCharsets.ISO_8859_1).replace("\r", ""));
+        }
+        assertEquals(expected.toString(), decoded.toString());
+    }
+
+    @Test
+    public void testOtherSingleByteCharsetsUseTheirTable() {
+        MudTextDecoder decoder = new MudTextDecoder(Charset.forName("windows-1252"));
+        assertTrue(decoder.isSingleByte());
+        byte[] data = {(byte) 0x80, ' ', (byte) 0xE9, '\r', '\n'};
+        assertEquals("\u20ac \u00e9\n", decoder.append(data, 0, data.length));
+    }
+
+    @Test
+    public void testUtf8KeepsSequencesSplitAcrossBlocks() {
+        MudTextDecoder decoder = new MudTextDecoder(StandardCharsets.UTF_8);
+        assertFalse(decoder.isSingleByte());
+
+        byte[] data = "caf\u00e9 \u20ac\r\n".getBytes(StandardCharsets.UTF_8);
+        StringBuilder decoded = new StringBuilder();
+        for (byte b : data) {
+            decoded.append(decoder.append(new byte[]{b}, 0, 1));
+        }
+        assertEquals("caf\u00e9 \u20ac\n", decoded.toString());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboundQueueTest {
+    private final List<String> writes = new CopyOnWriteArrayList<>();
+
+    private void record(byte[] data, int len) {
+        writes.add(new String(data, 0, len, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testBatchIsEncodedIntoOneWrite() throws Exception {
+        OutboundQueue queue = new OutboundQueue(this::record, StandardCharsets.ISO_8859_1, false, 4,
+                TimeUnit.SECONDS.toNanos(1));
+        StringBuilder longLine = new StringBuilder();
+        for (int i = 0; i < 3000; i++) {
+            longLine.append((char) ('a' + i % 26));
+        }
+
+        queue.enqueue(List.of("look", "say caf\u00e9\r\nquit", longLine.toString(), "\u20ac"));
+        queue.drain();
+
+        assertEquals(List.of("look\nsay caf\u00e9quit\n" + longLine + "\n?\n"), writes);
+        assertEquals(0, queue.stats().queued());
+        assertEquals(4, queue.stats().inFlight());
+    }
+
+    @Test
+    public void testPacingWaitsForPrompts() throws Exception {
+        OutboundQueue queue = new OutboundQueue(this::record, StandardCharsets.ISO_8859_1, true, 2,
+                TimeUnit.SECONDS.toNanos(10));
+        queue.enqueue(List.of("n", "e", "s", "w"));
+
+        Thread drainer = new Thread(() -> {
+            try {
+                queue.drain();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        drainer.start();
+
+        waitFor(() -> writes.size() == 1);
+        assertEquals("n\ne\n", writes.get(0));
+        assertEquals(2, queue.stats().queued());
+        assertEquals(2, queue.stats().inFlight());
+
+        queue.onPrompt();
+        waitFor(() -> writes.size() == 2);
+        assertEquals("s\n", writes.get(1));
+
+        queue.onPrompt();
+        drainer.join(5000);
+        assertEquals(List.of("n\ne\n", "s\n", "w\n"), writes);
+        assertTrue(queue.stats().lastEchoMs() >= 0);
+        assertTrue(queue.stats().smoothedEchoMs() >= 0);
+    }
+
+    @Test
+    public void testPacingFallsBackToTimeoutWithoutPrompts() throws Exception {
+        OutboundQueue queue = new OutboundQueue(this::record, StandardCharsets.ISO_8859_1, true, 1,
+                TimeUnit.MILLISECONDS.toNanos(50));
+        queue.enqueue(List.of("a", "b", "c"));
+
+        long start = System.nanoTime();
+        queue.drain();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of("a\n", "b\n", "c\n"), writes);
+        assertTrue(elapsedMs >= 90, "Expected two timeouts, took " + elapsedMs + "ms");
+        assertEquals(-1, queue.stats().lastEchoMs());
+    }
+
+    @Test
+    public void testClearDropsQueuedCommands() throws Exception {
+        OutboundQueue queue = new OutboundQueue(this::record, StandardCharsets.ISO_8859_1, true, 1,
+                TimeUnit.SECONDS.toNanos(10));
+        queue.enqueue(List.of("a", "b"));
+        Thread drainer = new Thread(() -> {
+            try {
+                queue.drain();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        drainer.start();
+        waitFor(() -> writes.size() == 1);
+
+        queue.clear();
+        drainer.join(5000);
+
+        assertEquals(List.of("a\n"), writes);
+        assertEquals(new MudClient.OutboundStats(0, 0, -1, -1), queue.stats());
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
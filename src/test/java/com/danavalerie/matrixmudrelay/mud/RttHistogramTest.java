@@ -0,0 +1,64 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RttHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        int previous = -1;
+        for (long ms = 0; ms < 70_000; ms++) {
+            int bucket = RttHistogram.bucketFor(ms);
+            assertTrue(bucket == previous || bucket == previous + 1, "Gap at " + ms + "ms");
+            if (bucket != previous && ms >= 64 && ms < 65_536) {
+                assertEquals(ms - 1, RttHistogram.upperBound(previous), "Bucket bound before " + ms + "ms");
+            }
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        RttHistogram histogram = new RttHistogram();
+        assertEquals(RttHistogram.Summary.EMPTY, histogram.summary());
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5000));
+
+        RttHistogram.Summary summary = histogram.summary();
+        assertEquals(101, summary.samples());
+        assertEquals(5000, summary.lastMs());
+        assertEquals(51, summary.p50Ms());
+        long p99 = summary.p99Ms();
+        assertTrue(p99 >= 100 && p99 <= 107, "p99 was " + p99);
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(-1, histogram.percentileMillis(0.5));
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import com.danavalerie.matrixmudrelay.config.ClientConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SessionRecordingTest {
+    private static final byte IAC = (byte) 255;
+    private static final byte SB = (byte) 250;
+    private static final byte SE = (byte) 240;
+    private static final byte GMCP = (byte) 201;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testBlocksRoundTrip() throws Exception {
+        Path file = tempDir.resolve("session.dwrec");
+        byte[] big = new byte[100_000];
+        Arrays.fill(big, (byte) 'x');
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            recorder.record(ascii("--hello--"), 2, 5);
+            recorder.record(new byte[0], 0, 0);
+            recorder.record(big, 0, big.length);
+        }
+
+        assertEquals(16 + 12 + 5 + 12 + big.length, Files.size(file));
+        try (SessionRecording recording = SessionRecording.open(file)) {
+            assertTrue(recording.next());
+            assertEquals("hello", new String(recording.data(), 0, recording.length(), StandardCharsets.US_ASCII));
+            long first = recording.timestampNanos();
+            assertTrue(recording.next());
+            assertEquals(big.length, recording.length());
+            assertTrue(recording.timestampNanos() >= first);
+            assertFalse(recording.next());
+        }
+    }
+
+    @Test
+    public void testRegionsAreRemappedWhenFull() throws Exception {
+        Path file = tempDir.resolve("large.dwrec");
+        byte[] block = new byte[(int) (SessionRecorder.REGION_SIZE / 3)];
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            for (int i = 0; i < 7; i++) {
+                Arrays.fill(block, (byte) i);
+                recorder.record(block, 0, block.length);
+            }
+        }
+
+        try (SessionRecording recording = SessionRecording.open(file)) {
+            for (int i = 0; i < 7; i++) {
+                assertTrue(recording.next());
+                assertEquals(block.length, recording.length());
+                assertEquals((byte) i, recording.data()[block.length - 1]);
+            }
+            assertFalse(recording.next());
+        }
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws Exception {
+        Path file = tempDir.resolve("not-a-recording.txt");
+        Files.writeString(file, "definitely not a recording");
+        assertThrows(IOException.class, () -> SessionRecording.open(file));
+    }
+
+    @Test
+    public void testReplayFeedsDecodePipeline() throws Exception {
+        Path file = tempDir.resolve("replay.dwrec");
+        byte[] stream = concat(ascii("Welcome\r\n"), new byte[]{IAC, SB, GMCP},
+                ascii("char.info {\"capname\":\"Lesa\"}"), new byte[]{IAC, SE}, ascii("> "));
+        try (SessionRecorder recorder = new SessionRecorder(file)) {
+            // Split mid-subnegotiation, as a socket read might.
+            recorder.record(stream, 0, 12);
+            recorder.record(stream, 12, stream.length - 12);
+        }
+
+        List<String> text = new CopyOnWriteArrayList<>();
+        List<String> gmcp = new CopyOnWriteArrayList<>();
+        MudClient client = new MudClient(new ClientConfig.Mud(), text::add, reason -> {});
+        client.setGmcpListener(message -> gmcp.add(message.module()));
+
+        MudClient.ReplayResult result = client.replay(file, false).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, result.blocks());
+        assertEquals(stream.length, result.bytes());
+        assertFalse(result.stopped());
+        assertEquals("Welcome\n> ", String.join("", text));
+        assertEquals(List.of(Gmcp.CHAR_INFO), gmcp);
+        assertEquals("Lesa", client.getCurrentRoomSnapshot().characterName());
+        assertFalse(client.isReplaying());
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
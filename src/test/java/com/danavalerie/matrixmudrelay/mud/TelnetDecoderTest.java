@@ -0,0 +1,197 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.mud;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TelnetDecoderTest {
+    private static final byte IAC = (byte) 255;
+    private static final byte WILL = (byte) 251;
+    private static final byte DO = (byte) 253;
+    private static final byte SB = (byte) 250;
+    private static final byte SE = (byte) 240;
+    private static final byte GMCP = (byte) 201;
+    private static final byte GA = (byte) 249;
+    private static final byte EOR_CMD = (byte) 239;
+
+    @Test
+    public void testFilterStripsCommandsInPlace() throws Exception {
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        TelnetDecoder decoder = new TelnetDecoder(replies::writeBytes, null);
+
+        byte[] block = concat(ascii("Hello"), new byte[]{IAC, WILL, GMCP}, ascii(" world"),
+                new byte[]{IAC, IAC}, ascii("!"));
+        int length = decoder.filter(block, 0, block.length);
+
+        byte[] expected = concat(ascii("Hello world"), new byte[]{IAC}, ascii("!"));
+        assertArrayEquals(expected, Arrays.copyOf(block, length));
+        byte[] sent = replies.toByteArray();
+        assertArrayEquals(new byte[]{IAC, DO, GMCP}, Arrays.copyOf(sent, 3));
+    }
+
+    @Test
+    public void testPromptMarkersAreReportedAndStripped() throws Exception {
+        ByteArrayOutputStream replies = new ByteArrayOutputStream();
+        TelnetDecoder decoder = new TelnetDecoder(replies::writeBytes, null);
+        List<String> prompts = new ArrayList<>();
+        byte[] block = concat(ascii("> "), new byte[]{IAC, GA}, ascii("x> "), new byte[]{IAC, EOR_CMD});
+        decoder.setPromptListener(() -> prompts.add("prompt"));
+
+        int length = decoder.filter(block, 0, block.length);
+
+        assertArrayEquals(ascii("> x> "), Arrays.copyOf(block, length));
+        assertEquals(List.of("prompt", "prompt"), prompts);
+    }
+
+    @Test
+    public void testRandomBlocksMatchByteAtATimeAccept() throws Exception {
+        Random random = new Random(7);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < 2000; i++) {
+            switch (random.nextInt(5)) {
+                case 0 -> stream.writeBytes(new byte[]{IAC, IAC});
+                case 1 -> stream.writeBytes(new byte[]{IAC, (byte) 249});
+                case 2 -> {
+                    stream.writeBytes(new byte[]{IAC, SB, GMCP});
+                    stream.writeBytes(ascii("char.vitals {\"hp\":" + i + "}"));
+                    stream.writeBytes(new byte[]{IAC, SE});
+                }
+                default -> {
+                    byte[] text = new byte[random.nextInt(300)];
+                    random.nextBytes(text);
+                    for (int j = 0; j < text.length; j++) {
+                        if (text[j] == IAC) {
+                            text[j] = 'x';
+                        }
+                    }
+                    stream.writeBytes(text);
+                }
+            }
+        }
+        byte[] bytes = stream.toByteArray();
+
+        List<String> singleMessages = new ArrayList<>();
+        TelnetDecoder single = new TelnetDecoder(reply -> { },
+                (opt, data) -> singleMessages.add(new String(data, StandardCharsets.ISO_8859_1)));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (byte b : bytes) {
+            expected.write(single.accept(b));
+        }
+
+        List<String> blockMessages = new ArrayList<>();
+        TelnetDecoder block = new TelnetDecoder(reply -> { },
+                (opt, data) -> blockMessages.add(new String(data, StandardCharsets.ISO_8859_1)));
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        int pos = 0;
+        while (pos < bytes.length) {
+            int len = Math.min(bytes.length - pos, 1 + random.nextInt(4096));
+            byte[] copy = Arrays.copyOfRange(bytes, pos, pos + len);
+            actual.write(copy, 0, block.filter(copy, 0, len));
+            pos += len;
+        }
+
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+        assertEquals(singleMessages, blockMessages);
+    }
+
+    @Test
+    public void testFilterMatchesByteAtATimeAccept() throws Exception {
+        byte[] stream = concat(ascii("a\r\n"), new byte[]{IAC, SB, GMCP}, ascii("char.vitals {}"),
+                new byte[]{IAC, SE}, ascii("b"), new byte[]{IAC, IAC}, ascii("c"));
+
+        TelnetDecoder single = new TelnetDecoder(reply -> { }, null);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (byte b : stream) {
+            expected.write(single.accept(b));
+        }
+
+        TelnetDecoder block = new TelnetDecoder(reply -> { }, null);
+        byte[] copy = stream.clone();
+        int length = block.filter(copy, 0, copy.length);
+
+        assertArrayEquals(expected.toByteArray(), Arrays.copyOf(copy, length));
+    }
+
+    @Test
+    public void testSubnegotiationSplitAcrossBlocks() throws Exception {
+        List<String> messages = new ArrayList<>();
+        TelnetDecoder decoder = new TelnetDecoder(reply -> { },
+                (opt, data) -> messages.add(new String(data, StandardCharsets.ISO_8859_1)));
+
+        byte[] first = concat(ascii("x"), new byte[]{IAC, SB, GMCP}, ascii("room.in"));
+        byte[] second = concat(ascii("fo {}"), new byte[]{IAC, SE}, ascii("y"));
+
+        int firstLength = decoder.filter(first, 0, first.length);
+        int secondLength = decoder.filter(second, 0, second.length);
+
+        assertEquals("x", new String(first, 0, firstLength, StandardCharsets.ISO_8859_1));
+        assertEquals("y", new String(second, 0, secondLength, StandardCharsets.ISO_8859_1));
+        assertEquals(List.of("room.info {}"), messages);
+    }
+
+    @Test
+    public void testFilterHonoursOffset() throws Exception {
+        TelnetDecoder decoder = new TelnetDecoder(reply -> { }, null);
+        byte[] block = concat(ascii("skip"), ascii("ab"), new byte[]{IAC, (byte) 249}, ascii("cd"));
+
+        int length = decoder.filter(block, 4, block.length - 4);
+
+        assertEquals("abcd", new String(block, 4, length, StandardCharsets.ISO_8859_1));
+        assertEquals("skip", new String(block, 0, 4, StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void testGmcpHandshakeAdvertisesSubscribedModulesOnly() throws Exception {
+        List<byte[]> replies = new ArrayList<>();
+        TelnetDecoder decoder = new TelnetDecoder(replies::add, null);
+        decoder.setGmcpModules(List.of(Gmcp.ROOM_INFO, Gmcp.CHAR_VITALS, "comm.channel"));
+
+        byte[] block = {IAC, WILL, GMCP};
+        decoder.filter(block, 0, block.length);
+
+        assertEquals(1, replies.size(), "DO GMCP and the handshake go out as one write");
+        String reply = new String(replies.get(0), StandardCharsets.ISO_8859_1);
+        assertTrue(reply.contains("Core.Supports.Set [ \"char.vitals 1\", \"comm.channel 1\", \"room.info 1\" ]"), reply);
+        assertFalse(reply.contains("room.map"));
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
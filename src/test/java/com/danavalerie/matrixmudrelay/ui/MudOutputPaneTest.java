@@ -20,20 +20,22 @@ package com.danavalerie.matrixmudrelay.ui;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import com.danavalerie.matrixmudrelay.config.ConfigLoader;
 import com.danavalerie.matrixmudrelay.config.ClientConfig;
-import javax.swing.text.AttributeSet;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.Document;
-import javax.swing.text.StyledDocument;
-import javax.swing.text.StyleConstants;
+import com.danavalerie.matrixmudrelay.core.MudLineAssembler;
+import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
 import java.awt.Color;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class MudOutputPaneTest {
     private java.util.List<ClientConfig.Trigger> defaultTriggers;
+    private final MudLineAssembler assembler = new MudLineAssembler();
 
     @BeforeEach
     public void setUp() {
@@ -43,16 +45,25 @@ public class MudOutputPaneTest {
     private MudOutputPane createPane() {
         MudOutputPane pane = new MudOutputPane();
         pane.setTriggers(defaultTriggers);
+        pane.attachTo(assembler);
         return pane;
     }
 
+    private void feed(String text) {
+        try {
+            SwingUtilities.invokeAndWait(() -> assembler.feed(text));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        MudOutputPane.awaitTriggers();
+    }
+
     @Test
-    public void testAwardedExperienceColoring() throws BadLocationException {
+    public void testAwardedExperienceColoring()  {
         MudOutputPane pane = createPane();
-        StyledDocument doc = (StyledDocument) pane.getDocument();
         
         String awardedLine = "You have been awarded 123164 experience points for completing this job.\n";
-        pane.appendMudText(awardedLine);
+        feed(awardedLine);
 
         try {
             javax.swing.SwingUtilities.invokeAndWait(() -> {});
@@ -60,24 +71,20 @@ public class MudOutputPaneTest {
             e.printStackTrace();
         }
 
-        // The line should be at the end of the document
-        int start = 0; // Assuming it's the first line for simplicity in this test
-        AttributeSet attributes = doc.getCharacterElement(start).getAttributes();
-        
-        Color fg = (Color) attributes.getAttribute(StyleConstants.Foreground);
-        Boolean bold = (Boolean) attributes.getAttribute(StyleConstants.Bold);
+        // The line should be the first line of the pane
+        Color fg = pane.foregroundAt(0, 0);
+        boolean bold = pane.isBoldAt(0, 0);
 
         assertEquals(Color.WHITE, fg, "Foreground color should be WHITE for awarded experience lines");
-        assertTrue(bold != null && bold, "Text should be bold for awarded experience lines");
+        assertTrue(bold, "Text should be bold for awarded experience lines");
     }
 
     @Test
-    public void testFumbleAlertColoring() throws BadLocationException {
+    public void testFumbleAlertColoring()  {
         MudOutputPane pane = createPane();
-        StyledDocument doc = (StyledDocument) pane.getDocument();
 
         String fumbleLine = "Whoops!  You tried to carry too many things and fumbled a heavy iron key.\n";
-        pane.appendMudText(fumbleLine);
+        feed(fumbleLine);
 
         try {
             javax.swing.SwingUtilities.invokeAndWait(() -> {});
@@ -85,27 +92,24 @@ public class MudOutputPaneTest {
             e.printStackTrace();
         }
 
-        AttributeSet attributes = doc.getCharacterElement(0).getAttributes();
-
-        Color fg = (Color) attributes.getAttribute(StyleConstants.Foreground);
-        Color bg = (Color) attributes.getAttribute(StyleConstants.Background);
-        Boolean bold = (Boolean) attributes.getAttribute(StyleConstants.Bold);
+        Color fg = pane.foregroundAt(0, 0);
+        Color bg = pane.backgroundAt(0, 0);
+        boolean bold = pane.isBoldAt(0, 0);
 
         assertEquals(Color.WHITE, fg, "Foreground color should be WHITE for fumble lines");
         assertEquals(Color.RED, bg, "Background color should be RED for fumble lines");
-        assertTrue(bold != null && bold, "Text should be bold for fumble lines");
+        assertTrue(bold, "Text should be bold for fumble lines");
     }
 
     @Test
-    public void testRumblingAlert() throws BadLocationException {
+    public void testRumblingAlert()  {
         MudOutputPane pane = createPane();
         java.util.List<String> chitchatMessages = new java.util.ArrayList<>();
         pane.setChitchatListener((text, color) -> chitchatMessages.add(text));
 
-        StyledDocument doc = (StyledDocument) pane.getDocument();
 
         String rumblingLine = "When you open the mysterious cardboard door you think you can hear a faint rumbling sound from it.\n";
-        pane.appendMudText(rumblingLine);
+        feed(rumblingLine);
 
         try {
             javax.swing.SwingUtilities.invokeAndWait(() -> {});
@@ -113,26 +117,23 @@ public class MudOutputPaneTest {
             e.printStackTrace();
         }
 
-        AttributeSet attributes = doc.getCharacterElement(0).getAttributes();
-
-        Color fg = (Color) attributes.getAttribute(StyleConstants.Foreground);
-        Color bg = (Color) attributes.getAttribute(StyleConstants.Background);
-        Boolean bold = (Boolean) attributes.getAttribute(StyleConstants.Bold);
+        Color fg = pane.foregroundAt(0, 0);
+        Color bg = pane.backgroundAt(0, 0);
+        boolean bold = pane.isBoldAt(0, 0);
 
         assertEquals(Color.WHITE, fg, "Foreground color should be WHITE for rumbling lines");
         assertEquals(Color.RED, bg, "Background color should be RED for rumbling lines");
-        assertTrue(bold != null && bold, "Text should be bold for rumbling lines");
+        assertTrue(bold, "Text should be bold for rumbling lines");
 
         assertTrue(chitchatMessages.isEmpty(), "Rumbling line should NOT be sent to chitchat");
     }
 
     @Test
-    public void testRumblingAlertWildcard() throws BadLocationException {
+    public void testRumblingAlertWildcard()  {
         MudOutputPane pane = createPane();
-        StyledDocument doc = (StyledDocument) pane.getDocument();
 
         String rumblingLine = "When you open the burning piece of fur you think you can hear a faint rumbling sound from it.\n";
-        pane.appendMudText(rumblingLine);
+        feed(rumblingLine);
 
         try {
             javax.swing.SwingUtilities.invokeAndWait(() -> {});
@@ -140,23 +141,21 @@ public class MudOutputPaneTest {
             e.printStackTrace();
         }
 
-        AttributeSet attributes = doc.getCharacterElement(0).getAttributes();
-
-        Color fg = (Color) attributes.getAttribute(StyleConstants.Foreground);
-        Color bg = (Color) attributes.getAttribute(StyleConstants.Background);
+        Color fg = pane.foregroundAt(0, 0);
+        Color bg = pane.backgroundAt(0, 0);
 
         assertEquals(Color.WHITE, fg, "Foreground color should be WHITE for rumbling lines with wildcard");
         assertEquals(Color.RED, bg, "Background color should be RED for rumbling lines with wildcard");
     }
 
     @Test
-    public void testWhoopsNoLongerSentToChitchat() throws BadLocationException {
+    public void testWhoopsNoLongerSentToChitchat()  {
         MudOutputPane pane = createPane();
         java.util.List<String> chitchatMessages = new java.util.ArrayList<>();
         pane.setChitchatListener((text, color) -> chitchatMessages.add(text));
 
         String fumbleLine = "Whoops!  You tried to carry too many things and fumbled a heavy iron key.\n";
-        pane.appendMudText(fumbleLine);
+        feed(fumbleLine);
 
         try {
             javax.swing.SwingUtilities.invokeAndWait(() -> {});
@@ -168,10 +167,9 @@ public class MudOutputPaneTest {
     }
 
     @Test
-    public void testAppendCommandEchoEmpty() throws BadLocationException {
+    public void testAppendCommandEchoEmpty()  {
         MudOutputPane pane = new MudOutputPane();
-        Document doc = pane.getDocument();
-        int initialLength = doc.getLength();
+        int initialLength = pane.getText().length();
 
         pane.appendCommandEcho("");
         
@@ -183,15 +181,14 @@ public class MudOutputPaneTest {
         }
 
         // Now it should increase by at least 1 (the newline)
-        assertTrue(doc.getLength() > initialLength, "Document length should increase for empty command echo (it should add a newline)");
-        assertEquals("\n", doc.getText(initialLength, doc.getLength() - initialLength), "Should have appended a newline");
+        assertTrue(pane.getText().length() > initialLength, "Text length should increase for empty command echo (it should add a newline)");
+        assertEquals("\n", pane.getText().substring(initialLength), "Should have appended a newline");
     }
 
     @Test
-    public void testAppendCommandEchoNormal() throws BadLocationException {
+    public void testAppendCommandEchoNormal()  {
         MudOutputPane pane = new MudOutputPane();
-        Document doc = pane.getDocument();
-        int initialLength = doc.getLength();
+        int initialLength = pane.getText().length();
 
         pane.appendCommandEcho("look");
 
@@ -201,7 +198,136 @@ public class MudOutputPaneTest {
             e.printStackTrace();
         }
 
-        assertEquals("look\n", doc.getText(initialLength, doc.getLength() - initialLength));
+        assertEquals("look\n", pane.getText().substring(initialLength));
+    }
+
+    @Test
+    public void testScrollbackTrimKeepsAlertLines(@TempDir Path tempDir) throws Exception {
+        MudOutputPane pane = createPane();
+        Path archive = tempDir.resolve("output.txt");
+        pane.setScrollback(10, 0, archive);
+        StringBuilder text = new StringBuilder();
+        for (int i = 1; i <= 25; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        String fumble = "Whoops!  You tried to carry too many things and fumbled a heavy iron key.";
+        feed(text + fumble.substring(0, 20));
+        feed(fumble.substring(20) + "\n");
+        SwingUtilities.invokeAndWait(() -> {});
+
+        String kept = pane.getText();
+        assertTrue(kept.startsWith("line 17\n"), kept);
+        assertTrue(kept.endsWith("line 25\n" + fumble + "\n"), kept);
+        int fumbleLine = pane.getLineCount() - 2;
+        assertEquals(Color.RED, pane.backgroundAt(fumbleLine, 0));
+        assertEquals(Color.RED, pane.backgroundAt(fumbleLine, fumble.length() - 1));
+        assertEquals(null, pane.backgroundAt(fumbleLine - 1, 0));
+
+        ScrollbackLimiter.awaitArchived();
+        String archived = Files.readString(archive);
+        assertTrue(archived.startsWith("line 1\n"), archived);
+        assertTrue(archived.endsWith("line 16\n"), archived);
+    }
+
+    @Test
+    public void testScrollbackCharacterCap() throws Exception {
+        MudOutputPane pane = new MudOutputPane();
+        pane.setScrollback(0, 1000, null);
+        for (int i = 0; i < 100; i++) {
+            pane.appendSystemText("0123456789012345678901234567890123456789 " + i);
+        }
+        SwingUtilities.invokeAndWait(() -> {});
+
+        String kept = pane.getText();
+        assertTrue(kept.length() <= 1000 + pane.getLineCount(), "Kept " + kept.length());
+        assertTrue(kept.endsWith(" 99\n"));
+        assertTrue(kept.startsWith("0123456789"), "Trimmed mid-line");
+    }
+
+    @Test
+    public void testSelectionCopiesAcrossWrappedLines() throws Exception {
+        MudOutputPane pane = new MudOutputPane();
+        pane.attachTo(assembler);
+        JScrollPane scroll = new JScrollPane(pane);
+        SwingUtilities.invokeAndWait(() -> {
+            pane.setFont(new java.awt.Font(java.awt.Font.MONOSPACED, java.awt.Font.PLAIN, 12));
+            scroll.setSize(400, 200);
+            scroll.validate();
+        });
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            text.append("row ").append(i).append(' ').append("x".repeat(i % 150)).append('\n');
+        }
+        feed(text.toString());
+        SwingUtilities.invokeAndWait(() -> {});
+
+        assertEquals(501, pane.getLineCount());
+        assertTrue(pane.isAutoScroll());
+        assertTrue(pane.getHeight() > scroll.getViewport().getHeight());
+        java.awt.Rectangle visible = scroll.getViewport().getViewRect();
+        assertEquals(pane.getHeight(), visible.y + visible.height, "Should follow the end of the output");
+
+        SwingUtilities.invokeAndWait(pane::selectAll);
+        assertEquals(text.toString(), pane.getSelectedText());
+    }
+
+    @Test
+    public void testBurstModeKeepsTriggersAndEndsWhenFloodStops() throws Exception {
+        MudOutputPane pane = createPane();
+        java.util.List<Boolean> changes = new java.util.concurrent.CopyOnWriteArrayList<>();
+        pane.setBurstListener(changes::add);
+        JScrollPane scroll = new JScrollPane(pane);
+        SwingUtilities.invokeAndWait(() -> {
+            scroll.setSize(400, 200);
+            scroll.validate();
+        });
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i <= MudOutputPane.BURST_ENTER_LINES; i++) {
+            text.append("help line ").append(i).append('\n');
+        }
+        feed(text.toString());
+        String fumble = "Whoops!  You tried to carry too many things and fumbled a heavy iron key.\n";
+        feed("more\n" + fumble);
+        SwingUtilities.invokeAndWait(() -> assertTrue(pane.isBurstMode()));
+
+        int fumbleLine = MudOutputPane.BURST_ENTER_LINES + 2;
+        assertEquals(fumbleLine + 2, pane.getLineCount());
+        assertEquals(Color.RED, pane.backgroundAt(fumbleLine, 0));
+
+        long deadline = System.nanoTime() + java.util.concurrent.TimeUnit.SECONDS.toNanos(5);
+        while (changes.size() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        SwingUtilities.invokeAndWait(() -> {});
+        assertEquals(java.util.List.of(true, false), changes);
+        java.awt.Rectangle visible = scroll.getViewport().getViewRect();
+        assertEquals(pane.getHeight(), visible.y + visible.height, "Should follow the end of the output");
     }
-}
 
+    @Test
+    public void testGagsDropAndCollapseBeforeDisplay() throws Exception {
+        MudOutputPane pane = createPane();
+        java.util.List<String> chitchatMessages = new java.util.ArrayList<>();
+        pane.setChitchatListener((text, color) -> chitchatMessages.add(text));
+        ClientConfig.Gag miss = new ClientConfig.Gag();
+        miss.pattern = "^.+ misses you\\.$|^.+ tells you: buy .*$";
+        ClientConfig.Gag weather = new ClientConfig.Gag();
+        weather.pattern = "^The rain .*$";
+        weather.collapseRepeats = true;
+        assembler.setGags(java.util.List.of(miss, weather), pattern -> { });
+        java.util.List<String> trackedLines = new java.util.ArrayList<>();
+        assembler.addListener(line -> trackedLines.add(line.trimmed()));
+
+        feed("Start\nThe rain pours down.\nThe rain pours down.\nThe goblin misses you.\n");
+        SwingUtilities.invokeAndWait(() -> pane.appendSystemText("You duck.\n"));
+        feed("The rain pours");
+        feed(" down.\nThe rain pours down.\nThe rain stops.\nBob tells you: buy my fish\nEnd\n");
+        SwingUtilities.invokeAndWait(() -> {});
+
+        assertEquals("Start\nThe rain pours down. (x2)\nYou duck.\nThe rain pours down. (x4)\nThe rain stops.\nEnd\n",
+                pane.getText());
+        assertTrue(chitchatMessages.isEmpty(), "Triggers act on shown lines, so a gagged tell fires none");
+        assertTrue(trackedLines.contains("Bob tells you: buy my fish"), "Other listeners should still see gagged lines");
+        assertEquals(9, trackedLines.size());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.ui;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TerminalLineStoreTest {
+
+    @Test
+    public void testRunsSplitAtStyleChangesAndLines() {
+        TerminalLineStore store = new TerminalLineStore();
+        store.append("ab", 1);
+        store.append("c\nd", 2);
+        store.append("e\u0007\tf", 2);
+
+        assertEquals(2, store.lineCount());
+        assertEquals("abc", store.lineText(0));
+        assertEquals("de      f", store.lineText(1));
+        assertEquals(2, store.endRun(0) - store.firstRun(0));
+        assertEquals(1, store.endRun(1) - store.firstRun(1));
+        assertEquals(1, store.styleAt(0, 1));
+        assertEquals(2, store.styleAt(0, 2));
+        assertEquals(-1, store.styleAt(0, 3));
+    }
+
+    @Test
+    public void testRestyleAndRemoveKeepLaterLinesIntact() {
+        TerminalLineStore store = new TerminalLineStore();
+        for (int i = 0; i < 2000; i++) {
+            store.append("line ", 0);
+            store.append(Integer.toString(i), 1 + i % 3);
+            store.append("\n", 0);
+        }
+        store.restyleLine(1000, 9);
+        assertEquals(1, store.endRun(1000) - store.firstRun(1000));
+        assertEquals(9, store.styleAt(1000, 6));
+        assertEquals(1 + 1001 % 3, store.styleAt(1001, 5));
+
+        store.removeFirstLines(1500);
+        assertEquals(1500, store.evictedLines());
+        assertEquals(501, store.lineCount());
+        assertEquals("line 1500", store.lineText(0));
+        assertEquals(1 + 1999 % 3, store.styleAt(499, 5));
+        assertEquals(499, store.lineAtOffset(store.lineStart(499) + 3));
+
+        StringBuilder out = new StringBuilder();
+        store.appendText(out, 0, 5, 1, 4);
+        assertEquals("1500\nline", out.toString());
+    }
+
+    @Test
+    public void testTruncateReopensLine() {
+        TerminalLineStore store = new TerminalLineStore();
+        store.append("keep", 1);
+        store.append(" me\n", 2);
+        store.append("drop\nthis", 3);
+
+        store.truncate(0, 4);
+        assertEquals(1, store.lineCount());
+        assertEquals("keep", store.lineText(0));
+        assertEquals(1, store.endRun(0) - store.firstRun(0));
+
+        store.append(" (x2)\nnext", 4);
+        assertEquals("keep (x2)", store.lineText(0));
+        assertEquals(4, store.styleAt(0, 4));
+        assertEquals("next", store.lineText(1));
+        assertEquals(1, store.endRun(1) - store.firstRun(1));
+    }
+}
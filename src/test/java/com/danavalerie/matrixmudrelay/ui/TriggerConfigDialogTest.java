@@ -30,11 +30,11 @@ class TriggerConfigDialogTest {
             TriggerConfigDialog dialog = new TriggerConfigDialog(null, triggers);
             
             // Find components
-            JList<ClientConfig.Trigger> triggerList = findComponent(dialog, JList.class);
+            JTable triggerTable = findComponent(dialog, JTable.class);
             JRadioButton wavRadio = findButtonByText(dialog, JRadioButton.class, "WAV");
             JTextField wavFileField = findWavFileField(dialog);
             
-            triggerList.setSelectedIndex(0);
+            triggerTable.setRowSelectionInterval(0, 0);
             
             // Simulate selecting WAV and entering a file
             wavRadio.setSelected(true);
@@ -54,8 +54,8 @@ class TriggerConfigDialogTest {
             
             // Now simulate reloading by creating a new dialog with these triggers
             TriggerConfigDialog dialog2 = new TriggerConfigDialog(null, resultTriggers);
-            JList<ClientConfig.Trigger> triggerList2 = findComponent(dialog2, JList.class);
-            triggerList2.setSelectedIndex(0);
+            JTable triggerTable2 = findComponent(dialog2, JTable.class);
+            triggerTable2.setRowSelectionInterval(0, 0);
             
             JRadioButton wavRadio2 = findButtonByText(dialog2, JRadioButton.class, "WAV");
             assertTrue(wavRadio2.isSelected(), "WAV radio should be selected when reloading even if file is empty");
@@ -0,0 +1,112 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AnsiColorParserTest {
+    private static final String SAMPLE = "\u001b[1z<c yellow>Wilbur</c>\u001b[0;36m says: \u001b[1;32mline 7"
+            + "\u001b[0m of the &lt;scripted&gt; stream.\r\nA <font color=\"#102030\">dim</font> "
+            + "\u001b[38;5;196mred\u001b[38;2;1;2;3m rgb\u001b[22m\n";
+
+    private record Run(String text, int style) {
+    }
+
+    private static List<Run> parse(AnsiColorParser parser, String... chunks) {
+        List<Run> runs = new ArrayList<>();
+        for (String chunk : chunks) {
+            parser.feed(chunk, (chars, start, end, style) -> {
+                Run last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+                String text = new String(chars, start, end - start);
+                if (last != null && last.style() == style) {
+                    runs.set(runs.size() - 1, new Run(last.text() + text, style));
+                } else {
+                    runs.add(new Run(text, style));
+                }
+            });
+        }
+        return runs;
+    }
+
+    @Test
+    public void testColoursBoldAndNewlineReset() {
+        AnsiColorParser parser = new AnsiColorParser();
+        List<Run> runs = parse(parser, SAMPLE);
+
+        assertEquals("Wilbur", runs.get(0).text());
+        assertSame(Color.YELLOW, parser.color(runs.get(0).style()));
+        assertEquals(" says: ", runs.get(1).text());
+        assertEquals(new Color(0, 170, 170), parser.color(runs.get(1).style()));
+        assertEquals("line 7", runs.get(2).text());
+        assertTrue(AnsiColorParser.isBold(runs.get(2).style()));
+        assertEquals(" of the <scripted> stream.\nA ", runs.get(3).text());
+        assertEquals(AnsiColorParser.DEFAULT_STYLE, runs.get(3).style());
+        assertEquals("dim", runs.get(4).text());
+        assertEquals(new Color(0x10, 0x20, 0x30), parser.color(runs.get(4).style()));
+        assertEquals("red", runs.get(6).text());
+        assertEquals(new Color(255, 0, 0), parser.color(runs.get(6).style()));
+        assertEquals(" rgb\n", runs.get(7).text());
+        assertEquals(new Color(1, 2, 3), parser.color(runs.get(7).style()));
+        assertEquals(AnsiColorParser.DEFAULT_STYLE, parser.style());
+    }
+
+    @Test
+    public void testSplitAnywhereMatchesWholeInput() {
+        List<Run> whole = parse(new AnsiColorParser(), SAMPLE);
+        for (int split = 0; split <= SAMPLE.length(); split++) {
+            AnsiColorParser parser = new AnsiColorParser();
+            List<Run> runs = parse(parser, SAMPLE.substring(0, split), SAMPLE.substring(split));
+            assertEquals(whole, runs, "Split at " + split);
+        }
+    }
+
+    @Test
+    public void testMalformedInputIsShownNotSwallowed() {
+        AnsiColorParser parser = new AnsiColorParser();
+        List<Run> runs = parse(parser, "a\u001bb \u001b[2Jc 1 < 2 and " + "x".repeat(600) + "\n");
+        String text = runs.stream().map(Run::text).reduce("", String::concat);
+        assertTrue(text.startsWith("ab c 1 "), text);
+        assertTrue(text.endsWith("x\n"), text);
+
+        assertTrue(parse(new AnsiColorParser(), "\u001b[38;5m\u001b[38;2;1mok").get(0).text().equals("ok"));
+        assertFalse(AnsiColorParser.isBold(AnsiColorParser.DEFAULT_STYLE));
+    }
+
+    @Test
+    public void testEntitiesDecodedOnceAndUnknownOnesKept() {
+        String input = "&amp;lt; &copy; fish & chips &lt&gt; &toolongentity; &\u001b[1mbold&amp;\n";
+        List<Run> runs = parse(new AnsiColorParser(), input);
+        String text = runs.stream().map(Run::text).reduce("", String::concat);
+        assertEquals("&lt; &copy; fish & chips &lt> &toolongentity; &bold&\n", text);
+        assertEquals("bold&\n", runs.get(runs.size() - 1).text());
+
+        assertEquals(text, AnsiColorParser.decodeEntities(input.replace("\u001b[1m", "")));
+        String plain = "no entities here";
+        assertSame(plain, AnsiColorParser.decodeEntities(plain));
+    }
+}
@@ -38,12 +38,19 @@ class ConfigExampleGeneratorTest {
         example.mud.port = 4242;
         example.mud.charset = "ISO-8859-1";
         example.mud.connectTimeoutMs = 10000;
+        example.mud.compression = true;
+        example.mud.commandPacing = false;
+        example.mud.maxCommandsInFlight = 4;
+        example.mud.pacingTimeoutMs = 2000;
 
         // UI settings - use fixed defaults instead of copying from config.json
         example.ui.fontFamily = "Monospaced";
         example.ui.fontSize = 20;
         example.ui.mapZoomPercent = 100;
         example.ui.invertMap = true;
+        example.ui.scrollbackLines = 20000;
+        example.ui.scrollbackChars = 4000000;
+        example.ui.sessionLogDir = "session-logs";
 
         // Bookmarks - only check that it's a list, don't compare content as config.json might have many more
         // Add at least one to avoid it being turned into null by GsonUtils
@@ -52,6 +59,11 @@ class ConfigExampleGeneratorTest {
         // Triggers
         example.triggers.addAll(config.triggers);
 
+        // Gags
+        if (config.gags != null) {
+            example.gags.addAll(config.gags);
+        }
+
         JsonElement actualObj = JsonParser.parseString(gson.toJson(example));
         JsonElement expectedObj = JsonParser.parseString(Files.readString(examplePath));
 
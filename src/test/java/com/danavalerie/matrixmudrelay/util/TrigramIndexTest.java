@@ -0,0 +1,116 @@
+/*
+ * Lesa's Discworld MUD client.
+ * Copyright (C) 2026 Dana Reese
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.danavalerie.matrixmudrelay.util;
+
+import com.danavalerie.matrixmudrelay.core.MapDataService;
+import com.danavalerie.matrixmudrelay.core.data.NpcData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class TrigramIndexTest {
+    private static final Comparator<NpcData> NPC_ORDER =
+            Comparator.comparing(NpcData::getNpcName).thenComparing(NpcData::getNpcId);
+    private static final String[] NPC_QUERIES =
+            {"guard", "smith", "the", "priest", "ankh", "lady", "tr", "xqzj", "seller of", "old"};
+    private static final int NPC_LIMIT = 51;
+
+    @Test
+    public void testSubstringSearchInIndexOrder() {
+        List<String> names = Arrays.asList("Zebra keeper", "apple seller", null, "Barbarian", "bar", "abcabc", "BARMAID");
+        TrigramIndex<String> index = TrigramIndex.sorted(names.stream().filter(n -> n != null).collect(Collectors.toList()),
+                name -> name, String.CASE_INSENSITIVE_ORDER);
+
+        assertEquals(List.of("bar", "Barbarian", "BARMAID"), index.search("BAR", 10));
+        assertEquals(List.of("bar", "Barbarian"), index.search("bar", 2));
+        assertEquals(List.of("Barbarian"), index.search("arbar", 10));
+        assertEquals(List.of("abcabc"), index.search("cab", 10));
+        assertEquals(List.of("Zebra keeper"), index.search("a k", 10));
+        assertEquals(List.of("apple seller", "Zebra keeper"), index.search("er", 10));
+        assertTrue(index.search("barb arian", 10).isEmpty());
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertTrue(index.search("bar", 0).isEmpty());
+    }
+
+    @Test
+    public void testNpcNameSearchMatchesStreamScan() {
+        List<NpcData> npcs = realNpcs();
+        TrigramIndex<NpcData> index = TrigramIndex.sorted(npcs, NpcData::getNpcName, NPC_ORDER);
+
+        for (String query : NPC_QUERIES) {
+            assertEquals(streamScan(npcs, query), index.search(query, NPC_LIMIT), "Query " + query);
+        }
+    }
+
+    /**
+     * Times the index against the stream scan it replaced. Opt-in, as timings only mean
+     * something on a quiet machine: {@code mvn test -Dtest=TrigramIndexTest -Dbenchmarks=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+    public void benchmarkNpcNameSearchAgainstStreamScan() {
+        List<NpcData> npcs = realNpcs();
+
+        long buildStart = System.nanoTime();
+        TrigramIndex<NpcData> index = TrigramIndex.sorted(npcs, NpcData::getNpcName, NPC_ORDER);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        int rounds = 20;
+        long scanNanos = 0;
+        long indexNanos = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String query : NPC_QUERIES) {
+                long start = System.nanoTime();
+                List<NpcData> scanned = streamScan(npcs, query);
+                long middle = System.nanoTime();
+                List<NpcData> indexed = index.search(query, NPC_LIMIT);
+                long end = System.nanoTime();
+                scanNanos += middle - start;
+                indexNanos += end - middle;
+                assertEquals(scanned, indexed, "Query " + query);
+            }
+        }
+        System.out.printf("Trigram index over %d NPC names: built in %.1f ms; %d queries took %.1f ms indexed vs %.1f ms scanned%n",
+                npcs.size(), buildNanos / 1e6, rounds * NPC_QUERIES.length, indexNanos / 1e6, scanNanos / 1e6);
+    }
+
+    private static List<NpcData> realNpcs() {
+        List<NpcData> npcs = new ArrayList<>(new MapDataService().getNpcs().values());
+        assumeTrue(!npcs.isEmpty(), "npcs.json is not available");
+        npcs.removeIf(n -> n.getNpcName() == null);
+        return npcs;
+    }
+
+    private static List<NpcData> streamScan(List<NpcData> npcs, String query) {
+        return npcs.stream()
+                .filter(n -> n.getNpcName().toLowerCase().contains(query))
+                .sorted(NPC_ORDER)
+                .limit(NPC_LIMIT)
+                .collect(Collectors.toList());
+    }
+}